@@ -1,77 +1,178 @@
 package com.gonnect.apiaide.apiexecution;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.gonnect.apiaide.oas.OpenAPISpecUtil;
-import com.gonnect.apiaide.parser.ParserRequestInput;
-import com.gonnect.apiaide.parser.ResponseParser;
 import dev.langchain4j.chain.ConversationalRetrievalChain;
 import dev.langchain4j.model.input.Prompt;
 import dev.langchain4j.model.input.PromptTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import static com.gonnect.apiaide.prompts.CallerPrompts.CALLER_PROMPT;
+import static com.gonnect.apiaide.prompts.CallerPrompts.PAGINATION_INSTRUCTIONS;
 
 /**
- * The Caller class is responsible for executing API calls based on a given plan
- * and parsing the responses using a ConversationalRetrievalChain and a ResponseParser.
+ * The Caller class is responsible for executing API calls based on a given plan.
+ * <p>
+ * The model decides which request to send as an {@code Operation:}/{@code Input:} action; the request is sent
+ * to the real API by the {@link HttpExecutionEngine} and the real response is fed back, until the model gives
+ * its {@code Execution Result:}.
  */
 @Service
 public class APIExecution {
 
+    private static final Logger log = LoggerFactory.getLogger(APIExecution.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int OBSERVED_ARRAY_ITEMS = 2;
+
     private final ConversationalRetrievalChain chain;
-    private final ResponseParser responseParser;
+    private final HttpExecutionEngine engine;
+    private final int maxSteps;
+    private final int maxObservationChars;
 
     /**
      * Constructor for the Caller class.
      *
-     * @param chain          The ConversationalRetrievalChain used for API execution.
-     * @param responseParser The ResponseParser used for parsing API responses.
+     * @param chain               The ConversationalRetrievalChain used for API execution.
+     * @param engine              The engine sending the requests.
+     * @param maxSteps            Maximum number of model turns per plan step.
+     * @param maxObservationChars Maximum length of a response shown to the model.
      */
-    public APIExecution(ConversationalRetrievalChain chain, ResponseParser responseParser) {
+    public APIExecution(ConversationalRetrievalChain chain,
+                        HttpExecutionEngine engine,
+                        @Value("${apiaide.caller.max-steps:5}") int maxSteps,
+                        @Value("${apiaide.caller.max-observation-chars:3000}") int maxObservationChars) {
         this.chain = chain;
-        this.responseParser = responseParser;
+        this.engine = engine;
+        this.maxSteps = maxSteps;
+        this.maxObservationChars = maxObservationChars;
+    }
+
+    /**
+     * Executes API calls based on a given plan, on the shared chain.
+     *
+     * @param input The APIExecutionRequest containing the API plan and details.
+     * @return The caller conversation under "conversation", its execution result under "result", and the body
+     * of the last successful response, if any, under "response", with its endpoint under "endpoint".
+     */
+    public Map<String, String> run(APIExecutionRequest input) {
+        return run(input, chain);
     }
 
     /**
-     * Executes API calls based on a given plan and returns the formatted output.
+     * Executes API calls based on a given plan, holding the caller conversation on the given chain.
      *
-     * @param input                The APIExecutionRequest containing the API plan and details.
-     * @param conversationalChains List of conversational chains for parsing responses.
-     * @return The formatted output of the API execution result.
+     * @param input The APIExecutionRequest containing the API plan and details.
+     * @param chain The chain to talk to the model on, with a memory of its own for concurrent executions.
+     * @return The same as {@link #run(APIExecutionRequest)}.
      */
-    public Map<String, String> run(APIExecutionRequest input, List<Map<String, String>> conversationalChains) {
+    public Map<String, String> run(APIExecutionRequest input, ConversationalRetrievalChain chain) {
         // Create a prompt template with API documentation
+        String apiDocs = generateAPIDocs(input);
         PromptTemplate template = PromptTemplate.from(CALLER_PROMPT);
         Prompt prompt = template.apply(Map.of(
-                "api_docs", generateAPIDocs(input),
+                "api_docs", apiDocs,
                 "\" and \"", "",
                 "user_id", "1234",
                 "person_id", "5678"
         ));
+        String text = prompt.text()
+                .replace("{api_url}", serverUrl(input))
+                .replace("{api_docs}", apiDocs)
+                .replace("{background}", input.getBackground() == null ? "" : input.getBackground())
+                .replace("{api_plan}", input.getPlan() == null ? "" : input.getPlan())
+                .replace("{pagination}", engine.isPaginationEnabled() ? PAGINATION_INSTRUCTIONS : "")
+                .replace("{agent_scratchpad}", "");
+
+        // Let the model pick requests, send them and feed back the real responses
+        Map<String, String> output = new HashMap<>();
+        String conversation = CallerAction.truncateAtResponse(chain.execute(text));
+        for (int step = 0; !isExecutionComplete(conversation) && step < maxSteps; step++) {
+            Optional<CallerAction> action = CallerAction.parsePending(conversation);
+            String nextPrompt;
+            if (action.isPresent()) {
+                HttpExecutionEngine.ExecutionResponse response = engine.execute(action.get(), input.getApiSpec(), input.getScenario(), input.getDeadline());
+                if (response.isSuccessful()) {
+                    output.put("response", response.body());
+                    output.put("endpoint", response.endpoint());
+                }
+                nextPrompt = "\nResponse: " + observe(response) + "\nThought: ";
+            } else {
+                nextPrompt = getNextPrompt(conversation);
+            }
+            conversation += nextPrompt + CallerAction.truncateAtResponse(chain.execute(nextPrompt));
+        }
+        if (!isExecutionComplete(conversation)) {
+            log.warn("Caller did not finish the plan within {} steps", maxSteps);
+        }
+
+        output.put("conversation", conversation);
+        output.put("result", executionResult(conversation));
+        return output;
+    }
 
-        // Execute the API calls in a conversational chain
-        String conversation = chain.execute(prompt.text());
-        while (!isExecutionComplete(conversation)) {
-            String nextPrompt = getNextPrompt(conversation);
-            conversation += chain.execute(nextPrompt);
+    /**
+     * Shows a response to the model the way it shows the parser a sample: arrays cut to their first items and
+     * the text cut to {@code maxObservationChars}. A fanned-out response keeps an element for every request.
+     */
+    private String observe(HttpExecutionEngine.ExecutionResponse response) {
+        String body = response.body();
+        try {
+            JsonNode json = MAPPER.readTree(body);
+            if (response.items() > 1 && json instanceof ArrayNode items) {
+                ArrayNode abbreviated = MAPPER.createArrayNode();
+                items.forEach(item -> abbreviated.add(abbreviate(item)));
+                json = abbreviated;
+            } else {
+                json = abbreviate(json);
+            }
+            body = MAPPER.writeValueAsString(json);
+        } catch (Exception e) {
+            // Not JSON, shown as it is
         }
+        String observation = response.isSuccessful() ? body : "Error " + response.status() + ": " + body;
+        return observation.length() <= maxObservationChars
+                ? observation
+                : observation.substring(0, maxObservationChars) + "...";
+    }
 
-        // Use the ResponseParser to parse the API response
-        ParserRequestInput parserRequestInput = createParserRequestInput(input, conversation);
-        return conversationalChains.stream()
-                .collect(Collectors.toMap(
-                        chain -> chain.get("background"), // Assuming 'background' is the relevant key
-                        chain -> responseParser.parse(parserRequestInput).toString()
-                ));
+    private static JsonNode abbreviate(JsonNode node) {
+        if (node instanceof ArrayNode array) {
+            ArrayNode abbreviated = MAPPER.createArrayNode();
+            for (int i = 0; i < Math.min(array.size(), OBSERVED_ARRAY_ITEMS); i++) {
+                abbreviated.add(abbreviate(array.get(i)));
+            }
+            return abbreviated;
+        }
+        if (node instanceof ObjectNode object) {
+            ObjectNode abbreviated = MAPPER.createObjectNode();
+            object.fields().forEachRemaining(field -> abbreviated.set(field.getKey(), abbreviate(field.getValue())));
+            return abbreviated;
+        }
+        return node;
+    }
 
+    private static String executionResult(String conversation) {
+        int index = conversation.lastIndexOf("Execution Result:");
+        return index < 0 ? "" : conversation.substring(index + "Execution Result:".length()).trim();
+    }
 
-        // Return the formatted output
-        //return formatOutput(parsedOutput.get(OUTPUT_KEY));
+    private static String serverUrl(APIExecutionRequest input) {
+        List<Map<String, Object>> servers = input.getApiSpec().getServers();
+        return servers == null || servers.isEmpty() ? "" : String.valueOf(servers.get(0).get("url"));
     }
 
     /**
@@ -135,24 +236,4 @@ public class APIExecution {
 
         return "GET"; // Default if not found
     }
-
-    /**
-     * Creates a ParserRequestInput from APIExecutionRequest and conversation details.
-     *
-     * @param input        The APIExecutionRequest containing details.
-     * @param conversation The conversation text to include in parsing.
-     * @return The constructed ParserRequestInput.
-     */
-    private ParserRequestInput createParserRequestInput(APIExecutionRequest input, String conversation) {
-        // Customize this method based on your needs
-        return new ParserRequestInput(
-                input.getQuery(),
-                input.getApiDescription(),
-                input.getApiPath(),
-                input.getApiParam(),
-                input.getResponseDescription(),
-                conversation // Pass the conversation as JSON for parsing, modify if needed
-        );
-    }
 }
-
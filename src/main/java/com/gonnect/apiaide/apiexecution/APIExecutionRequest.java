@@ -1,6 +1,7 @@
 package com.gonnect.apiaide.apiexecution;
 
 import com.gonnect.apiaide.oas.ReducedOpenAPISpec;
+import com.gonnect.apiaide.request.Deadline;
 import lombok.Data;
 
 import java.util.Map;
@@ -13,6 +14,7 @@ public class APIExecutionRequest {
     private String scenario; // TMDB, Spotify etc
     private Map<String, String> parameters; // Additional parameters
     private ReducedOpenAPISpec apiSpec;
+    private Deadline deadline; // Requests are not retried past it
 
     public APIExecutionRequest() {
         this.parameters = Map.of();
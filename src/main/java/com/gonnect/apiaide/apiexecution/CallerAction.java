@@ -0,0 +1,159 @@
+package com.gonnect.apiaide.apiexecution;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An HTTP request the caller asked for, as an {@code Operation:} line followed by an {@code Input:} JSON object:
+ * <pre>
+ * Operation: GET
+ * Input: {
+ *     "url": "https://api.themoviedb.org/3/person/5026/movie_credits",
+ *     "params": {"language": "en-US"},
+ *     "description": "The movie credit list of Akira Kurosawa (id 5026)",
+ *     "output_instructions": "What are the names and ids of the movies directed by this person?"
+ * }
+ * </pre>
+ *
+ * @param method             the HTTP method, upper case
+ * @param url                the URL as written by the model, absolute or relative to the server
+ * @param params             query parameters, empty if none
+ * @param data               request body for POST, PUT and PATCH, null if none
+ * @param description        what the response is about
+ * @param outputInstructions what to extract from the response
+ */
+public record CallerAction(String method,
+                           String url,
+                           Map<String, Object> params,
+                           Map<String, Object> data,
+                           String description,
+                           String outputInstructions) {
+
+    private static final Set<String> METHODS = Set.of("GET", "POST", "PUT", "PATCH", "DELETE");
+    private static final Pattern OPERATION = Pattern.compile("Operation:\\s*(\\w+)");
+    private static final Pattern RESPONSE = Pattern.compile("(?m)^\\s*Response:");
+
+    /**
+     * Models write JSON loosely, so trailing commas, single quotes and unquoted names are accepted.
+     */
+    private static final ObjectMapper MAPPER = JsonMapper.builder()
+            .enable(JsonReadFeature.ALLOW_TRAILING_COMMA)
+            .enable(JsonReadFeature.ALLOW_SINGLE_QUOTES)
+            .enable(JsonReadFeature.ALLOW_UNQUOTED_FIELD_NAMES)
+            .build();
+
+    /**
+     * @return the same action with other query parameters
+     */
+    public CallerAction withParams(Map<String, Object> params) {
+        return new CallerAction(method, url, params, data, description, outputInstructions);
+    }
+
+    /**
+     * Finds the last action of a conversation that has not been answered with a {@code Response:} yet.
+     *
+     * @param conversation the caller conversation so far
+     * @return the pending action, or empty if there is none or its input is not a JSON object with a url
+     */
+    public static Optional<CallerAction> parsePending(String conversation) {
+        Matcher matcher = OPERATION.matcher(conversation);
+        MatchResult last = null;
+        while (matcher.find()) {
+            last = matcher.toMatchResult();
+        }
+        if (last == null) {
+            return Optional.empty();
+        }
+        String method = last.group(1).toUpperCase(Locale.ROOT);
+        if (!METHODS.contains(method)) {
+            return Optional.empty();
+        }
+        String rest = conversation.substring(last.end());
+        if (RESPONSE.matcher(rest).find()) {
+            return Optional.empty();
+        }
+        int input = rest.indexOf("Input:");
+        if (input < 0) {
+            return Optional.empty();
+        }
+        return jsonObject(rest, rest.indexOf('{', input)).flatMap(json -> toAction(method, json));
+    }
+
+    /**
+     * Cuts a model completion before the first {@code Response:} line. The response to an action comes from
+     * the API, so anything the model wrote from there on is made up.
+     */
+    public static String truncateAtResponse(String completion) {
+        Matcher matcher = RESPONSE.matcher(completion);
+        return matcher.find() ? completion.substring(0, matcher.start()) : completion;
+    }
+
+    private static Optional<CallerAction> toAction(String method, JsonNode json) {
+        String url = text(json, "url");
+        if (url == null) {
+            return Optional.empty();
+        }
+        Map<String, Object> data = json.path("data").isObject() ? toMap(json.get("data")) : null;
+        return Optional.of(new CallerAction(method, url, toMap(json.path("params")), data,
+                text(json, "description"), text(json, "output_instructions")));
+    }
+
+    /**
+     * Reads the balanced JSON object starting at {@code start}, ignoring braces inside strings.
+     */
+    private static Optional<JsonNode> jsonObject(String text, int start) {
+        if (start < 0) {
+            return Optional.empty();
+        }
+        int depth = 0;
+        boolean inString = false;
+        char quote = 0;
+        for (int i = start; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (inString) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == quote) {
+                    inString = false;
+                }
+            } else if (c == '"' || c == '\'') {
+                inString = true;
+                quote = c;
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                try {
+                    return Optional.of(MAPPER.readTree(text.substring(start, i + 1)));
+                } catch (JsonProcessingException e) {
+                    return Optional.empty();
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static Map<String, Object> toMap(JsonNode node) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        if (node.isObject()) {
+            node.fields().forEachRemaining(field -> map.put(field.getKey(), MAPPER.convertValue(field.getValue(), Object.class)));
+        }
+        return map;
+    }
+
+    private static String text(JsonNode json, String field) {
+        JsonNode value = json.get(field);
+        return value == null || value.isNull() || value.asText().isBlank() ? null : value.asText().trim();
+    }
+}
@@ -0,0 +1,375 @@
+package com.gonnect.apiaide.apiexecution;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.gonnect.apiaide.apiselector.EndpointTransitionModel;
+import com.gonnect.apiaide.oas.ReducedOpenAPISpec;
+import com.gonnect.apiaide.request.Deadline;
+import com.gonnect.apiaide.request.RequestWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@code HttpExecutionEngine} sends the requests the caller asks for to the real API and returns the real
+ * responses, instead of letting the model imagine them.
+ * <p>
+ * Requests are bound to the spec by a {@link RequestBinder} and sent through the pooled {@link RequestWrapper}.
+ * When the {@link EndpointTransitionModel} is confident about the next call and it is a GET whose only path
+ * variable can be taken from the response, e.g. the id of the first search result, that request is sent in
+ * the background; if the caller then asks for the same URI, the prefetched response is used.
+ * <p>
+ * An action over a list of ids is fanned out to one request per id. Besides the fan-out concurrency, the
+ * wrapper's per-host connection pool bounds how many of them reach the same host at once. An action asking for
+ * {@code max_results} from a paged list endpoint gets that many results, read lazily across as many pages as
+ * needed through {@link PagedResults}.
+ */
+@Component
+public class HttpExecutionEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(HttpExecutionEngine.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Pattern PATH_VARIABLE = Pattern.compile("\\{[^}]+}");
+    private static final int MAX_PREFETCHED = 16;
+    private static final String MAX_RESULTS = "max_results";
+
+    private final RequestWrapper requestWrapper;
+    private final EndpointTransitionModel transitions;
+    private final boolean prefetch;
+    private final double prefetchMinProbability;
+    private final long prefetchTtlMillis;
+    private final int maxFanOut;
+    private final int fanOutConcurrency;
+    private final boolean pagination;
+    private final int maxPages;
+
+    private final Map<URI, Prefetch> prefetched = new ConcurrentHashMap<>();
+    private volatile SpecBinder specBinder;
+
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder fanOuts = new LongAdder();
+    private final LongAdder pagedReads = new LongAdder();
+    private final LongAdder prefetches = new LongAdder();
+    private final LongAdder prefetchHits = new LongAdder();
+
+    public HttpExecutionEngine(RequestWrapper requestWrapper,
+                               EndpointTransitionModel transitions,
+                               @Value("${apiaide.caller.prefetch.enabled:false}") boolean prefetch,
+                               @Value("${apiaide.caller.prefetch.min-probability:0.6}") double prefetchMinProbability,
+                               @Value("${apiaide.caller.prefetch.ttl-ms:30000}") long prefetchTtlMillis,
+                               @Value("${apiaide.caller.fan-out.max-items:50}") int maxFanOut,
+                               @Value("${apiaide.caller.fan-out.max-concurrency:8}") int fanOutConcurrency,
+                               @Value("${apiaide.caller.pagination.enabled:false}") boolean pagination,
+                               @Value("${apiaide.caller.pagination.max-pages:10}") int maxPages) {
+        this.requestWrapper = requestWrapper;
+        this.transitions = transitions;
+        this.prefetch = prefetch;
+        this.prefetchMinProbability = prefetchMinProbability;
+        this.prefetchTtlMillis = prefetchTtlMillis;
+        this.maxFanOut = maxFanOut;
+        this.fanOutConcurrency = fanOutConcurrency;
+        this.pagination = pagination;
+        this.maxPages = maxPages;
+    }
+
+    /**
+     * Executes an action of the caller. An action that binds a path variable to a list of values is fanned out:
+     * the requests run concurrently, at most {@code fanOutConcurrency} at a time, and their responses are
+     * returned together as one JSON array in the order of the values.
+     *
+     * @param action   the action
+     * @param apiSpec  the spec the action was planned against
+     * @param scenario the API scenario, used to predict the next call
+     * @param deadline the deadline of the query the action is part of, null for none
+     * @return the response; binding problems are returned as a 400 response and transport failures as a 503
+     * response, so the caller can correct itself or explain the failure
+     */
+    public ExecutionResponse execute(CallerAction action, ReducedOpenAPISpec apiSpec, String scenario, Deadline deadline) {
+        RequestBinder binder = binderFor(apiSpec);
+        Object maxResults = action.params().get(MAX_RESULTS);
+        CallerAction call = action;
+        if (maxResults != null) {
+            Map<String, Object> params = new LinkedHashMap<>(action.params());
+            params.remove(MAX_RESULTS);
+            call = action.withParams(params);
+        }
+        List<RequestBinder.BoundRequest> requests;
+        try {
+            requests = binder.bindAll(call);
+        } catch (IllegalArgumentException e) {
+            log.debug("Could not bind {} {}: {}", action.method(), action.url(), e.getMessage());
+            return new ExecutionResponse(null, null, 400, e.getMessage(), 1);
+        }
+        if (requests.size() > maxFanOut) {
+            return new ExecutionResponse(requests.get(0).endpoint(), null, 400,
+                    "At most " + maxFanOut + " values can be requested at once, got " + requests.size(), 1);
+        }
+        if (requests.size() > 1) {
+            return fanOut(requests, deadline);
+        }
+
+        RequestBinder.BoundRequest request = requests.get(0);
+        int limit = limit(maxResults);
+        if (pagination && limit > 0 && request.method().equals("GET")) {
+            return paged(binder, call, request, limit, deadline);
+        }
+        ExecutionResponse result = requestWrapper.join(send(request, deadline));
+        if (prefetch && result.isSuccessful()) {
+            prefetchNext(binder, scenario, request.endpoint(), result.body());
+        }
+        return result;
+    }
+
+    private ExecutionResponse fanOut(List<RequestBinder.BoundRequest> requests, Deadline deadline) {
+        fanOuts.increment();
+        log.debug("Fanning out {} to {} requests", requests.get(0).endpoint(), requests.size());
+        List<ExecutionResponse> responses = requestWrapper.join(Flux.fromIterable(requests)
+                .flatMapSequential(request -> send(request, deadline), fanOutConcurrency)
+                .collectList());
+
+        ArrayNode aggregated = MAPPER.createArrayNode();
+        for (ExecutionResponse response : responses) {
+            aggregated.add(response.isSuccessful() ? json(response.body()) : MAPPER.createObjectNode()
+                    .put("error", response.status())
+                    .put("message", response.body()));
+        }
+        ExecutionResponse first = responses.get(0);
+        boolean anySuccessful = responses.stream().anyMatch(ExecutionResponse::isSuccessful);
+        return new ExecutionResponse(first.endpoint(), first.uri(), anySuccessful ? 200 : first.status(),
+                aggregated.toString(), responses.size());
+    }
+
+    /**
+     * Reads {@code limit} results of a paged list endpoint, starting with the page the action asks for. The
+     * response has the form of that page, with the results of all pages read.
+     */
+    private ExecutionResponse paged(RequestBinder binder, CallerAction action, RequestBinder.BoundRequest request,
+                                   int limit, Deadline deadline) {
+        ExecutionResponse first = requestWrapper.join(send(request, deadline));
+        JsonNode body = first.isSuccessful() ? json(first.body()) : null;
+        Optional<PagedResults.Page> page = body == null ? Optional.empty() : PagedResults.Page.parse(body);
+        if (page.isEmpty() || !(body instanceof ObjectNode firstPage)) {
+            return first;
+        }
+
+        List<JsonNode> results = page.get().results();
+        if (results.size() >= limit) {
+            results = results.subList(0, limit);
+        } else {
+            pagedReads.increment();
+            results = requestWrapper.join(PagedResults.results(page.get(), number -> fetchPage(binder, action, number, deadline), maxPages)
+                    .take(limit)
+                    .collectList());
+        }
+        ObjectNode aggregated = firstPage.deepCopy();
+        aggregated.set("results", MAPPER.createArrayNode().addAll(results));
+        return new ExecutionResponse(first.endpoint(), first.uri(), first.status(), aggregated.toString(), 1);
+    }
+
+    /**
+     * Fetches a page of a paged action. A failed page is returned empty, which ends the results there.
+     */
+    private Mono<PagedResults.Page> fetchPage(RequestBinder binder, CallerAction action, int number, Deadline deadline) {
+        Map<String, Object> params = new LinkedHashMap<>(action.params());
+        params.put("page", number);
+        return Mono.fromCallable(() -> binder.bind(action.withParams(params)))
+                .flatMap(request -> send(request, deadline))
+                .map(response -> response.isSuccessful()
+                        ? PagedResults.Page.parse(json(response.body()))
+                        : Optional.<PagedResults.Page>empty())
+                .map(page -> page.orElse(new PagedResults.Page(number, number, List.of())));
+    }
+
+    private static int limit(Object maxResults) {
+        if (maxResults == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(String.valueOf(maxResults).trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Sends a request, using its prefetched response if there is one. Transport failures become 503 responses.
+     */
+    private Mono<ExecutionResponse> send(RequestBinder.BoundRequest request, Deadline deadline) {
+        requestCount.increment();
+        return exchange(request, deadline)
+                .map(response -> new ExecutionResponse(request.endpoint(), request.uri(), response.getStatusCode().value(),
+                        response.getBody() == null ? "" : response.getBody(), 1))
+                .doOnNext(response -> log.debug("{} {} -> {}", request.method(), request.uri(), response.status()))
+                .onErrorResume(e -> {
+                    log.warn("{} {} failed: {}", request.method(), request.uri(), e.getMessage());
+                    return Mono.just(new ExecutionResponse(request.endpoint(), request.uri(), 503,
+                            "Request failed: " + e.getMessage(), 1));
+                });
+    }
+
+    private Mono<ResponseEntity<String>> exchange(RequestBinder.BoundRequest request, Deadline deadline) {
+        Mono<ResponseEntity<String>> live = Mono.defer(() -> requestWrapper.exchange(HttpMethod.valueOf(request.method()),
+                request.uri(), request.body(), request.endpoint(), deadline));
+        if (!request.method().equals("GET")) {
+            return live;
+        }
+        Prefetch entry = prefetched.remove(request.uri());
+        if (entry == null || entry.isExpired(prefetchTtlMillis)) {
+            return live;
+        }
+        return Mono.fromFuture(entry.response())
+                .doOnNext(response -> prefetchHits.increment())
+                // A failed prefetch is retried as a regular request
+                .onErrorResume(e -> live);
+    }
+
+    private static JsonNode json(String body) {
+        try {
+            return MAPPER.readTree(body);
+        } catch (Exception e) {
+            return MAPPER.getNodeFactory().textNode(body);
+        }
+    }
+
+    private void prefetchNext(RequestBinder binder, String scenario, String endpoint, String body) {
+        prefetched.values().removeIf(entry -> entry.isExpired(prefetchTtlMillis));
+        if (prefetched.size() >= MAX_PREFETCHED) {
+            return;
+        }
+        transitions.predictNext(scenario, endpoint, prefetchMinProbability)
+                .filter(next -> next.startsWith("GET "))
+                .flatMap(next -> predictedCall(next, body))
+                .ifPresent(call -> {
+                    try {
+                        RequestBinder.BoundRequest next = binder.bind(call);
+                        prefetched.computeIfAbsent(next.uri(), uri -> {
+                            prefetches.increment();
+                            log.debug("Prefetching {}", uri);
+                            return new Prefetch(requestWrapper.exchange(HttpMethod.GET, uri, null).toFuture(),
+                                    System.currentTimeMillis());
+                        });
+                    } catch (IllegalArgumentException e) {
+                        log.debug("Could not prefetch {}: {}", call.url(), e.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * Builds the predicted call by binding its single path variable to the id of the response, or of its first
+     * result. Endpoints without path variables usually need query parameters only the caller knows, so they
+     * are not predicted.
+     */
+    static Optional<CallerAction> predictedCall(String endpoint, String responseBody) {
+        String path = endpoint.split("\\s+", 2)[1];
+        if (PATH_VARIABLE.matcher(path).results().count() != 1) {
+            return Optional.empty();
+        }
+        return firstId(responseBody)
+                .map(id -> new CallerAction("GET", PATH_VARIABLE.matcher(path).replaceFirst(Matcher.quoteReplacement(id)), Map.of(), null, null, null));
+    }
+
+    private static Optional<String> firstId(String body) {
+        try {
+            JsonNode json = MAPPER.readTree(body);
+            JsonNode results = json.path("results");
+            JsonNode id = results.isArray() && !results.isEmpty() ? results.get(0).path("id") : json.path("id");
+            return id.isValueNode() ? Optional.of(id.asText()) : Optional.empty();
+        } catch (Exception e) {
+            return Optional.empty();
+        }
+    }
+
+    private RequestBinder binderFor(ReducedOpenAPISpec apiSpec) {
+        SpecBinder current = specBinder;
+        if (current == null || current.spec() != apiSpec) {
+            List<String> endpoints = apiSpec.getEndpoints().stream()
+                    .map(endpoint -> String.valueOf(endpoint.get("name")))
+                    .toList();
+            current = new SpecBinder(apiSpec, new RequestBinder(serverUrl(apiSpec), endpoints));
+            specBinder = current;
+        }
+        return current.binder();
+    }
+
+    private static String serverUrl(ReducedOpenAPISpec apiSpec) {
+        List<Map<String, Object>> servers = apiSpec.getServers();
+        if (servers == null || servers.isEmpty() || servers.get(0).get("url") == null) {
+            throw new IllegalStateException("The API spec declares no server to send requests to");
+        }
+        return String.valueOf(servers.get(0).get("url"));
+    }
+
+    /**
+     * @return whether {@code max_results} is read across pages, so the caller may be told to ask for it
+     */
+    public boolean isPaginationEnabled() {
+        return pagination;
+    }
+
+    public long getRequests() {
+        return requestCount.sum();
+    }
+
+    public long getFanOuts() {
+        return fanOuts.sum();
+    }
+
+    public long getPagedReads() {
+        return pagedReads.sum();
+    }
+
+    public long getPrefetches() {
+        return prefetches.sum();
+    }
+
+    public long getPrefetchHits() {
+        return prefetchHits.sum();
+    }
+
+    /**
+     * The binder built for the most recently used spec; rebuilt only when a different spec comes in.
+     */
+    private record SpecBinder(ReducedOpenAPISpec spec, RequestBinder binder) {
+    }
+
+    private record Prefetch(CompletableFuture<ResponseEntity<String>> response, long createdAt) {
+
+        boolean isExpired(long ttlMillis) {
+            return System.currentTimeMillis() - createdAt > ttlMillis;
+        }
+    }
+
+    /**
+     * The outcome of an action.
+     *
+     * @param endpoint the spec endpoint called, null if the action could not be bound
+     * @param uri      the URI called, null if the action could not be bound
+     * @param status   the HTTP status code
+     * @param body     the response body, or the reason the action could not be sent
+     * @param items    number of requests whose responses the body aggregates, 1 unless the action fanned out
+     */
+    public record ExecutionResponse(String endpoint, URI uri, int status, String body, int items) {
+
+        public boolean isSuccessful() {
+            return status >= 200 && status < 300;
+        }
+    }
+}
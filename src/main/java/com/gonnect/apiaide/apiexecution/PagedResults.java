@@ -0,0 +1,78 @@
+package com.gonnect.apiaide.apiexecution;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.IntFunction;
+
+/**
+ * {@code PagedResults} reads the results of a paged list endpoint, such as TMDB's search and discover endpoints,
+ * as one lazy stream across pages.
+ * <p>
+ * A page is requested only once the results of the page before it are being read, so at most one page is
+ * fetched ahead of the reader, and cancelling the stream, e.g. by taking the first N results, cancels the page
+ * being fetched. Pages nobody reads are never downloaded.
+ */
+public final class PagedResults {
+
+    private PagedResults() {
+    }
+
+    /**
+     * Streams the results of the first page and then of the pages after it.
+     *
+     * @param first    the first page read
+     * @param fetch    fetches a page by number; an empty page ends the stream
+     * @param maxPages the most pages to read, the first included
+     * @return the results, in order
+     */
+    public static Flux<JsonNode> results(Page first, IntFunction<Mono<Page>> fetch, int maxPages) {
+        int last = Math.min(first.totalPages(), first.page() + maxPages - 1);
+        return pagesFrom(Mono.just(first), first.page() + 1, last, fetch);
+    }
+
+    private static Flux<JsonNode> pagesFrom(Mono<Page> current, int next, int last, IntFunction<Mono<Page>> fetch) {
+        return current.flatMapMany(page -> {
+            if (page.results().isEmpty() || next > last) {
+                return Flux.fromIterable(page.results());
+            }
+            // Fetch the next page while this one is read
+            Sinks.One<Page> ahead = Sinks.one();
+            Disposable fetching = fetch.apply(next).subscribe(ahead::tryEmitValue, ahead::tryEmitError, ahead::tryEmitEmpty);
+            return Flux.fromIterable(page.results())
+                    .concatWith(Flux.defer(() -> pagesFrom(ahead.asMono(), next + 1, last, fetch)))
+                    .doOnCancel(fetching::dispose);
+        });
+    }
+
+    /**
+     * A page of results.
+     *
+     * @param page       the number of the page, starting at 1
+     * @param totalPages the number of pages
+     * @param results    the results on the page
+     */
+    public record Page(int page, int totalPages, List<JsonNode> results) {
+
+        /**
+         * Reads a page from a response of the form {@code {"page": 1, "total_pages": 5, "results": [...]}}.
+         *
+         * @return the page, empty if the response is not a page of results
+         */
+        public static Optional<Page> parse(JsonNode response) {
+            JsonNode results = response.path("results");
+            if (!response.path("page").canConvertToInt() || !response.path("total_pages").canConvertToInt() || !results.isArray()) {
+                return Optional.empty();
+            }
+            List<JsonNode> items = new ArrayList<>(results.size());
+            results.forEach(items::add);
+            return Optional.of(new Page(response.path("page").asInt(), response.path("total_pages").asInt(), items));
+        }
+    }
+}
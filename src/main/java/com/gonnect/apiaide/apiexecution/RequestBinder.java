@@ -0,0 +1,195 @@
+package com.gonnect.apiaide.apiexecution;
+
+import com.gonnect.apiaide.apiselector.EndpointCorrector;
+
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * {@code RequestBinder} turns a {@link CallerAction} into a concrete request against the server of a spec.
+ * <p>
+ * The path of the action's URL is matched against the spec's endpoints, so near misses are repaired the same
+ * way the selector repairs them. Path variables keep the values written in the URL; variables the model left
+ * as placeholders are filled from query parameters of the same name. Query parameters come from the URL and
+ * the action's {@code params}, and the body from its {@code data}. Hosts the model made up are replaced by
+ * the spec's server. A list of values for a path variable fans the action out to one request per value.
+ */
+public class RequestBinder {
+
+    private static final Pattern PATH_VARIABLE = Pattern.compile("\\{([^}]+)}");
+    private static final Pattern SCHEME_AND_HOST = Pattern.compile("^[a-zA-Z][a-zA-Z0-9+.-]*://[^/?#]*");
+    private static final Set<String> BODY_METHODS = Set.of("POST", "PUT", "PATCH");
+
+    private final String serverUrl;
+    private final String basePath;
+    private final EndpointCorrector corrector;
+
+    /**
+     * @param serverUrl the base URL of the API, e.g. "https://api.themoviedb.org/3"
+     * @param endpoints endpoint names from the spec, "METHOD /path"
+     */
+    public RequestBinder(String serverUrl, List<String> endpoints) {
+        this.serverUrl = serverUrl.endsWith("/") ? serverUrl.substring(0, serverUrl.length() - 1) : serverUrl;
+        this.basePath = SCHEME_AND_HOST.matcher(this.serverUrl).replaceFirst("");
+        this.corrector = new EndpointCorrector(endpoints);
+    }
+
+    /**
+     * Binds an action to the spec.
+     *
+     * @param action the action
+     * @return the request to send
+     * @throws IllegalArgumentException if the URL matches no endpoint, a path variable has no value or the
+     *                                  action fans out to several requests, with a message the caller model can act on
+     */
+    public BoundRequest bind(CallerAction action) {
+        List<BoundRequest> requests = bindAll(action);
+        if (requests.size() != 1) {
+            throw new IllegalArgumentException("Expected a single request, but " + action.url() + " binds to " + requests.size());
+        }
+        return requests.get(0);
+    }
+
+    /**
+     * Binds an action that may fan out: when the value for a path variable is a list, e.g.
+     * {@code "params": {"movie_id": [603, 550]}} for {@code /movie/{movie_id}}, there is one request per value,
+     * in the order of the list.
+     *
+     * @param action the action
+     * @return the requests to send, at least one
+     * @throws IllegalArgumentException if the URL matches no endpoint, a path variable has no value or more than
+     *                                  one path variable takes a list, with a message the caller model can act on
+     */
+    public List<BoundRequest> bindAll(CallerAction action) {
+        String method = action.method().toUpperCase(Locale.ROOT);
+        String url = SCHEME_AND_HOST.matcher(action.url().trim()).replaceFirst("");
+        int queryStart = url.indexOf('?');
+        String path = relativePath(queryStart < 0 ? url : url.substring(0, queryStart));
+
+        EndpointCorrector.Correction correction = corrector.correct(method + " " + path);
+        if (!correction.isResolved()) {
+            throw new IllegalArgumentException("No endpoint matches " + method + " " + path
+                    + (correction.candidates().isEmpty() ? "" : ". The closest are: " + String.join(", ", correction.candidates())));
+        }
+
+        Map<String, Object> params = new LinkedHashMap<>();
+        if (queryStart >= 0) {
+            params.putAll(parseQuery(url.substring(queryStart + 1)));
+        }
+        params.putAll(action.params());
+        String template = correction.call().split("\\s+", 2)[1];
+        Object body = BODY_METHODS.contains(method) ? action.data() : null;
+
+        List<String> listVariables = PATH_VARIABLE.matcher(template).results()
+                .map(variable -> variable.group(1))
+                .filter(variable -> params.get(variable) instanceof Collection<?>)
+                .toList();
+        if (listVariables.isEmpty()) {
+            return List.of(build(correction.endpoint(), method, template, params, body));
+        }
+        if (listVariables.size() > 1) {
+            throw new IllegalArgumentException("Only one path parameter can take a list of values, not " + listVariables);
+        }
+        String variable = listVariables.get(0);
+        Collection<?> values = (Collection<?>) params.get(variable);
+        if (values.isEmpty()) {
+            throw new IllegalArgumentException("The list of values for path parameter " + variable + " is empty");
+        }
+        return values.stream()
+                .map(value -> {
+                    Map<String, Object> itemParams = new LinkedHashMap<>(params);
+                    itemParams.put(variable, value);
+                    return build(correction.endpoint(), method, template, itemParams, body);
+                })
+                .toList();
+    }
+
+    private BoundRequest build(String endpoint, String method, String template, Map<String, Object> params, Object body) {
+        Map<String, Object> queryParams = new LinkedHashMap<>(params);
+        String boundPath = bindPathVariables(template, queryParams);
+        String encodedPath = Pattern.compile("/").splitAsStream(boundPath)
+                .map(RequestBinder::encode)
+                .collect(Collectors.joining("/"));
+        String query = queryParams.entrySet().stream()
+                .map(param -> encode(param.getKey()) + "=" + encode(queryValue(param.getValue())))
+                .collect(Collectors.joining("&"));
+
+        URI uri = URI.create(serverUrl + encodedPath + (query.isEmpty() ? "" : "?" + query));
+        return new BoundRequest(endpoint, method, uri, body);
+    }
+
+    /**
+     * Query parameters with several values are sent comma separated, the common form for ids and filters.
+     */
+    private static String queryValue(Object value) {
+        return value instanceof Collection<?> values
+                ? values.stream().map(String::valueOf).collect(Collectors.joining(","))
+                : String.valueOf(value);
+    }
+
+    /**
+     * Strips the server's base path, which absolute URLs written by the model include.
+     */
+    private String relativePath(String path) {
+        if (!basePath.isEmpty() && (path.startsWith(basePath + "/") || path.equals(basePath))) {
+            path = path.substring(basePath.length());
+        }
+        return path.startsWith("/") ? path : "/" + path;
+    }
+
+    private static Map<String, Object> parseQuery(String query) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        for (String pair : query.split("&")) {
+            if (!pair.isBlank()) {
+                int separator = pair.indexOf('=');
+                String name = separator < 0 ? pair : pair.substring(0, separator);
+                String value = separator < 0 ? "" : pair.substring(separator + 1);
+                params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    /**
+     * Replaces the placeholders left in the path with parameters of the same name, removing them from the query.
+     */
+    private static String bindPathVariables(String path, Map<String, Object> params) {
+        Matcher matcher = PATH_VARIABLE.matcher(path);
+        StringBuilder bound = new StringBuilder();
+        while (matcher.find()) {
+            Object value = params.remove(matcher.group(1));
+            if (value == null || String.valueOf(value).isBlank()) {
+                throw new IllegalArgumentException("Missing value for path parameter " + matcher.group(1) + " of " + path);
+            }
+            matcher.appendReplacement(bound, Matcher.quoteReplacement(String.valueOf(value)));
+        }
+        matcher.appendTail(bound);
+        return bound.toString();
+    }
+
+    /**
+     * A request ready to be sent.
+     *
+     * @param endpoint the spec endpoint it calls, e.g. "GET /person/{person_id}/movie_credits"
+     * @param method   the HTTP method, upper case
+     * @param uri      the absolute, encoded URI
+     * @param body     the request body, null if none
+     */
+    public record BoundRequest(String endpoint, String method, URI uri, Object body) {
+    }
+}
@@ -5,10 +5,14 @@ import com.gonnect.apiaide.oas.ReducedOpenAPISpec;
 import dev.langchain4j.chain.ConversationalRetrievalChain;
 import dev.langchain4j.model.input.Prompt;
 import dev.langchain4j.model.input.PromptTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -21,26 +25,41 @@ import static java.util.Map.of;
 @Service
 public class APISelector {
 
+    private static final Logger log = LoggerFactory.getLogger(APISelector.class);
+    private static final String NO_API_CALL = "No API call needed";
+    // Formatted outputs read "Step API calling 1:: ...", see formatOutput
+    private static final Pattern API_CALLING = Pattern.compile("API calling \\d+:+ (.*)");
+
     private final ConversationalRetrievalChain chain;
+    private final EndpointClassifier classifier;
+    private final EndpointTransitionModel transitions;
     private final Map<String, String> iclExamples;
+    private final int maxRetries;
+
+    private volatile SpecCorrector specCorrector;
 
-    public APISelector(ConversationalRetrievalChain chain) {
+    public APISelector(ConversationalRetrievalChain chain,
+                       EndpointClassifier classifier,
+                       EndpointTransitionModel transitions,
+                       @Value("${apiaide.selector.max-retries:2}") int maxRetries) {
         this.chain = chain;
+        this.classifier = classifier;
+        this.transitions = transitions;
         this.iclExamples = Map.copyOf(ICL_EXAMPLES);
+        this.maxRetries = maxRetries;
     }
 
     public String run(APISelectorRequestInput input, String scenario) {
         // 1. Construct scratchpad
         String scratchpad = constructScratchpad(input.getHistory());
-        // 2. Build prompt with scratchpad
-        Prompt prompt = buildPrompt(input, scenario);
-        // 3. Execute prompt
-        String output = chain.execute(prompt.text());
-
-        while (!apiIsValid(input, output)) {
-            // 4. Validate output
-            String invalidMessage = output + "\nInvalid API. Please try again.";
-            output = chain.execute(invalidMessage);
+        // 2. Take the fast path when the endpoint is obvious from the plan step
+        String output = classifier.classify(input.getPlan(), input.getApiSpec()).orElse(null);
+        if (output == null) {
+            // 3. Build prompt with scratchpad and execute it
+            output = chain.execute(buildPrompt(input, scenario));
+
+            // 4. Validate output, correcting near misses locally and retrying a bounded number of times
+            output = validate(input, output);
         }
 
         // 5. Add latest interaction to history
@@ -54,12 +73,30 @@ public class APISelector {
         return formatOutput(output);
     }
 
-    private String generateEndpointsInfo(ReducedOpenAPISpec reducedOpenAPISpec) {
+    /**
+     * Resolves the endpoint a selector output calls.
+     *
+     * @param apiPlan the output of {@link #run(APISelectorRequestInput, String)}
+     * @param apiSpec the spec the selection was made from
+     * @return the endpoint name, e.g. "GET /person/{person_id}/movie_credits"
+     */
+    public Optional<String> selectedEndpoint(String apiPlan, ReducedOpenAPISpec apiSpec) {
+        // The output was validated already; a classified call may still hold path variables for the caller to fill
+        return OpenAPISpecUtil.builder()
+                .endpoints(apiSpec.getEndpoints())
+                .build()
+                .resolveEndpoint(parseAPIPlan(apiPlan));
+    }
+
+    /**
+     * Lists the endpoints for the prompt, the ones most likely to follow the previous call first.
+     */
+    private String generateEndpointsInfo(ReducedOpenAPISpec reducedOpenAPISpec, String scenario, String previousEndpoint) {
         OpenAPISpecUtil openAPISpec = OpenAPISpecUtil.builder()
                 .endpoints(reducedOpenAPISpec.getEndpoints())
                 .build();
 
-        return openAPISpec.getEndpoints().stream()
+        return transitions.rank(scenario, previousEndpoint, openAPISpec.getEndpoints()).stream()
                 .map(e -> e + " " + openAPISpec.getOperation(e))
                 .collect(Collectors.joining(" "));
     }
@@ -69,23 +106,29 @@ public class APISelector {
         return iclExamples.getOrDefault(scenario, "");
     }
 
-    private Prompt buildPrompt(APISelectorRequestInput input, String scenario) {
-        String endpoints = generateEndpointsInfo(input.getApiSpec());
+    String buildPrompt(APISelectorRequestInput input, String scenario) {
+        String endpoints = generateEndpointsInfo(input.getApiSpec(), scenario, input.getPreviousEndpoint());
         String background = input.getBackground() == null ? "" : input.getBackground();
         String plan = input.getPlan() == null ? "" : input.getPlan();
-        String iclExamples = generateICLExamples(scenario);
-        PromptTemplate template = from(API_SELECTOR_PROMPT);
-
-        return template.apply(of(
-                "endpoints", endpoints,
-                "background", background,
-                "plan", plan,
-                "agent_scratchpad", "",
-                "icl_examples", iclExamples,
+        return renderPrompt(endpoints, background, plan, generateICLExamples(scenario));
+    }
+
+    /**
+     * Renders the selector prompt. {@link PromptTemplate} only fills {@code {{name}}} variables, which the prompt
+     * uses for the example path variables, so its own single-brace placeholders are replaced explicitly.
+     */
+    static String renderPrompt(String endpoints, String background, String plan, String iclExamples) {
+        Prompt prompt = from(API_SELECTOR_PROMPT).apply(of(
+                "\" and \"", "",
                 "user_id", "1234",
-                "person_id", "5678",
-                "\" and \"", ""
+                "person_id", "5678"
         ));
+        return prompt.text()
+                .replace("{endpoints}", endpoints)
+                .replace("{icl_examples}", iclExamples)
+                .replace("{background}", background)
+                .replace("{plan}", plan)
+                .replace("{agent_scratchpad}", "");
     }
 
     private String constructScratchpad(List<HistoryTuple> history) {
@@ -103,19 +146,78 @@ public class APISelector {
     }
 
 
-    private boolean apiIsValid(APISelectorRequestInput apiSpec, String apiPlan) {
-        return OpenAPISpecUtil.builder()
-                .endpoints(apiSpec.getApiSpec().getEndpoints())
-                .build()
-                .getOperation(parseAPIPlan(apiPlan)) != null;
+    /**
+     * Checks the selected API call against the spec. Near misses are corrected in place; otherwise the closest
+     * endpoints are sent back to the model, at most {@code maxRetries} times.
+     *
+     * @throws IllegalStateException if no valid API call was produced within the retries
+     */
+    private String validate(APISelectorRequestInput input, String output) {
+        EndpointCorrector endpointCorrector = correctorFor(input.getApiSpec());
+        for (int attempt = 0; ; attempt++) {
+            if (output.contains(NO_API_CALL)) {
+                return output;
+            }
+            String apiCall = parseAPIPlan(output);
+            EndpointCorrector.Correction correction = endpointCorrector.correct(apiCall);
+            // Without a value for every path variable the call cannot be made, so the model has to choose again
+            if (correction.isResolved() && correction.isBound()) {
+                classifier.learn(input.getPlan(), correction.endpoint());
+                if (correction.corrected()) {
+                    log.debug("Corrected API call {} to {}", apiCall, correction.call());
+                    output = replaceAPICall(output, correction.call());
+                }
+                return output;
+            }
+            if (attempt >= maxRetries) {
+                throw new IllegalStateException("No valid API call selected after " + (attempt + 1)
+                        + " attempts, last proposal: " + apiCall);
+            }
+            List<String> candidates = correction.isResolved() ? List.of(correction.endpoint()) : correction.candidates();
+            String retryMessage = candidates.isEmpty()
+                    ? output + "\nInvalid API. Please try again."
+                    : output + "\nInvalid API. The closest APIs are: " + String.join(", ", candidates)
+                    + ". Please try again, with the value of every path variable filled in.";
+            output = chain.execute(retryMessage);
+        }
+    }
+
+    private EndpointCorrector correctorFor(ReducedOpenAPISpec apiSpec) {
+        SpecCorrector current = specCorrector;
+        if (current == null || current.spec() != apiSpec) {
+            current = new SpecCorrector(apiSpec, new EndpointCorrector(OpenAPISpecUtil.builder()
+                    .endpoints(apiSpec.getEndpoints())
+                    .build()
+                    .getEndpoints()));
+            specCorrector = current;
+        }
+        return current.corrector();
+    }
+
+    /**
+     * The corrector built for the most recently used spec; rebuilt only when a different spec comes in.
+     */
+    private record SpecCorrector(ReducedOpenAPISpec spec, EndpointCorrector corrector) {
     }
 
     private String parseAPIPlan(String text) {
-        Pattern pattern = Pattern.compile("API calling \\d+: (.*)");
-        Matcher matcher = pattern.matcher(text);
+        Matcher matcher = API_CALLING.matcher(text);
         return matcher.find() ? matcher.group(1) : "";
     }
 
+    /**
+     * Rebuilds the API calling line of the output with a corrected method and path, keeping its description.
+     */
+    private static String replaceAPICall(String output, String call) {
+        Matcher matcher = API_CALLING.matcher(output);
+        if (!matcher.find()) {
+            return output;
+        }
+        String[] proposed = matcher.group(1).trim().split("\\s+", 3);
+        String line = proposed.length > 2 ? call + " " + proposed[2] : call;
+        return output.substring(0, matcher.start(1)) + line + output.substring(matcher.end(1));
+    }
+
     private String formatOutput(String plan) {
         plan = plan.replaceAll("API calling \\d+:", "\n\nStep $0:");
         plan = plan.replaceAll("\\{\\{(.*?)\\}\\}", "[[$1]]");
@@ -25,4 +25,9 @@ public class APISelectorRequestInput {
 
     private HistoryTuple lastHistory;
 
+    /**
+     * Endpoint called in the previous step, null for the first step.
+     */
+    private String previousEndpoint;
+
 }
\ No newline at end of file
@@ -0,0 +1,232 @@
+package com.gonnect.apiaide.apiselector;
+
+import com.gonnect.apiaide.embedding.HnswEmbeddingStore;
+import com.gonnect.apiaide.oas.ReducedOpenAPISpec;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * {@code EndpointClassifier} selects the endpoint for a plan step without a model call when the choice is obvious.
+ * <p>
+ * The plan step is embedded once and compared against two indexes:
+ * <ul>
+ *     <li>plan steps for which the LLM selector previously chose a valid endpoint, learned as the application runs,</li>
+ *     <li>the endpoints of the spec, embedded from their name and description.</li>
+ * </ul>
+ * A learned step that is at least {@code learnedMinScore} similar decides, unless an equally close step was
+ * mapped to a different endpoint. Otherwise the best endpoint description decides when it scores at least
+ * {@code descriptionMinScore} and leads the runner-up by {@code margin}. Scores are relevance scores in [0, 1],
+ * as returned by the embedding store.
+ * <p>
+ * Hits are formatted the way the LLM selector answers, so callers cannot tell the difference.
+ */
+@Component
+public class EndpointClassifier {
+
+    private static final Logger log = LoggerFactory.getLogger(EndpointClassifier.class);
+    private static final int LEARNED_NEIGHBOURS = 5;
+    private static final double DUPLICATE_SCORE = 0.995;
+    private static final Pattern PATH_VARIABLE = Pattern.compile("\\{[^}]+}");
+    private static final Pattern ID = Pattern.compile("\\((\\d+)\\)|\\b(\\d{3,})\\b");
+    private static final Pattern YEAR = Pattern.compile("(1[89]|20)\\d{2}");
+    private static final Pattern COUNT_BEFORE = Pattern.compile("(?i)\\b(top|first|last|latest|next|up to|at least|at most)\\s+$");
+    private static final Pattern COUNT_AFTER = Pattern.compile(
+            "(?i)^\\s+(results|items|entries|pages|movies|shows|episodes|people|songs|tracks|albums|artists)\\b");
+
+    private final EmbeddingModel embeddingModel;
+    private final boolean enabled;
+    private final double learnedMinScore;
+    private final double descriptionMinScore;
+    private final double margin;
+
+    private final HnswEmbeddingStore<String> learned = new HnswEmbeddingStore<>();
+    private volatile SpecIndex specIndex;
+
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder learnedHits = new LongAdder();
+    private final LongAdder descriptionHits = new LongAdder();
+
+    public EndpointClassifier(EmbeddingModel embeddingModel,
+                              @Value("${apiaide.selector.classifier.enabled:false}") boolean enabled,
+                              @Value("${apiaide.selector.classifier.learned-min-score:0.95}") double learnedMinScore,
+                              @Value("${apiaide.selector.classifier.description-min-score:0.85}") double descriptionMinScore,
+                              @Value("${apiaide.selector.classifier.margin:0.03}") double margin) {
+        this.embeddingModel = embeddingModel;
+        this.enabled = enabled;
+        this.learnedMinScore = learnedMinScore;
+        this.descriptionMinScore = descriptionMinScore;
+        this.margin = margin;
+    }
+
+    /**
+     * Selects the API call for a plan step if the classifier is confident.
+     *
+     * @param plan    the plan step
+     * @param apiSpec the spec to select from
+     * @return the API call in the selector's output format, e.g. "API calling 1: GET /search/person to ...",
+     * or empty when the LLM selector should decide
+     */
+    public Optional<String> classify(String plan, ReducedOpenAPISpec apiSpec) {
+        if (!enabled || plan == null || plan.isBlank()) {
+            return Optional.empty();
+        }
+        attempts.increment();
+        SpecIndex index = indexFor(apiSpec);
+        Embedding embedding = embeddingModel.embed(plan).content();
+
+        Optional<String> endpoint = fromLearned(embedding, index.names());
+        if (endpoint.isPresent()) {
+            learnedHits.increment();
+        } else {
+            endpoint = fromDescriptions(embedding, index);
+            endpoint.ifPresent(ignored -> descriptionHits.increment());
+        }
+
+        endpoint.ifPresent(name -> log.debug("Classified plan step '{}' as {}", plan, name));
+        return endpoint.map(name -> "API calling 1: " + bind(name, plan) + " to " + plan.trim());
+    }
+
+    /**
+     * Remembers the endpoint the LLM selector chose for a plan step.
+     *
+     * @param plan     the plan step
+     * @param endpoint the validated endpoint name, e.g. "GET /search/person"
+     */
+    public void learn(String plan, String endpoint) {
+        if (!enabled || plan == null || plan.isBlank()) {
+            return;
+        }
+        Embedding embedding = embeddingModel.embed(plan).content();
+        List<EmbeddingMatch<String>> nearest = learned.findRelevant(embedding, 1, DUPLICATE_SCORE);
+        if (nearest.isEmpty() || !nearest.get(0).embedded().equals(endpoint)) {
+            learned.add(embedding, endpoint);
+        }
+    }
+
+    private Optional<String> fromLearned(Embedding embedding, Set<String> names) {
+        List<EmbeddingMatch<String>> matches = learned.findRelevant(embedding, LEARNED_NEIGHBOURS, learnedMinScore).stream()
+                .filter(match -> names.contains(match.embedded()))
+                .toList();
+        if (matches.isEmpty()) {
+            return Optional.empty();
+        }
+        EmbeddingMatch<String> best = matches.get(0);
+        boolean contested = matches.stream()
+                .anyMatch(match -> !match.embedded().equals(best.embedded()) && best.score() - match.score() < margin);
+        return contested ? Optional.empty() : Optional.of(best.embedded());
+    }
+
+    private Optional<String> fromDescriptions(Embedding embedding, SpecIndex index) {
+        List<EmbeddingMatch<String>> matches = index.descriptions().findRelevant(embedding, 2, 0);
+        if (matches.isEmpty() || matches.get(0).score() < descriptionMinScore) {
+            return Optional.empty();
+        }
+        if (matches.size() > 1 && matches.get(0).score() - matches.get(1).score() < margin) {
+            return Optional.empty();
+        }
+        return Optional.of(matches.get(0).embedded());
+    }
+
+    /**
+     * Fills a single path variable with the id the plan step mentions, e.g. "Sofia Coppola (1769)".
+     * Years, as in "movies of 2023", and counts, as in "the top 100 movies", are not ids.
+     * Anything less certain keeps the template for the caller to fill from the background.
+     */
+    static String bind(String endpoint, String plan) {
+        if (PATH_VARIABLE.matcher(endpoint).results().count() != 1) {
+            return endpoint;
+        }
+        List<MatchResult> ids = ID.matcher(plan).results()
+                .filter(match -> isId(match, plan))
+                .toList();
+        if (ids.size() != 1) {
+            return endpoint;
+        }
+        return PATH_VARIABLE.matcher(endpoint).replaceFirst(id(ids.get(0)));
+    }
+
+    private static boolean isId(MatchResult match, String plan) {
+        if (YEAR.matcher(id(match)).matches()) {
+            return false;
+        }
+        // A number in parentheses is how plan steps give ids; a bare one may count something
+        boolean bare = match.group(1) == null;
+        return !bare || !COUNT_BEFORE.matcher(plan.substring(0, match.start())).find()
+                && !COUNT_AFTER.matcher(plan.substring(match.end())).find();
+    }
+
+    private static String id(MatchResult match) {
+        return match.group(1) != null ? match.group(1) : match.group(2);
+    }
+
+    private SpecIndex indexFor(ReducedOpenAPISpec apiSpec) {
+        SpecIndex current = specIndex;
+        if (current == null || current.spec() != apiSpec) {
+            current = buildIndex(apiSpec);
+            specIndex = current;
+        }
+        return current;
+    }
+
+    private SpecIndex buildIndex(ReducedOpenAPISpec apiSpec) {
+        List<Map<String, Object>> endpoints = apiSpec.getEndpoints();
+        List<String> names = endpoints.stream().map(endpoint -> String.valueOf(endpoint.get("name"))).toList();
+        List<TextSegment> texts = endpoints.stream()
+                .map(endpoint -> TextSegment.from(endpoint.get("name") + ": " + endpoint.getOrDefault("description", "")))
+                .toList();
+
+        HnswEmbeddingStore<String> descriptions = new HnswEmbeddingStore<>();
+        descriptions.addAll(embeddingModel.embedAll(texts).content(), names);
+        return new SpecIndex(apiSpec, descriptions, names.stream().collect(Collectors.toUnmodifiableSet()));
+    }
+
+    public long getAttempts() {
+        return attempts.sum();
+    }
+
+    public long getLearnedHits() {
+        return learnedHits.sum();
+    }
+
+    public long getDescriptionHits() {
+        return descriptionHits.sum();
+    }
+
+    /**
+     * @return share of classification attempts answered without the LLM selector
+     */
+    public double getHitRate() {
+        long total = attempts.sum();
+        return total == 0 ? 0 : (double) (learnedHits.sum() + descriptionHits.sum()) / total;
+    }
+
+    public double getLearnedMinScore() {
+        return learnedMinScore;
+    }
+
+    public double getDescriptionMinScore() {
+        return descriptionMinScore;
+    }
+
+    public double getMargin() {
+        return margin;
+    }
+
+    private record SpecIndex(ReducedOpenAPISpec spec, HnswEmbeddingStore<String> descriptions, Set<String> names) {
+    }
+}
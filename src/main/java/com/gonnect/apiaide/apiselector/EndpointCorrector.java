@@ -0,0 +1,257 @@
+package com.gonnect.apiaide.apiselector;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * {@code EndpointCorrector} matches API calls proposed by the model against the endpoints of a spec and
+ * repairs near misses locally, without another model round trip.
+ * <p>
+ * Endpoint paths are kept in a trie of path segments. A proposed path is matched by walking the trie while
+ * maintaining a row of a segment-level edit distance, pruning branches whose row exceeds the maximum distance:
+ * <ul>
+ *     <li>inserting or deleting a segment costs 1, except a missing path variable, which costs 0.5,</li>
+ *     <li>substituting a literal segment costs its normalized character edit distance, so a wrong case costs 0
+ *     and a typo a fraction, while an unrelated word costs 1,</li>
+ *     <li>a path variable matches an id or placeholder for free, a plain word at a cost, and a literal segment
+ *     of the spec only at a higher cost than a missing segment,</li>
+ *     <li>a different HTTP method costs 1 and is never corrected automatically.</li>
+ * </ul>
+ * A call is corrected when the best match is within {@link #AUTO_CORRECT_DISTANCE} and clearly ahead of the
+ * runner-up; otherwise the closest candidates are returned so the model can choose among them. A corrected
+ * call keeps the spec's placeholder for a path variable the model gave no value for, see
+ * {@link Correction#isBound()}.
+ */
+public class EndpointCorrector {
+
+    static final double MAX_DISTANCE = 2.0;
+    static final double AUTO_CORRECT_DISTANCE = 1.0;
+    static final double AMBIGUITY_MARGIN = 0.5;
+    static final int MAX_CANDIDATES = 3;
+
+    /**
+     * A spec literal in a variable position is most likely a missing segment, so it costs more than inserting one.
+     */
+    private static final double LITERAL_AS_VARIABLE_COST = 1.5;
+    /**
+     * A plain word in a variable position may be a misspelt literal rather than a value.
+     */
+    private static final double WORD_AS_VARIABLE_COST = 0.75;
+    /**
+     * Leaving out an id segment is the most common near miss, so it is cheaper than any other edit.
+     */
+    private static final double MISSING_VARIABLE_COST = 0.5;
+    private static final Pattern WORD = Pattern.compile("[a-z_]+");
+    private static final Pattern PATH_VARIABLE = Pattern.compile("\\{[^}]*}");
+
+    private final TrieNode root = new TrieNode(null);
+    private final Set<String> literals = new HashSet<>();
+
+    /**
+     * @param endpoints endpoint names from the spec, "METHOD /path"
+     */
+    public EndpointCorrector(List<String> endpoints) {
+        for (String endpoint : endpoints) {
+            String[] elements = endpoint.trim().split("\\s+", 2);
+            if (elements.length < 2) {
+                continue;
+            }
+            TrieNode node = root;
+            for (String segment : segments(elements[1])) {
+                node = node.children.computeIfAbsent(segment.toLowerCase(Locale.ROOT), TrieNode::new);
+                if (!node.variable) {
+                    literals.add(node.segment);
+                }
+            }
+            node.endpoints.put(elements[0].toUpperCase(Locale.ROOT), endpoint.trim());
+        }
+    }
+
+    /**
+     * Matches a proposed call against the spec.
+     *
+     * @param call the proposed call, starting with the method and path, e.g. "GET /Search/person to search for ..."
+     * @return the outcome
+     */
+    public Correction correct(String call) {
+        String[] elements = call.trim().split("\\s+", 3);
+        if (elements.length < 2 || !elements[1].startsWith("/")) {
+            return Correction.unresolved(List.of());
+        }
+        String method = elements[0].toUpperCase(Locale.ROOT);
+        int queryStart = elements[1].indexOf('?');
+        String query = queryStart < 0 ? "" : elements[1].substring(queryStart);
+        List<String> target = segments(queryStart < 0 ? elements[1] : elements[1].substring(0, queryStart));
+        String proposed = elements[0] + " " + elements[1];
+
+        List<Candidate> candidates = new ArrayList<>();
+        double[] firstRow = new double[target.size() + 1];
+        for (int j = 0; j < firstRow.length; j++) {
+            firstRow[j] = j;
+        }
+        collect(root, method, target.size(), candidates);
+        for (TrieNode child : root.children.values()) {
+            search(child, method, target, firstRow, candidates);
+        }
+        candidates.sort(Comparator.comparingDouble(Candidate::distance));
+
+        if (candidates.isEmpty()) {
+            return Correction.unresolved(List.of());
+        }
+        Candidate best = candidates.get(0);
+        boolean clearlyBest = candidates.size() == 1
+                || candidates.get(1).distance() - best.distance() >= AMBIGUITY_MARGIN;
+        boolean exact = best.distance() == 0.0;
+        if (best.method().equals(method) && (exact || best.distance() <= AUTO_CORRECT_DISTANCE && clearlyBest)) {
+            String bound = bind(best.endpoint(), target) + query;
+            return Correction.resolved(best.endpoint(), bound, !bound.equals(proposed));
+        }
+        return Correction.unresolved(candidates.stream()
+                .limit(MAX_CANDIDATES)
+                .map(Candidate::endpoint)
+                .toList());
+    }
+
+    private void search(TrieNode node, String method, List<String> target, double[] previousRow, List<Candidate> candidates) {
+        double missingCost = node.variable ? MISSING_VARIABLE_COST : 1;
+        double[] row = new double[previousRow.length];
+        row[0] = previousRow[0] + missingCost;
+        double rowMin = row[0];
+        for (int j = 1; j < row.length; j++) {
+            row[j] = Math.min(Math.min(previousRow[j] + missingCost, row[j - 1] + 1),
+                    previousRow[j - 1] + substitutionCost(node, target.get(j - 1)));
+            rowMin = Math.min(rowMin, row[j]);
+        }
+
+        collect(node, method, row[row.length - 1], candidates);
+
+        if (rowMin <= MAX_DISTANCE) {
+            for (TrieNode child : node.children.values()) {
+                search(child, method, target, row, candidates);
+            }
+        }
+    }
+
+    private static void collect(TrieNode node, String method, double distance, List<Candidate> candidates) {
+        for (Map.Entry<String, String> endpoint : node.endpoints.entrySet()) {
+            double total = distance + (endpoint.getKey().equals(method) ? 0 : 1);
+            if (total <= MAX_DISTANCE) {
+                candidates.add(new Candidate(endpoint.getValue(), endpoint.getKey(), total));
+            }
+        }
+    }
+
+    private double substitutionCost(TrieNode node, String segment) {
+        String value = segment.toLowerCase(Locale.ROOT);
+        if (node.variable) {
+            if (literals.contains(value)) {
+                return LITERAL_AS_VARIABLE_COST;
+            }
+            return WORD.matcher(value).matches() ? WORD_AS_VARIABLE_COST : 0;
+        }
+        if (value.startsWith("{")) {
+            return 1;
+        }
+        int longest = Math.max(node.segment.length(), value.length());
+        double distance = longest == 0 ? 0 : (double) levenshtein(node.segment, value) / longest;
+        // Words that differ in more than half their characters are different words, not misspellings
+        return distance > 0.5 ? 1 : distance;
+    }
+
+    /**
+     * Builds the corrected path, keeping concrete values the model supplied for path variables when the
+     * segment counts line up, and the spec's variable placeholders otherwise.
+     */
+    private static String bind(String endpoint, List<String> target) {
+        String[] elements = endpoint.split("\\s+", 2);
+        List<String> template = segments(elements[1]);
+        List<String> bound = new ArrayList<>(template.size());
+        for (int i = 0; i < template.size(); i++) {
+            boolean variable = template.get(i).startsWith("{");
+            bound.add(variable && template.size() == target.size() ? target.get(i) : template.get(i));
+        }
+        return elements[0] + " /" + String.join("/", bound);
+    }
+
+    private static List<String> segments(String path) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            if (!segment.isBlank()) {
+                segments.add(segment.trim());
+            }
+        }
+        return segments;
+    }
+
+    static int levenshtein(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j] + 1, current[j - 1] + 1));
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    private static final class TrieNode {
+        private final String segment;
+        private final boolean variable;
+        private final Map<String, TrieNode> children = new LinkedHashMap<>();
+        private final Map<String, String> endpoints = new LinkedHashMap<>();
+
+        private TrieNode(String segment) {
+            this.segment = segment;
+            this.variable = segment != null && segment.startsWith("{") && segment.endsWith("}");
+        }
+    }
+
+    private record Candidate(String endpoint, String method, double distance) {
+    }
+
+    /**
+     * Outcome of matching a call.
+     *
+     * @param endpoint   the matched spec endpoint, null when unresolved
+     * @param call       method and path to use, with concrete path values kept where possible; null when unresolved
+     * @param corrected  whether the proposed call had to be changed
+     * @param candidates closest endpoints when unresolved, best first
+     */
+    public record Correction(String endpoint, String call, boolean corrected, List<String> candidates) {
+
+        static Correction resolved(String endpoint, String call, boolean corrected) {
+            return new Correction(endpoint, call, corrected, List.of());
+        }
+
+        static Correction unresolved(List<String> candidates) {
+            return new Correction(null, null, false, candidates);
+        }
+
+        public boolean isResolved() {
+            return endpoint != null;
+        }
+
+        /**
+         * @return whether the call has a value for every path variable; a call that still holds a placeholder,
+         * e.g. "GET /person/{person_id}/movie_credits", can only be sent once the value is known
+         */
+        public boolean isBound() {
+            return call != null && !PATH_VARIABLE.matcher(call).find();
+        }
+    }
+}
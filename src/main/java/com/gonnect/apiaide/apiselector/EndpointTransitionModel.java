@@ -0,0 +1,133 @@
+package com.gonnect.apiaide.apiselector;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@code EndpointTransitionModel} is a first-order Markov model over endpoint calls: how often a call to one
+ * endpoint was followed by a call to another, per scenario.
+ * <p>
+ * It is learned from the endpoint sequences of successfully completed runs and of held-out dataset solutions,
+ * and used to
+ * <ul>
+ *     <li>order the endpoints offered to the selector by how likely they follow the previous call, dropping
+ *     the unlikely tail once there is enough evidence, and</li>
+ *     <li>predict the next call so it can be prefetched.</li>
+ * </ul>
+ * The first call of a sequence is counted as a transition from {@link #START}.
+ */
+@Component
+public class EndpointTransitionModel {
+
+    public static final String START = "<start>";
+
+    private final boolean enabled;
+    private final int maxCandidates;
+    private final int minObservations;
+
+    private final Map<String, Map<String, Map<String, LongAdder>>> transitions = new ConcurrentHashMap<>();
+
+    public EndpointTransitionModel(@Value("${apiaide.selector.transitions.enabled:false}") boolean enabled,
+                                   @Value("${apiaide.selector.transitions.max-candidates:20}") int maxCandidates,
+                                   @Value("${apiaide.selector.transitions.min-observations:3}") int minObservations) {
+        this.enabled = enabled;
+        this.maxCandidates = maxCandidates;
+        this.minObservations = minObservations;
+    }
+
+    /**
+     * Counts the transitions of a successful endpoint sequence.
+     *
+     * @param scenario  the API scenario
+     * @param endpoints endpoint names in call order
+     */
+    public void observe(String scenario, List<String> endpoints) {
+        String previous = START;
+        for (String endpoint : endpoints) {
+            successors(scenario, previous).computeIfAbsent(endpoint, k -> new LongAdder()).increment();
+            previous = endpoint;
+        }
+    }
+
+    /**
+     * @return the estimated probability that {@code next} is called after {@code previous}
+     */
+    public double probability(String scenario, String previous, String next) {
+        Map<String, LongAdder> successors = successors(scenario, previous);
+        long total = total(successors);
+        LongAdder count = successors.get(next);
+        return total == 0 || count == null ? 0 : (double) count.sum() / total;
+    }
+
+    /**
+     * Orders candidate endpoints by how likely they follow {@code previous}. Once {@code previous} has been seen
+     * at least {@code minObservations} times, the list is cut to {@code maxCandidates}; endpoints that were
+     * observed to follow are always kept.
+     *
+     * @param scenario   the API scenario
+     * @param previous   the previously called endpoint, or {@link #START}
+     * @param candidates all endpoints of the spec
+     * @return the candidates to offer, most likely first; unchanged when the model is disabled
+     */
+    public List<String> rank(String scenario, String previous, List<String> candidates) {
+        if (!enabled) {
+            return candidates;
+        }
+        Map<String, LongAdder> successors = successors(scenario, previous == null ? START : previous);
+        List<String> ranked = new ArrayList<>(candidates);
+        ranked.sort(Comparator.comparingLong((String endpoint) -> count(successors, endpoint)).reversed());
+
+        if (total(successors) < minObservations) {
+            return ranked;
+        }
+        long observed = ranked.stream().filter(endpoint -> count(successors, endpoint) > 0).count();
+        return ranked.subList(0, (int) Math.min(ranked.size(), Math.max(observed, maxCandidates)));
+    }
+
+    /**
+     * Predicts the next call after {@code previous}.
+     *
+     * @param minProbability how likely the prediction must be
+     * @return the most likely next endpoint, if it is likely enough and backed by enough observations
+     */
+    public Optional<String> predictNext(String scenario, String previous, double minProbability) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Map<String, LongAdder> successors = successors(scenario, previous);
+        long total = total(successors);
+        if (total < minObservations) {
+            return Optional.empty();
+        }
+        return successors.entrySet().stream()
+                .max(Comparator.comparingLong(entry -> entry.getValue().sum()))
+                .filter(entry -> (double) entry.getValue().sum() / total >= minProbability)
+                .map(Map.Entry::getKey);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private Map<String, LongAdder> successors(String scenario, String previous) {
+        return transitions.computeIfAbsent(scenario, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(previous, k -> new ConcurrentHashMap<>());
+    }
+
+    private static long count(Map<String, LongAdder> successors, String endpoint) {
+        LongAdder count = successors.get(endpoint);
+        return count == null ? 0 : count.sum();
+    }
+
+    private static long total(Map<String, LongAdder> successors) {
+        return successors.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+}
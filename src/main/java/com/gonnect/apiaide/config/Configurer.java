@@ -1,7 +1,17 @@
 package com.gonnect.apiaide.config;
 
 
+import com.gonnect.apiaide.embedding.BatchingEmbeddingModel;
+import com.gonnect.apiaide.embedding.DeferredEmbeddingModel;
+import com.gonnect.apiaide.embedding.DeferredEmbeddingStore;
+import com.gonnect.apiaide.embedding.EmbeddingSnapshotStore;
+import com.gonnect.apiaide.embedding.HnswEmbeddingStore;
+import com.gonnect.apiaide.embedding.QueryExtractingRetriever;
+import com.gonnect.apiaide.embedding.RetrievalStage;
 import com.gonnect.apiaide.prompts.PlannerPrompts;
+import com.gonnect.apiaide.python.InterpreterPool;
+import com.gonnect.apiaide.python.PythonExecutionService;
+import com.gonnect.apiaide.warmup.WarmupOrchestrator;
 import dev.langchain4j.chain.ConversationalRetrievalChain;
 import dev.langchain4j.data.document.Document;
 import dev.langchain4j.data.document.DocumentSplitter;
@@ -16,13 +26,22 @@ import dev.langchain4j.model.openai.OpenAiTokenizer;
 import dev.langchain4j.retriever.EmbeddingStoreRetriever;
 import dev.langchain4j.retriever.Retriever;
 import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.python.core.PyException;
+import org.python.core.PySystemState;
 import org.python.util.PythonInterpreter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 import static com.gonnect.apiaide.prompts.APISelectorPrompts.API_SELECTOR_PROMPT;
 import static com.gonnect.apiaide.prompts.CallerPrompts.CALLER_PROMPT;
@@ -34,49 +53,104 @@ import static dev.langchain4j.model.openai.OpenAiModelName.GPT_3_5_TURBO;
 @Configuration
 public class Configurer {
 
-
-    static {
-        Properties props = new Properties();
-        props.setProperty("python.import.site", "false");
-        PythonInterpreter.initialize(props, null, new String[0]);
-    }
+    private static final int SEGMENT_MAX_TOKENS = 100;
+    private static final int SEGMENT_OVERLAP_TOKENS = 0;
+    private static final int CHAT_MEMORY_MESSAGES = 50000;
+    private static final String EMBEDDING_MODEL_ID = AllMiniLmL6V2EmbeddingModel.class.getName();
 
     /**
      * JSR-223 Scripting Engine
+     * <p>
+     * Jython initialization is slow, so it runs on the warm-up pool and only callers that execute
+     * Python wait for it. A {@code PythonInterpreter} is not thread-safe, so there is a pool of them, one per
+     * core unless {@code apiaide.python.pool.size} says otherwise, each with its own {@code sys} state.
      *
-     * @return PythonInterpreter
+     * @return pool of PythonInterpreters, once initialized
      */
     @Bean
-    public PythonInterpreter interpreter() {
-
-        PythonInterpreter interpreter = new PythonInterpreter();
-
-        interpreter.exec("import sys");
-        interpreter.exec("sys.path.append('/usr/local/Cellar/jython/2.7.3/Lib')");
-
-
-        return interpreter;
+    public CompletableFuture<InterpreterPool<PythonInterpreter>> interpreterPool(WarmupOrchestrator warmup,
+                                                                                 @Value("${apiaide.python.pool.size:0}") int size,
+                                                                                 @Value("${apiaide.python.pool.borrow-timeout-ms:30000}") long borrowTimeoutMillis,
+                                                                                 @Value("${apiaide.python.pool.max-uses:1000}") int maxUses) {
+        return warmup.start("python-interpreter", () -> {
+            Properties props = new Properties();
+            props.setProperty("python.import.site", "false");
+            PythonInterpreter.initialize(props, null, new String[0]);
+
+            int poolSize = size > 0 ? size : Runtime.getRuntime().availableProcessors();
+            return new InterpreterPool<>(poolSize,
+                    () -> {
+                        PythonInterpreter interpreter = new PythonInterpreter(null, new PySystemState());
+
+                        interpreter.exec("import sys");
+                        interpreter.exec("sys.path.append('/usr/local/Cellar/jython/2.7.3/Lib')");
+                        interpreter.setLocals(PythonExecutionService.namespace());
+
+                        return interpreter;
+                    },
+                    interpreter -> interpreter.setLocals(PythonExecutionService.namespace()),
+                    PythonInterpreter::close,
+                    // Errors raised by the Python code leave the interpreter usable
+                    error -> !(error instanceof PyException),
+                    Duration.ofMillis(borrowTimeoutMillis),
+                    maxUses);
+        });
     }
 
     @Bean("chain")
     ConversationalRetrievalChain conversationalRetrievalChain(ChatLanguageModel chatModel,
                                                               Retriever<TextSegment> retriever) {
 
+        return newChain(chatModel, retriever);
+    }
+
+    /**
+     * Creates chains with the model and retriever of the shared chain but a chat memory of their own, for
+     * conversations that run concurrently and must not see each other's messages.
+     *
+     * @return a supplier of new chains
+     */
+    @Bean
+    Supplier<ConversationalRetrievalChain> chainFactory(ChatLanguageModel chatModel,
+                                                        Retriever<TextSegment> retriever) {
+        return () -> newChain(chatModel, retriever);
+    }
+
+    private static ConversationalRetrievalChain newChain(ChatLanguageModel chatModel, Retriever<TextSegment> retriever) {
         return ConversationalRetrievalChain.builder()
                 .chatLanguageModel(chatModel)
                 .retriever(retriever)
-                .chatMemory(MessageWindowChatMemory.withMaxMessages(50000))
+                .chatMemory(MessageWindowChatMemory.withMaxMessages(CHAT_MEMORY_MESSAGES))
                 .build();
     }
 
 
+    /**
+     * Local MiniLM model behind a batching, caching front-end so concurrent retrievals share inference batches
+     * and repeated texts are not embedded again. The ONNX model loads on the warm-up pool.
+     *
+     * @return EmbeddingModel
+     */
     @Bean
-    EmbeddingModel embeddingModel() {
-        return new AllMiniLmL6V2EmbeddingModel();
+    EmbeddingModel embeddingModel(WarmupOrchestrator warmup,
+                                  @Value("${apiaide.embedding.batch-size:32}") int batchSize,
+                                  @Value("${apiaide.embedding.batch-window-ms:2}") long batchWindowMillis,
+                                  @Value("${apiaide.embedding.cache-size:10000}") int cacheSize,
+                                  @Value("${apiaide.embedding.threads:0}") int threads) {
+        EmbeddingModel model = new DeferredEmbeddingModel(warmup.start("embedding-model", AllMiniLmL6V2EmbeddingModel::new));
+        return new BatchingEmbeddingModel(model, batchSize, batchWindowMillis, cacheSize, threads);
     }
 
+    /**
+     * Retriever used by the chain. Only the salient part of each stage's prompt is embedded,
+     * and stages listed in {@code apiaide.retrieval.skip-stages} skip retrieval entirely.
+     *
+     * @return Retriever
+     */
     @Bean
-    Retriever<TextSegment> fetch(EmbeddingStore<TextSegment> embeddingStore, EmbeddingModel embeddingModel) {
+    Retriever<TextSegment> fetch(EmbeddingStore<TextSegment> embeddingStore,
+                                 EmbeddingModel embeddingModel,
+                                 @Value("${apiaide.retrieval.skip-stages:CALLER,PARSER,OTHER}") RetrievalStage[] skippedStages) {
 
         // You will need to adjust these parameters to find the optimal setting, which will depend on two main factors:
         // - The nature of your data
@@ -84,26 +158,48 @@ public class Configurer {
         int maxResultsRetrieved = 1;
         double minScore = 0.6;
 
-        return EmbeddingStoreRetriever.from(embeddingStore, embeddingModel, maxResultsRetrieved, minScore);
+        return new QueryExtractingRetriever(
+                EmbeddingStoreRetriever.from(embeddingStore, embeddingModel, maxResultsRetrieved, minScore),
+                Set.copyOf(Arrays.asList(skippedStages)));
     }
 
 
+    @Bean
+    EmbeddingSnapshotStore embeddingSnapshotStore(@Value("${apiaide.embedding.snapshot-dir:${java.io.tmpdir}/apiaide/embeddings}") String directory) {
+        return new EmbeddingSnapshotStore(Path.of(directory));
+    }
+
     /**
      * Initializes and populates the embedding store with ICL examples.
+     * <p>
+     * The store is an HNSW graph so retrieval cost stays logarithmic in the number of ingested segments.
+     * Ingestion runs on the warm-up pool; queries block until it completed.
      *
-     * @param model the embedding model to use
+     * @param warmup         the warm-up orchestrator
+     * @param model          the embedding model to use
+     * @param snapshots      persisted embeddings from previous runs
+     * @param m              maximum graph links per node
+     * @param efConstruction candidate list size while inserting
+     * @param efSearch       candidate list size while querying
      * @return the populated embedding store
      */
     @Bean
-    public EmbeddingStore<TextSegment> embeddingStore(EmbeddingModel model) {
-
-        // Create empty store
-        EmbeddingStore<TextSegment> store = new InMemoryEmbeddingStore<>();
-
-        // Ingest ICL examples
-        ingestExamples(model, store);
-
-        return store;
+    public EmbeddingStore<TextSegment> embeddingStore(WarmupOrchestrator warmup,
+                                                      EmbeddingModel model,
+                                                      EmbeddingSnapshotStore snapshots,
+                                                      @Value("${apiaide.embedding.hnsw.m:16}") int m,
+                                                      @Value("${apiaide.embedding.hnsw.ef-construction:100}") int efConstruction,
+                                                      @Value("${apiaide.embedding.hnsw.ef-search:64}") int efSearch) {
+
+        return new DeferredEmbeddingStore<>(warmup.start("icl-examples", () -> {
+            // Create empty store
+            EmbeddingStore<TextSegment> store = new HnswEmbeddingStore<>(m, efConstruction, efSearch);
+
+            // Ingest ICL examples
+            ingestExamples(model, snapshots, store);
+
+            return store;
+        }));
     }
 
     /**
@@ -112,32 +208,41 @@ public class Configurer {
      * The process followed is:
      * <p>
      * 1. Extract text of all ICL examples
-     * 2. Convert into a Document for processing
-     * 3. Split document into text segments
-     * 4. Generate embeddings for each segment
+     * 2. Look up a snapshot keyed by the text, splitter settings and model; if found, use it as is
+     * 3. Otherwise convert into a Document and split it into text segments
+     * 4. Generate embeddings for each segment and persist them as a snapshot
      * 5. Add embeddings mapped to original segments in the store
      * <p>
-     * This allows the ICL examples to be used for semantic search during query planning.
+     * This allows the ICL examples to be used for semantic search during query planning,
+     * while the embedding model only runs when the examples actually change.
      *
-     * @param model the embedding model
-     * @param store the embedding store to populate
+     * @param model     the embedding model
+     * @param snapshots the snapshot store
+     * @param store     the embedding store to populate
      */
-    private void ingestExamples(EmbeddingModel model, EmbeddingStore<TextSegment> store) {
+    private void ingestExamples(EmbeddingModel model, EmbeddingSnapshotStore snapshots, EmbeddingStore<TextSegment> store) {
 
         // 1. Construct single document with all ICL text
         String text = String.join("\n", PlannerPrompts.ICL_EXAMPLES.values());
-        Document document = new Document(text);
 
-        // 2. Split document
-        DocumentSplitter splitter = DocumentSplitters.recursive(100, 0, new OpenAiTokenizer(GPT_3_5_TURBO));
-        List<TextSegment> segments = splitter.split(document);
+        // 2. Reuse persisted embeddings when nothing changed
+        String splitterSettings = "recursive:" + SEGMENT_MAX_TOKENS + ":" + SEGMENT_OVERLAP_TOKENS + ":" + GPT_3_5_TURBO;
+        String key = EmbeddingSnapshotStore.key(text, splitterSettings, EMBEDDING_MODEL_ID);
+        Optional<EmbeddingSnapshotStore.Snapshot> snapshot = snapshots.load(key);
+        if (snapshot.isPresent()) {
+            store.addAll(snapshot.get().embeddings(), snapshot.get().segments());
+            return;
+        }
 
-        // 3. Generate embeddings for segments
-        List<Embedding> embeddings = model.embedAll(segments).content();
+        // 3. Split document
+        DocumentSplitter splitter = DocumentSplitters.recursive(SEGMENT_MAX_TOKENS, SEGMENT_OVERLAP_TOKENS, new OpenAiTokenizer(GPT_3_5_TURBO));
+        List<TextSegment> segments = splitter.split(new Document(text));
 
-        model.embedAll(segments);
+        // 4. Generate embeddings for segments
+        List<Embedding> embeddings = model.embedAll(segments).content();
+        snapshots.save(key, embeddings, segments);
 
-        // 4. Add to store
+        // 5. Add to store
         store.addAll(embeddings, segments);
 
     }
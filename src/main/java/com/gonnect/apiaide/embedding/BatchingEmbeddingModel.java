@@ -0,0 +1,246 @@
+package com.gonnect.apiaide.embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@code BatchingEmbeddingModel} sits in front of a local {@link EmbeddingModel} and makes it scale under
+ * concurrent load.
+ * <p>
+ * - Results are cached in an LRU map keyed by the SHA-256 of the text, so repeated texts are embedded once.
+ * - Single-text requests from concurrent callers are collected for up to {@code batchWindowMillis} (or until
+ * {@code maxBatchSize} is reached) and embedded as one batch.
+ * - Batches, and large {@link #embedAll(List)} calls, are split into one chunk per worker and run on a pool
+ * sized to the cores. The local ONNX model embeds the texts of a call one after the other, so a batch run by a
+ * single worker would serialize callers that used to embed in parallel.
+ */
+public class BatchingEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchingEmbeddingModel.class);
+
+    private final EmbeddingModel delegate;
+    private final int maxBatchSize;
+    private final long batchWindowMillis;
+    private final int threads;
+
+    private final Map<String, Embedding> cache;
+    private final BlockingQueue<PendingEmbedding> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService workers;
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    /**
+     * @param delegate          the model that performs inference
+     * @param maxBatchSize      maximum number of texts embedded in one inference call
+     * @param batchWindowMillis how long the dispatcher waits to fill a batch
+     * @param cacheSize         number of embeddings kept in the LRU cache, 0 disables caching
+     * @param threads           number of inference threads, 0 uses the number of available processors
+     */
+    public BatchingEmbeddingModel(EmbeddingModel delegate, int maxBatchSize, long batchWindowMillis, int cacheSize, int threads) {
+        this.delegate = delegate;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.batchWindowMillis = Math.max(0, batchWindowMillis);
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Embedding> eldest) {
+                return size() > cacheSize;
+            }
+        });
+
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(this.threads, runnable -> {
+            Thread thread = new Thread(runnable, "embedding-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dispatcher = new Thread(this::dispatch, "embedding-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    public EmbeddingModel getDelegate() {
+        return delegate;
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    @Override
+    public Response<Embedding> embed(String text) {
+        return embed(TextSegment.from(text));
+    }
+
+    @Override
+    public Response<Embedding> embed(TextSegment segment) {
+        String key = key(segment.text());
+        Embedding cached = cache.get(key);
+        if (cached != null) {
+            cacheHits.increment();
+            return Response.from(cached);
+        }
+        cacheMisses.increment();
+
+        PendingEmbedding pending = new PendingEmbedding(key, segment, new CompletableFuture<>());
+        queue.add(pending);
+        return Response.from(join(pending.result()));
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+        Embedding[] result = new Embedding[segments.size()];
+        Map<String, List<Integer>> missingPositions = new LinkedHashMap<>();
+        Map<String, TextSegment> missingSegments = new HashMap<>();
+
+        for (int i = 0; i < segments.size(); i++) {
+            String key = key(segments.get(i).text());
+            Embedding cached = cache.get(key);
+            if (cached != null) {
+                cacheHits.increment();
+                result[i] = cached;
+            } else {
+                cacheMisses.increment();
+                missingPositions.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+                missingSegments.putIfAbsent(key, segments.get(i));
+            }
+        }
+
+        List<String> keys = new ArrayList<>(missingPositions.keySet());
+        int chunkSize = Math.max(1, Math.min(maxBatchSize, (keys.size() + threads - 1) / threads));
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += chunkSize) {
+            List<String> chunk = keys.subList(from, Math.min(keys.size(), from + chunkSize));
+            chunks.add(CompletableFuture.runAsync(() -> {
+                List<TextSegment> batch = chunk.stream().map(missingSegments::get).toList();
+                List<Embedding> embeddings = infer(batch);
+                for (int j = 0; j < chunk.size(); j++) {
+                    cache.put(chunk.get(j), embeddings.get(j));
+                    for (int position : missingPositions.get(chunk.get(j))) {
+                        result[position] = embeddings.get(j);
+                    }
+                }
+            }, workers));
+        }
+        join(CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new)));
+
+        return Response.from(List.of(result));
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        dispatcher.interrupt();
+        workers.shutdown();
+    }
+
+    /**
+     * Collects queued single-text requests into batches and spreads them over the worker pool.
+     */
+    private void dispatch() {
+        while (running) {
+            try {
+                List<PendingEmbedding> batch = new ArrayList<>(maxBatchSize);
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchWindowMillis);
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingEmbedding next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                runBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void runBatch(List<PendingEmbedding> batch) {
+        // Identical texts that arrived in the same window are embedded once
+        Map<String, List<PendingEmbedding>> byKey = new LinkedHashMap<>();
+        for (PendingEmbedding pending : batch) {
+            byKey.computeIfAbsent(pending.key(), k -> new ArrayList<>()).add(pending);
+        }
+        List<String> keys = new ArrayList<>(byKey.keySet());
+        int chunkSize = Math.max(1, (keys.size() + threads - 1) / threads);
+        for (int from = 0; from < keys.size(); from += chunkSize) {
+            List<String> chunk = keys.subList(from, Math.min(keys.size(), from + chunkSize));
+            workers.execute(() -> runChunk(chunk, byKey));
+        }
+    }
+
+    private void runChunk(List<String> keys, Map<String, List<PendingEmbedding>> byKey) {
+        try {
+            List<Embedding> embeddings = infer(keys.stream().map(k -> byKey.get(k).get(0).segment()).toList());
+            for (int i = 0; i < keys.size(); i++) {
+                cache.put(keys.get(i), embeddings.get(i));
+                for (PendingEmbedding pending : byKey.get(keys.get(i))) {
+                    pending.result().complete(embeddings.get(i));
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Embedding batch of {} texts failed", keys.size(), e);
+            keys.forEach(key -> byKey.get(key).forEach(pending -> pending.result().completeExceptionally(e)));
+        }
+    }
+
+    private List<Embedding> infer(List<TextSegment> segments) {
+        batches.increment();
+        return delegate.embedAll(segments).content();
+    }
+
+    private static String key(String text) {
+        return DigestUtils.sha256Hex(text);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private record PendingEmbedding(String key, TextSegment segment, CompletableFuture<Embedding> result) {
+    }
+}
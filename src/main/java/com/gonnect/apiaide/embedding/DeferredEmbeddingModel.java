@@ -0,0 +1,27 @@
+package com.gonnect.apiaide.embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link EmbeddingModel} whose underlying model is still loading in the background.
+ * Calls block until the model is available; nothing blocks while no one needs it.
+ */
+public class DeferredEmbeddingModel implements EmbeddingModel {
+
+    private final CompletableFuture<? extends EmbeddingModel> model;
+
+    public DeferredEmbeddingModel(CompletableFuture<? extends EmbeddingModel> model) {
+        this.model = model;
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+        return model.join().embedAll(segments);
+    }
+}
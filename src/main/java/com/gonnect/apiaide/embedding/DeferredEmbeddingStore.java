@@ -0,0 +1,53 @@
+package com.gonnect.apiaide.embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link EmbeddingStore} whose content is still being ingested in the background.
+ * Calls block until ingestion finished, so early requests wait only for the store they query.
+ *
+ * @param <Embedded> the type of content stored alongside each vector
+ */
+public class DeferredEmbeddingStore<Embedded> implements EmbeddingStore<Embedded> {
+
+    private final CompletableFuture<? extends EmbeddingStore<Embedded>> store;
+
+    public DeferredEmbeddingStore(CompletableFuture<? extends EmbeddingStore<Embedded>> store) {
+        this.store = store;
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        return store.join().add(embedding);
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        store.join().add(id, embedding);
+    }
+
+    @Override
+    public String add(Embedding embedding, Embedded embedded) {
+        return store.join().add(embedding, embedded);
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        return store.join().addAll(embeddings);
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<Embedded> embedded) {
+        return store.join().addAll(embeddings, embedded);
+    }
+
+    @Override
+    public List<EmbeddingMatch<Embedded>> findRelevant(Embedding referenceEmbedding, int maxResults, double minScore) {
+        return store.join().findRelevant(referenceEmbedding, maxResults, minScore);
+    }
+}
@@ -0,0 +1,177 @@
+package com.gonnect.apiaide.embedding;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * {@code EmbeddingSnapshotStore} persists embedded segments to disk so startup can skip re-embedding.
+ * <p>
+ * A snapshot is identified by a key derived from everything that influences the embeddings: the source
+ * text, the splitter settings and the embedding model id. Each snapshot is two files:
+ * - {@code <key>.vec}: a header (magic, version, count, dimension) followed by a little-endian float matrix,
+ * read back through a read-only memory mapping
+ * - {@code <key>.segments.json}: the segment text and metadata, in the same order as the matrix rows
+ * <p>
+ * Files are written to a temporary name and moved into place, so a crash never leaves a half-written snapshot.
+ */
+public class EmbeddingSnapshotStore {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddingSnapshotStore.class);
+
+    private static final int MAGIC = 0x41504945; // "APIE"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 * Integer.BYTES;
+
+    private final Path directory;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public EmbeddingSnapshotStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Computes the snapshot key for a given corpus.
+     *
+     * @param sourceText       the full text that is split and embedded
+     * @param splitterSettings a stable description of the splitter configuration
+     * @param modelId          identifier of the embedding model
+     * @return hex encoded SHA-256 over all inputs
+     */
+    public static String key(String sourceText, String splitterSettings, String modelId) {
+        return DigestUtils.sha256Hex(String.join("\u0000", modelId, splitterSettings, sourceText));
+    }
+
+    /**
+     * Loads the snapshot stored under the given key.
+     *
+     * @param key the snapshot key
+     * @return the snapshot, or empty if it does not exist or cannot be read
+     */
+    public Optional<Snapshot> load(String key) {
+        Path vectorFile = vectorFile(key);
+        Path segmentFile = segmentFile(key);
+        if (!Files.exists(vectorFile) || !Files.exists(segmentFile)) {
+            return Optional.empty();
+        }
+
+        try (FileChannel channel = FileChannel.open(vectorFile, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                log.warn("Ignoring embedding snapshot {} with unknown format", vectorFile);
+                return Optional.empty();
+            }
+            int count = buffer.getInt();
+            int dimension = buffer.getInt();
+
+            List<SegmentRecord> records = mapper.readValue(segmentFile.toFile(), new TypeReference<>() {
+            });
+            if (records.size() != count || channel.size() != HEADER_BYTES + (long) count * dimension * Float.BYTES) {
+                log.warn("Ignoring inconsistent embedding snapshot {}", vectorFile);
+                return Optional.empty();
+            }
+
+            FloatBuffer matrix = buffer.asFloatBuffer();
+            List<Embedding> embeddings = new ArrayList<>(count);
+            List<TextSegment> segments = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                float[] vector = new float[dimension];
+                matrix.get(vector);
+                embeddings.add(Embedding.from(vector));
+                segments.add(TextSegment.from(records.get(i).text(), Metadata.from(records.get(i).metadata())));
+            }
+            return Optional.of(new Snapshot(embeddings, segments));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to load embedding snapshot {}", vectorFile, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Saves embeddings and their segments under the given key, replacing any previous snapshot.
+     * Failures are logged and swallowed: a missing snapshot only costs a re-embed on the next start.
+     *
+     * @param key        the snapshot key
+     * @param embeddings the embeddings, one per segment
+     * @param segments   the embedded segments
+     */
+    public void save(String key, List<Embedding> embeddings, List<TextSegment> segments) {
+        if (embeddings.size() != segments.size()) {
+            throw new IllegalArgumentException("The list of embeddings and segments must have the same size");
+        }
+        int count = embeddings.size();
+        int dimension = count == 0 ? 0 : embeddings.get(0).dimension();
+
+        try {
+            Files.createDirectories(directory);
+
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + count * dimension * Float.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(dimension);
+            for (Embedding embedding : embeddings) {
+                for (float v : embedding.vector()) {
+                    buffer.putFloat(v);
+                }
+            }
+            buffer.flip();
+
+            List<SegmentRecord> records = segments.stream()
+                    .map(segment -> new SegmentRecord(segment.text(), segment.metadata().asMap()))
+                    .toList();
+
+            Path segmentTmp = Files.createTempFile(directory, key, ".segments.tmp");
+            mapper.writeValue(segmentTmp.toFile(), records);
+
+            Path vectorTmp = Files.createTempFile(directory, key, ".vec.tmp");
+            try (FileChannel channel = FileChannel.open(vectorTmp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+
+            Files.move(segmentTmp, segmentFile(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(vectorTmp, vectorFile(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to save embedding snapshot {}", key, e);
+        }
+    }
+
+    private Path vectorFile(String key) {
+        return directory.resolve(key + ".vec");
+    }
+
+    private Path segmentFile(String key) {
+        return directory.resolve(key + ".segments.json");
+    }
+
+    /**
+     * Embeddings and the segments they were computed from, in matching order.
+     */
+    public record Snapshot(List<Embedding> embeddings, List<TextSegment> segments) {
+    }
+
+    private record SegmentRecord(String text, Map<String, String> metadata) {
+    }
+}
@@ -0,0 +1,440 @@
+package com.gonnect.apiaide.embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.RelevanceScore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * {@code HnswEmbeddingStore} is an approximate nearest neighbour {@link EmbeddingStore} based on a
+ * Hierarchical Navigable Small World graph.
+ * <p>
+ * Unlike {@code InMemoryEmbeddingStore}, which scans every vector on each lookup, a query only visits
+ * a logarithmic number of graph nodes, so retrieval stays fast as the ICL and endpoint corpora grow.
+ * <p>
+ * Vectors are normalised on insert and kept in a single growable {@code float[]}, so cosine similarity
+ * is a plain dot product over primitive memory. Graph links are stored as {@code int[]} adjacency lists
+ * per node and level.
+ * <p>
+ * Tuning:
+ * - {@code m}: maximum links per node on the upper levels (level 0 keeps {@code 2 * m})
+ * - {@code efConstruction}: candidate list size while inserting
+ * - {@code efSearch}: candidate list size while querying, higher is more accurate and slower
+ * <p>
+ * Reads take a shared lock and run concurrently; inserts take the exclusive lock.
+ *
+ * @param <Embedded> the type of content stored alongside each vector, usually {@code TextSegment}
+ */
+public class HnswEmbeddingStore<Embedded> implements EmbeddingStore<Embedded> {
+
+    public static final int DEFAULT_M = 16;
+    public static final int DEFAULT_EF_CONSTRUCTION = 100;
+    public static final int DEFAULT_EF_SEARCH = 64;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int m;
+    private final int maxLinksLevel0;
+    private final int efConstruction;
+    private volatile int efSearch;
+    private final double levelMultiplier;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    private int dimension = -1;
+    private int size = 0;
+    private float[] vectors = new float[0];
+    private float[] norms = new float[0];
+    private int[][][] links = new int[0][][];
+    private String[] ids = new String[0];
+    private List<Embedded> embedded = new ArrayList<>();
+
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    public HnswEmbeddingStore() {
+        this(DEFAULT_M, DEFAULT_EF_CONSTRUCTION, DEFAULT_EF_SEARCH);
+    }
+
+    public HnswEmbeddingStore(int m, int efConstruction, int efSearch) {
+        if (m < 2 || efConstruction < 1 || efSearch < 1) {
+            throw new IllegalArgumentException("HNSW requires m >= 2, efConstruction >= 1 and efSearch >= 1");
+        }
+        this.m = m;
+        this.maxLinksLevel0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.efSearch = efSearch;
+        this.levelMultiplier = 1 / Math.log(m);
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        String id = UUID.randomUUID().toString();
+        add(id, embedding, null);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        add(id, embedding, null);
+    }
+
+    @Override
+    public String add(Embedding embedding, Embedded content) {
+        String id = UUID.randomUUID().toString();
+        add(id, embedding, content);
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        List<String> result = new ArrayList<>(embeddings.size());
+        for (Embedding embedding : embeddings) {
+            result.add(add(embedding));
+        }
+        return result;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<Embedded> contents) {
+        if (embeddings.size() != contents.size()) {
+            throw new IllegalArgumentException("The list of embeddings and embedded must have the same size");
+        }
+        List<String> result = new ArrayList<>(embeddings.size());
+        for (int i = 0; i < embeddings.size(); i++) {
+            result.add(add(embeddings.get(i), contents.get(i)));
+        }
+        return result;
+    }
+
+    /**
+     * Inserts a vector into the graph under the given id.
+     *
+     * @param id        the id to report in matches
+     * @param embedding the vector to index
+     * @param content   the content returned with matches, may be null
+     */
+    public void add(String id, Embedding embedding, Embedded content) {
+        float[] vector = embedding.vector();
+
+        lock.writeLock().lock();
+        try {
+            if (dimension < 0) {
+                dimension = vector.length;
+            } else if (dimension != vector.length) {
+                throw new IllegalArgumentException("Expected embedding of dimension " + dimension + " but got " + vector.length);
+            }
+
+            int node = allocate(id, vector, content);
+            int level = randomLevel();
+            links[node] = new int[level + 1][];
+            for (int l = 0; l <= level; l++) {
+                links[node][l] = new int[0];
+            }
+
+            if (entryPoint < 0) {
+                entryPoint = node;
+                maxLevel = level;
+                return;
+            }
+
+            int current = entryPoint;
+            for (int l = maxLevel; l > level; l--) {
+                current = greedyClosest(node, current, l);
+            }
+
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                PriorityQueue<Candidate> found = searchLayer(node, current, efConstruction, l, null);
+                int[] neighbours = selectNeighbours(found, l == 0 ? maxLinksLevel0 : m);
+                links[node][l] = neighbours;
+                for (int neighbour : neighbours) {
+                    connect(neighbour, node, l);
+                }
+                current = closest(found);
+            }
+
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = node;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<EmbeddingMatch<Embedded>> findRelevant(Embedding referenceEmbedding, int maxResults, double minScore) {
+        float[] query = referenceEmbedding.vector();
+        float queryNorm = norm(query);
+
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || queryNorm == 0) {
+                return List.of();
+            }
+            if (query.length != dimension) {
+                throw new IllegalArgumentException("Expected embedding of dimension " + dimension + " but got " + query.length);
+            }
+
+            float[] normalised = new float[query.length];
+            for (int i = 0; i < query.length; i++) {
+                normalised[i] = query[i] / queryNorm;
+            }
+
+            int current = entryPoint;
+            for (int l = maxLevel; l > 0; l--) {
+                current = greedyClosest(-1, current, l, normalised);
+            }
+            PriorityQueue<Candidate> found = searchLayer(-1, current, Math.max(efSearch, maxResults), 0, normalised);
+
+            List<Candidate> ordered = new ArrayList<>(found);
+            ordered.sort(Comparator.comparingDouble(Candidate::distance));
+
+            List<EmbeddingMatch<Embedded>> matches = new ArrayList<>(Math.min(maxResults, ordered.size()));
+            for (Candidate candidate : ordered) {
+                if (matches.size() == maxResults) {
+                    break;
+                }
+                double score = RelevanceScore.fromCosineSimilarity(1 - candidate.distance());
+                if (score >= minScore) {
+                    matches.add(new EmbeddingMatch<>(score, ids[candidate.node()], embeddingOf(candidate.node()), embedded.get(candidate.node())));
+                }
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Changes the candidate list size used by queries. Safe to call while queries are running.
+     */
+    public void setEfSearch(int efSearch) {
+        if (efSearch < 1) {
+            throw new IllegalArgumentException("efSearch must be >= 1");
+        }
+        this.efSearch = efSearch;
+    }
+
+    public int getEfSearch() {
+        return efSearch;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int allocate(String id, float[] vector, Embedded content) {
+        if (size == ids.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, ids.length * 2);
+            vectors = Arrays.copyOf(vectors, capacity * dimension);
+            norms = Arrays.copyOf(norms, capacity);
+            links = Arrays.copyOf(links, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+        }
+        int node = size++;
+        float n = norm(vector);
+        norms[node] = n;
+        int offset = node * dimension;
+        for (int i = 0; i < dimension; i++) {
+            vectors[offset + i] = n == 0 ? 0 : vector[i] / n;
+        }
+        ids[node] = id;
+        embedded.add(content);
+        return node;
+    }
+
+    private int randomLevel() {
+        return (int) Math.floor(-Math.log(1 - random.nextDouble()) * levelMultiplier);
+    }
+
+    private int greedyClosest(int node, int start, int level) {
+        return greedyClosest(node, start, level, null);
+    }
+
+    private int greedyClosest(int node, int start, int level, float[] query) {
+        int current = start;
+        float currentDistance = distance(node, query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int neighbour : neighbours(current, level)) {
+                float d = distance(node, query, neighbour);
+                if (d < currentDistance) {
+                    currentDistance = d;
+                    current = neighbour;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search on one level. Returns up to {@code ef} closest nodes as a max-heap on distance.
+     */
+    private PriorityQueue<Candidate> searchLayer(int node, int start, int ef, int level, float[] query) {
+        BitSet visited = new BitSet(size);
+        visited.set(start);
+
+        Candidate first = new Candidate(start, distance(node, query, start));
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(Comparator.comparingDouble(Candidate::distance));
+        PriorityQueue<Candidate> found = new PriorityQueue<>(Comparator.comparingDouble(Candidate::distance).reversed());
+        candidates.add(first);
+        found.add(first);
+
+        while (!candidates.isEmpty()) {
+            Candidate candidate = candidates.poll();
+            if (candidate.distance() > found.peek().distance()) {
+                break;
+            }
+            for (int neighbour : neighbours(candidate.node(), level)) {
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float d = distance(node, query, neighbour);
+                if (found.size() < ef || d < found.peek().distance()) {
+                    Candidate next = new Candidate(neighbour, d);
+                    candidates.add(next);
+                    found.add(next);
+                    if (found.size() > ef) {
+                        found.poll();
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Neighbour selection heuristic from the HNSW paper: a candidate is kept only if it is closer to the
+     * new node than to any neighbour already kept, which keeps links spread across clusters.
+     */
+    private int[] selectNeighbours(PriorityQueue<Candidate> found, int max) {
+        List<Candidate> ordered = new ArrayList<>(found);
+        ordered.sort(Comparator.comparingDouble(Candidate::distance));
+
+        List<Integer> selected = new ArrayList<>(max);
+        List<Integer> skipped = new ArrayList<>();
+        for (Candidate candidate : ordered) {
+            if (selected.size() >= max) {
+                break;
+            }
+            boolean keep = true;
+            for (int kept : selected) {
+                if (distanceBetween(candidate.node(), kept) < candidate.distance()) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected.add(candidate.node());
+            } else {
+                skipped.add(candidate.node());
+            }
+        }
+        for (int i = 0; i < skipped.size() && selected.size() < max; i++) {
+            selected.add(skipped.get(i));
+        }
+        return selected.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private void connect(int from, int to, int level) {
+        int[] current = links[from][level];
+        int max = level == 0 ? maxLinksLevel0 : m;
+        int[] extended = Arrays.copyOf(current, current.length + 1);
+        extended[current.length] = to;
+        if (extended.length <= max) {
+            links[from][level] = extended;
+            return;
+        }
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(Comparator.comparingDouble(Candidate::distance).reversed());
+        for (int neighbour : extended) {
+            candidates.add(new Candidate(neighbour, distanceBetween(from, neighbour)));
+        }
+        links[from][level] = selectNeighbours(candidates, max);
+    }
+
+    private int[] neighbours(int node, int level) {
+        int[][] nodeLinks = links[node];
+        return level < nodeLinks.length ? nodeLinks[level] : new int[0];
+    }
+
+    private int closest(PriorityQueue<Candidate> found) {
+        Candidate best = null;
+        for (Candidate candidate : found) {
+            if (best == null || candidate.distance() < best.distance()) {
+                best = candidate;
+            }
+        }
+        return best.node();
+    }
+
+    private float distance(int node, float[] query, int other) {
+        return query == null ? distanceBetween(node, other) : distanceTo(query, other);
+    }
+
+    private float distanceBetween(int a, int b) {
+        return 1 - dot(vectors, a * dimension, vectors, b * dimension);
+    }
+
+    private float distanceTo(float[] query, int node) {
+        return 1 - dot(query, 0, vectors, node * dimension);
+    }
+
+    /**
+     * Dot product with four independent accumulators so the JIT can pipeline the multiply-adds.
+     */
+    private float dot(float[] x, int offsetX, float[] y, int offsetY) {
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < dimension; i += 4) {
+            s0 += x[offsetX + i] * y[offsetY + i];
+            s1 += x[offsetX + i + 1] * y[offsetY + i + 1];
+            s2 += x[offsetX + i + 2] * y[offsetY + i + 2];
+            s3 += x[offsetX + i + 3] * y[offsetY + i + 3];
+        }
+        for (; i < dimension; i++) {
+            s0 += x[offsetX + i] * y[offsetY + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private Embedding embeddingOf(int node) {
+        float[] vector = new float[dimension];
+        int offset = node * dimension;
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = vectors[offset + i] * norms[node];
+        }
+        return Embedding.from(vector);
+    }
+
+    private static float norm(float[] vector) {
+        double sum = 0;
+        for (float v : vector) {
+            sum += v * v;
+        }
+        return (float) Math.sqrt(sum);
+    }
+
+    private record Candidate(int node, float distance) {
+    }
+}
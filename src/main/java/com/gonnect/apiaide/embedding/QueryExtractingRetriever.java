@@ -0,0 +1,119 @@
+package com.gonnect.apiaide.embedding;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.retriever.Retriever;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@code QueryExtractingRetriever} is the retrieval front-end used by the conversational chain.
+ * <p>
+ * The chain hands the retriever the complete user message, which for this application is a full planner,
+ * selector, caller or parser prompt containing instructions and endpoint documentation. Embedding all of it
+ * is expensive and the result is dominated by boilerplate (MiniLM truncates long input anyway).
+ * <p>
+ * This retriever recognises the stage a message comes from, extracts only the salient line - the user query
+ * for the planner, the plan step for the selector and caller - and embeds that. Stages configured as skipped
+ * never hit the embedding model at all.
+ */
+public class QueryExtractingRetriever implements Retriever<TextSegment> {
+
+    static final int MAX_QUERY_LENGTH = 512;
+
+    private static final String PLANNER_MARKER = "You are an agent that plans a solution to user queries";
+    private static final String API_SELECTOR_MARKER = "You are a planner that plans a sequence of RESTful API calls";
+    private static final String CALLER_MARKER = "You are an agent that gets a sequence of API calls";
+    private static final List<String> PARSER_MARKERS = List.of(
+            "your task is to generate Python code",
+            "Your task is to extract some information",
+            "Given a string, due to the maximum context length"
+    );
+
+    private static final Pattern USER_QUERY = Pattern.compile("(?m)^\\s*User query:[ \\t]*(.*)$");
+    private static final Pattern PLAN = Pattern.compile("(?m)^\\s*Plan:[ \\t]*(.*)$");
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{+\\w*}+");
+
+    private final Retriever<TextSegment> delegate;
+    private final Set<RetrievalStage> skippedStages;
+
+    public QueryExtractingRetriever(Retriever<TextSegment> delegate, Set<RetrievalStage> skippedStages) {
+        this.delegate = delegate;
+        this.skippedStages = skippedStages.isEmpty() ? EnumSet.noneOf(RetrievalStage.class) : EnumSet.copyOf(skippedStages);
+    }
+
+    @Override
+    public List<TextSegment> findRelevant(String text) {
+        RetrievalStage stage = detectStage(text);
+        if (skippedStages.contains(stage)) {
+            return List.of();
+        }
+        String query = extractQuery(stage, text);
+        if (query.isBlank()) {
+            return List.of();
+        }
+        return delegate.findRelevant(query);
+    }
+
+    /**
+     * Determines which pipeline stage produced the message.
+     *
+     * @param text the chain message
+     * @return the detected stage
+     */
+    static RetrievalStage detectStage(String text) {
+        if (text.contains(PLANNER_MARKER)) {
+            return RetrievalStage.PLANNER;
+        }
+        if (text.contains(API_SELECTOR_MARKER)) {
+            return RetrievalStage.API_SELECTOR;
+        }
+        if (text.contains(CALLER_MARKER)) {
+            return RetrievalStage.CALLER;
+        }
+        if (PARSER_MARKERS.stream().anyMatch(text::contains)) {
+            return RetrievalStage.PARSER;
+        }
+        return RetrievalStage.OTHER;
+    }
+
+    /**
+     * Extracts the text worth embedding for the given stage.
+     * The prompts put their format description before the actual input, so the last match is the live one.
+     *
+     * @param stage the detected stage
+     * @param text  the chain message
+     * @return the salient text, or an empty string when nothing meaningful was found
+     */
+    static String extractQuery(RetrievalStage stage, String text) {
+        String query = switch (stage) {
+            case PLANNER, API_SELECTOR -> lastGroup(USER_QUERY, text);
+            case CALLER -> lastGroup(PLAN, text);
+            case PARSER, OTHER -> lastNonBlankLine(text);
+        };
+        query = PLACEHOLDER.matcher(query).replaceAll("").trim();
+        return query.length() > MAX_QUERY_LENGTH ? query.substring(0, MAX_QUERY_LENGTH) : query;
+    }
+
+    private static String lastGroup(Pattern pattern, String text) {
+        Matcher matcher = pattern.matcher(text);
+        String last = "";
+        while (matcher.find()) {
+            last = matcher.group(1);
+        }
+        return last;
+    }
+
+    private static String lastNonBlankLine(String text) {
+        String[] lines = text.split("\\R");
+        for (int i = lines.length - 1; i >= 0; i--) {
+            if (!lines[i].isBlank()) {
+                return lines[i];
+            }
+        }
+        return "";
+    }
+}
@@ -0,0 +1,32 @@
+package com.gonnect.apiaide.embedding;
+
+/**
+ * Pipeline stage a chain message originates from, as recognised by {@link QueryExtractingRetriever}.
+ */
+public enum RetrievalStage {
+
+    /**
+     * Planner prompt; the salient part is the user query.
+     */
+    PLANNER,
+
+    /**
+     * API selector prompt; the salient part is the current plan step.
+     */
+    API_SELECTOR,
+
+    /**
+     * Caller prompt; the salient part is the API calling plan.
+     */
+    CALLER,
+
+    /**
+     * Response parsing, code generation and post-processing prompts.
+     */
+    PARSER,
+
+    /**
+     * Anything else, such as retry and follow-up messages.
+     */
+    OTHER
+}
@@ -185,6 +185,60 @@ public class OpenAPISpecUtil {
         });
     }
 
+    /**
+     * Resolves an API call such as "GET /person/1769/movie_credits to get the movies" to the name of the
+     * endpoint it invokes, here "GET /person/{person_id}/movie_credits".
+     * Path variables of the endpoint match any segment; the method and literal segments are compared ignoring case.
+     * When several endpoints match, the one with the most literal segments wins, so "GET /movie/popular" resolves
+     * to "GET /movie/popular" and not to "GET /movie/{movie_id}".
+     *
+     * @param call the call, starting with the method and path
+     * @return the matching endpoint name
+     */
+    public Optional<String> resolveEndpoint(String call) {
+        String[] elements = call.trim().split("\\s+", 3);
+        if (elements.length < 2) {
+            return Optional.empty();
+        }
+        String[] segments = elements[1].split("\\?", 2)[0].split("/");
+
+        String best = null;
+        int bestLiterals = -1;
+        for (String name : getEndpoints()) {
+            int literals = matchedLiterals(name, elements[0], segments);
+            if (literals > bestLiterals) {
+                best = name;
+                bestLiterals = literals;
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+    /**
+     * @return the number of literal segments of the endpoint matching the call, -1 if the call does not match
+     */
+    private static int matchedLiterals(String name, String method, String[] segments) {
+        String[] elements = name.trim().split("\\s+", 2);
+        if (elements.length < 2 || !elements[0].equalsIgnoreCase(method)) {
+            return -1;
+        }
+        String[] templateSegments = elements[1].split("/");
+        if (templateSegments.length != segments.length) {
+            return -1;
+        }
+        int literals = 0;
+        for (int i = 0; i < segments.length; i++) {
+            boolean variable = templateSegments[i].startsWith("{") && templateSegments[i].endsWith("}");
+            if (!variable) {
+                if (!templateSegments[i].equalsIgnoreCase(segments[i])) {
+                    return -1;
+                }
+                literals++;
+            }
+        }
+        return literals;
+    }
+
     private String[] splitEndpoint(String endpoint) {
         String[] elements = endpoint.split("\\s+", 2);
 
@@ -4,19 +4,34 @@ import com.gonnect.apiaide.apiexecution.APIExecution;
 import com.gonnect.apiaide.apiexecution.APIExecutionRequest;
 import com.gonnect.apiaide.apiselector.APISelector;
 import com.gonnect.apiaide.apiselector.APISelectorRequestInput;
+import com.gonnect.apiaide.apiselector.EndpointTransitionModel;
 import com.gonnect.apiaide.apiselector.HistoryTuple;
+import com.gonnect.apiaide.oas.OpenAPISpecUtil;
 import com.gonnect.apiaide.oas.ReducedOpenAPISpec;
 import com.gonnect.apiaide.parser.ParserRequestInput;
 import com.gonnect.apiaide.parser.ResponseParser;
+import com.gonnect.apiaide.plancache.PlanTemplateCache;
+import com.gonnect.apiaide.planner.FusedStep;
+import com.gonnect.apiaide.planner.PlanGraph;
+import com.gonnect.apiaide.planner.PlanGraphCompiler;
 import com.gonnect.apiaide.planner.Planner;
+import com.gonnect.apiaide.planner.Scratchpad;
 import com.gonnect.apiaide.prompts.APISelectorPrompts;
 import com.gonnect.apiaide.prompts.CallerPrompts;
+import com.gonnect.apiaide.request.Deadline;
+import dev.langchain4j.chain.ConversationalRetrievalChain;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
 import static java.util.Map.of;
@@ -30,6 +45,10 @@ import static java.util.Map.of;
 @Service
 public class APIOrchestration {
 
+    private static final Logger log = LoggerFactory.getLogger(APIOrchestration.class);
+    private static final int TIME_BUDGET_SECONDS = 60;
+    private static final Pattern FINAL_ANSWER = Pattern.compile("Final Answer:");
+
     @Autowired
     private Planner planner;
 
@@ -42,93 +61,337 @@ public class APIOrchestration {
     @Autowired
     private ResponseParser responseParser;
 
+    @Autowired
+    private PlanGraphExecutor planGraphExecutor;
+
+    @Autowired
+    private PlanTemplateCache planTemplateCache;
+
+    @Autowired
+    private EndpointTransitionModel transitionModel;
+
+    @Autowired
+    private Supplier<ConversationalRetrievalChain> chainFactory;
+
+    @Value("${apiaide.orchestration.plan-cache:false}")
+    private boolean planCache;
+
+    @Value("${apiaide.orchestration.fused:false}")
+    private boolean fused;
+
+    @Value("${apiaide.orchestration.plan-graph:false}")
+    private boolean planGraph;
+
+    private final PlanGraphCompiler planGraphCompiler = new PlanGraphCompiler();
+
     /**
      * Executes the orchestration of API calls based on the provided user query.
+     * <p>
+     * A query that cannot be completed, such as one for which the selector finds no valid API call, fails on its
+     * own: the failure is logged and returned as the output, so the caller can go on with the next query.
      *
      * @param input The input containing the user query and scenario details.
-     * @return Formatted output of the API calling plan and execution results.
+     * @return Formatted output of the API calling plan and execution results, or of the failure.
      */
     public String run(QueryInput input) {
+        try {
+            return orchestrate(input);
+        } catch (IllegalStateException e) {
+            log.warn("Query failed: {}", input.getQuery(), e);
+            return formatOutput("Query failed: " + e.getMessage());
+        }
+    }
+
+    private String orchestrate(QueryInput input) {
+        if (input.getDeadline() == null) {
+            input.setDeadline(Deadline.after(Duration.ofSeconds(TIME_BUDGET_SECONDS)));
+        }
+        if (planCache) {
+            Optional<PlanTemplateCache.Match> match = planTemplateCache.match(input.getScenario(), input.getQuery());
+            if (match.isPresent()) {
+                return runTemplate(input, match.get());
+            }
+        }
+        if (planGraph) {
+            String output = runPlanGraph(input);
+            if (output != null) {
+                return output;
+            }
+        }
+        if (fused) {
+            return runFused(input);
+        }
+        return runSequential(input);
+    }
+
+    /**
+     * Replays the endpoint sequence of a cached plan template for a query of the same shape.
+     * No planner or selector calls are made: each endpoint is handed to the caller together with the query
+     * and its slot values, and the results of earlier calls are passed on as background.
+     *
+     * @param input The input containing the user query and scenario details.
+     * @param match The template matched for the query.
+     * @return Formatted output of the last parsed response.
+     */
+    private String runTemplate(QueryInput input, PlanTemplateCache.Match match) {
+        log.debug("Replaying plan template '{}' with slots {}", match.template().shape(), match.shape().slots());
+
         String background = "";
-        List<Map<String, String>> exampleHistory = new ArrayList<>();
+        String parsedResult = "";
+        List<String> endpoints = match.template().endpoints();
+        for (int i = 0; i < endpoints.size(); i++) {
+            String apiPlan = String.format("API calling %d: %s to answer \"%s\" (entities: %s)",
+                    i + 1, endpoints.get(i), input.getQuery(), String.join(", ", match.shape().slots()));
 
-        String examplePlan = planner.run(of(
-                "query", input.getQuery(),
-                "history", exampleHistory
+            APIExecutionRequest executionRequest = buildExecutionRequest(input, apiPlan, background, input.getApiSpec());
+            Map<String, String> executionResult = caller.run(executionRequest);
+
+            ParserRequestInput parserInput = buildParserInput(input, executionResult);
+            parsedResult = responseParser.parse(parserInput).get("output");
+            background += parsedResult + "\n";
+        }
+
+        return formatOutput(parsedResult);
+    }
+
+    /**
+     * Plan-graph orchestration.
+     * <p>
+     * The planner produces the whole plan in one call as a dependency graph, which is compiled and executed
+     * with independent API calls running concurrently. A final planner call turns the collected results into
+     * the answer, so a query costs depth-of-graph round trips instead of one per step.
+     * <p>
+     * Every node talks to the model on a chain of its own, so the conversations of concurrent nodes do not mix
+     * in a shared chat memory.
+     *
+     * @param input The input containing the user query and scenario details.
+     * @return Formatted output, or {@code null} when the planner did not produce a usable graph or a node
+     * failed, and the step-by-step orchestration should be used instead.
+     */
+    private String runPlanGraph(QueryInput input) {
+        PlanGraph graph;
+        try {
+            graph = planGraphCompiler.compile(planner.planGraph(input.getQuery(), input.getApiSpec()));
+        } catch (IllegalArgumentException e) {
+            log.info("Falling back to step-by-step planning: {}", e.getMessage());
+            return null;
+        }
+        log.debug("Compiled plan graph with {} calls in {} levels", graph.nodes().size(), graph.depth());
+
+        Map<String, PlanGraphExecutor.NodeResult> results;
+        try {
+            results = planGraphExecutor.execute(graph, (node, call) -> {
+                ConversationalRetrievalChain chain = chainFactory.get();
+                APIExecutionRequest executionRequest = buildExecutionRequest(input, call, "", input.getApiSpec());
+                Map<String, String> executionResult = caller.run(executionRequest, chain);
+
+                ParserRequestInput parserInput = buildParserInput(input, executionResult);
+                if (node.output() != null) {
+                    parserInput.setQuery("What is the " + node.output() + "? Only output the value.");
+                }
+                return responseParser.parse(parserInput, chain).get("output");
+            });
+        } catch (IllegalStateException e) {
+            log.warn("{}, falling back to step-by-step planning", e.getMessage(), e.getCause());
+            return null;
+        }
+
+        resolveEndpoints(input, graph.nodes().stream().map(PlanGraph.Node::call).toList())
+                .ifPresent(endpoints -> recordSuccess(input, endpoints));
+
+        Scratchpad scratchpad = planner.newScratchpad();
+        results.values().forEach(result -> scratchpad.append(result.call(), result.result()));
+
+        String answer = planner.run(of(
+                "input", input.getQuery(),
+                "scratchpad", scratchpad
         )).get("result");
 
-        int iterations = 0;
-        double elapsedTime = 0.0;
+        return formatOutput(answer);
+    }
 
-        // Instance variable
+    /**
+     * Strictly serial orchestration: planner, selector, caller, parser, planner.
+     * <p>
+     * The planner runs once per iteration, after parsing, on the scratchpad of the steps executed so far.
+     * The selector is handed the previous step, its call and parsed result. The loop ends when the planner
+     * gives its final answer, and the endpoints called on the way are then learnt from.
+     *
+     * @param input The input containing the user query and scenario details.
+     * @return Formatted output of the API calling plan and execution results.
+     */
+    private String runSequential(QueryInput input) {
+        String background = "";
+        Scratchpad scratchpad = planner.newScratchpad();
         List<HistoryTuple> history = new ArrayList<>();
 
+        String plan = planner.run(of(
+                "query", input.getQuery(),
+                "scratchpad", scratchpad
+        )).get("result");
+
+        int iterations = 0;
+        double elapsedTime = 0.0;
         HistoryTuple lastHistory = null;
+        String previousEndpoint = null;
+        List<String> endpoints = new ArrayList<>();
+        boolean resolved = true;
 
         while (shouldContinue(iterations, elapsedTime)) {
             long t1 = System.currentTimeMillis();
 
-            // Create temporary history with just the latest step
-            int historySize = exampleHistory.size();
-            List<Map<String, String>> tmpExampleHistory = new ArrayList<>();
-            if (historySize > 0) {
-                tmpExampleHistory.add(exampleHistory.get(historySize - 1));
-
-                // Pass temporary history to planner
-                examplePlan = planner.run(Map.of(
-                        "input", input.getQuery(),
-                        "history", tmpExampleHistory
-                )).get("result");
+            String apiPlan = apiSelector.run(buildSelectorInput(plan, history, lastHistory, input.getApiSpec(), previousEndpoint), input.getScenario());
+            Optional<String> endpoint = apiSelector.selectedEndpoint(apiPlan, input.getApiSpec());
+            if (endpoint.isPresent()) {
+                previousEndpoint = endpoint.get();
+                endpoints.add(previousEndpoint);
+            } else {
+                resolved = false;
             }
 
+            APIExecutionRequest executionRequest = buildExecutionRequest(input, apiPlan, background, input.getApiSpec());
+            Map<String, String> executionResult = caller.run(executionRequest);
 
-            APISelectorRequestInput apiSelectorInput = APISelectorRequestInput.builder()
-                    .plan(examplePlan)
-                    .history(history)
-                    .lastHistory(lastHistory)
-                    .apiSpec(input.getApiSpec()).build();
+            ParserRequestInput parserInput = buildParserInput(input, executionResult);
+            String parsedResult = responseParser.parse(parserInput).get("output");
 
-            String apiPlan = apiSelector.run(apiSelectorInput, input.getScenario());
+            scratchpad.append(plan, parsedResult);
+            lastHistory = new HistoryTuple(plan, apiPlan, parsedResult);
+            background += parsedResult + "\n";
 
-            lastHistory = getLatestHistoryTuple(history);
-            apiSelectorInput.setLastHistory(lastHistory);
+            plan = planner.run(of(
+                    "input", input.getQuery(),
+                    "scratchpad", scratchpad
+            )).get("result");
 
+            iterations++;
+            elapsedTime += (System.currentTimeMillis() - t1) / 1000.0;
 
-            APIExecutionRequest executionRequest = buildExecutionRequest(input, apiPlan, background, input.getApiSpec());
+            if (isFinalAnswer(plan)) {
+                if (resolved) {
+                    recordSuccess(input, endpoints);
+                }
+                break;
+            }
+        }
 
-            Map<String, String> executionResult = caller.run(executionRequest, exampleHistory);
+        return formatOutput(plan);
+    }
+
+    /**
+     * Resolves executed calls to spec endpoints.
+     *
+     * @return the endpoints in call order, or empty if any call does not resolve
+     */
+    private Optional<List<String>> resolveEndpoints(QueryInput input, List<String> calls) {
+        OpenAPISpecUtil spec = OpenAPISpecUtil.builder()
+                .endpoints(input.getApiSpec().getEndpoints())
+                .build();
+        List<String> endpoints = new ArrayList<>();
+        for (String call : calls) {
+            Optional<String> endpoint = spec.resolveEndpoint(call);
+            if (endpoint.isEmpty()) {
+                return Optional.empty();
+            }
+            endpoints.add(endpoint.get());
+        }
+        return Optional.of(endpoints);
+    }
 
-            ParserRequestInput parserInput = buildParserInput(input, executionResult.get("conversation"));
+    /**
+     * Learns from the endpoint sequence of a successfully answered query: its transitions, and the
+     * plan template for the query's shape.
+     */
+    private void recordSuccess(QueryInput input, List<String> endpoints) {
+        transitionModel.observe(input.getScenario(), endpoints);
+        if (planCache) {
+            planTemplateCache.record(input.getScenario(), input.getQuery(), endpoints);
+        }
+    }
 
-            String parsedResult = responseParser.parse(parserInput).get("output");
+    /**
+     * Fused orchestration.
+     * <p>
+     * A single model call returns both the next plan step and its API call, which is validated locally against
+     * the spec. Only when the answer is malformed, or names an endpoint the spec does not have, are the separate
+     * planner and selector calls made for that step. The loop ends as soon as the model returns a final answer.
+     *
+     * @param input The input containing the user query and scenario details.
+     * @return Formatted output of the final answer, or of the last plan step when the limits were reached.
+     */
+    private String runFused(QueryInput input) {
+        String background = "";
+        Scratchpad scratchpad = planner.newScratchpad();
+        List<HistoryTuple> history = new ArrayList<>();
+        OpenAPISpecUtil spec = OpenAPISpecUtil.builder()
+                .endpoints(input.getApiSpec().getEndpoints())
+                .build();
 
-            // Add latest step to full history
-            exampleHistory.add(Map.of(
-                    "plan", examplePlan,
-                    "execution_res", parsedResult
-            ));
+        String plan = "";
+        HistoryTuple lastHistory = null;
+        List<String> endpoints = new ArrayList<>();
+        int iterations = 0;
+        double elapsedTime = 0.0;
 
-            background += parsedResult + "\n";
+        while (shouldContinue(iterations, elapsedTime)) {
+            long t1 = System.currentTimeMillis();
 
-            examplePlan = planner.run(of(
-                    "input", input.getQuery(),
-                    "history", exampleHistory
-            )).get("result");
+            Optional<FusedStep> step = planner.planAndSelect(input.getQuery(), scratchpad, input.getApiSpec());
+            if (step.isPresent() && step.get().isFinal()) {
+                if (!endpoints.isEmpty()) {
+                    recordSuccess(input, endpoints);
+                }
+                return formatOutput(step.get().finalAnswer());
+            }
+
+            String apiPlan;
+            Optional<String> endpoint = step.flatMap(fusedStep -> spec.resolveEndpoint(fusedStep.apiCall()));
+            if (endpoint.isPresent()) {
+                plan = step.get().plan();
+                apiPlan = "API calling 1: " + step.get().apiCall();
+            } else {
+                log.debug("Fused step was not usable, falling back to separate planner and selector calls");
+                plan = step.isPresent()
+                        ? step.get().plan()
+                        : planner.run(of(
+                                "input", input.getQuery(),
+                                "scratchpad", scratchpad
+                        )).get("result");
+                String previousEndpoint = endpoints.isEmpty() ? null : endpoints.get(endpoints.size() - 1);
+                apiPlan = apiSelector.run(buildSelectorInput(plan, history, lastHistory, input.getApiSpec(), previousEndpoint), input.getScenario());
+                endpoint = apiSelector.selectedEndpoint(apiPlan, input.getApiSpec());
+            }
+            endpoint.ifPresent(endpoints::add);
+
+            APIExecutionRequest executionRequest = buildExecutionRequest(input, apiPlan, background, input.getApiSpec());
+            Map<String, String> executionResult = caller.run(executionRequest);
 
-            long t2 = System.currentTimeMillis();
+            ParserRequestInput parserInput = buildParserInput(input, executionResult);
+            String parsedResult = responseParser.parse(parserInput).get("output");
+
+            scratchpad.append(plan, parsedResult);
+            lastHistory = new HistoryTuple(plan, apiPlan, parsedResult);
+            background += parsedResult + "\n";
 
             iterations++;
-            elapsedTime += (t2 - t1) / 1000.0;
+            elapsedTime += (System.currentTimeMillis() - t1) / 1000.0;
         }
 
-        return formatOutput(examplePlan);
+        return formatOutput(plan);
     }
 
-    private HistoryTuple getLatestHistoryTuple(List<HistoryTuple> history) {
-        if (history.isEmpty()) {
-            return null;
-        }
-        return history.get(history.size() - 1);
+    private APISelectorRequestInput buildSelectorInput(String plan,
+                                                       List<HistoryTuple> history,
+                                                       HistoryTuple lastHistory,
+                                                       ReducedOpenAPISpec apiSpec,
+                                                       String previousEndpoint) {
+        return APISelectorRequestInput.builder()
+                .plan(plan)
+                .history(history)
+                .lastHistory(lastHistory)
+                .apiSpec(apiSpec)
+                .previousEndpoint(previousEndpoint)
+                .build();
     }
 
     private void addToHistory(String plan, String apiCall, String result, List<HistoryTuple> history) {
@@ -144,7 +407,7 @@ public class APIOrchestration {
      * @return {@code true} if the orchestration should continue; otherwise, {@code false}.
      */
     private boolean shouldContinue(int iterations, double elapsedTime) {
-        return (iterations < 15 && elapsedTime < 60);
+        return (iterations < 15 && elapsedTime < TIME_BUDGET_SECONDS);
     }
 
     /**
@@ -175,17 +438,25 @@ public class APIOrchestration {
         request.setScenario(input.getScenario());
         request.setParameters(input.getParameters());
         request.setApiSpec(apiSpec);
+        request.setDeadline(input.getDeadline());
         return request;
     }
 
     /**
-     * Builds the parser input with the provided input and conversation details.
+     * The parser works on the real API response when the caller got one, and on the caller conversation otherwise.
+     */
+    private static String parserPayload(Map<String, String> executionResult) {
+        return executionResult.getOrDefault("response", executionResult.get("conversation"));
+    }
+
+    /**
+     * Builds the parser input with the provided input and execution result.
      *
-     * @param input        The input containing query and parameters.
-     * @param conversation The conversation text to include in parsing.
+     * @param input           The input containing query and parameters.
+     * @param executionResult The caller's result, with the response or conversation to parse.
      * @return The constructed parser input.
      */
-    private ParserRequestInput buildParserInput(QueryInput input, String conversation) {
+    private ParserRequestInput buildParserInput(QueryInput input, Map<String, String> executionResult) {
         Map<String, String> params = input.getParameters();
         String apiDescription = params.get("apiDescription");
         String apiParam = params.get("apiParam");
@@ -198,10 +469,21 @@ public class APIOrchestration {
                 .apiParam(apiParam)
                 .apiPath(apiPath)
                 .responseDescription(responseDescription)
-                .json(conversation)
+                .json(parserPayload(executionResult))
+                .endpoint(executionResult.get("endpoint"))
                 .build();
     }
 
+    /**
+     * Checks whether the planner has finished executing the plan and answered the query.
+     *
+     * @param plan The planner output to be checked.
+     * @return {@code true} if the output holds the final answer; otherwise, {@code false}.
+     */
+    private boolean isFinalAnswer(String plan) {
+        return FINAL_ANSWER.matcher(plan).find();
+    }
+
     /**
      * Checks whether the provided API plan indicates the need to continue the planning process.
      *
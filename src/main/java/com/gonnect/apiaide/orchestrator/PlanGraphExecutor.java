@@ -0,0 +1,100 @@
+package com.gonnect.apiaide.orchestrator;
+
+import com.gonnect.apiaide.planner.PlanGraph;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * {@code PlanGraphExecutor} runs the nodes of a {@link PlanGraph} as soon as their dependencies complete.
+ * <p>
+ * Every node becomes a future chained on the futures of the nodes it depends on, so independent calls run
+ * concurrently (bounded by the pool size) and no pool thread ever blocks waiting for another node.
+ * Values produced by nodes are bound into the placeholders of their dependents before they run.
+ */
+@Component
+public class PlanGraphExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(PlanGraphExecutor.class);
+
+    private final ExecutorService pool;
+
+    public PlanGraphExecutor(@Value("${apiaide.orchestration.plan-graph-parallelism:4}") int parallelism) {
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "plan-graph-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Executes the graph.
+     *
+     * @param graph the compiled plan
+     * @param step  runs one node: receives the node and its call with placeholders bound, returns the node's result
+     * @return the bound call and result of every node, by node id in topological order
+     * @throws IllegalStateException if a node fails; dependents of a failed node are not run
+     */
+    public Map<String, NodeResult> execute(PlanGraph graph, BiFunction<PlanGraph.Node, String, String> step) {
+        Map<String, String> values = new ConcurrentHashMap<>();
+        Map<String, CompletableFuture<NodeResult>> futures = new HashMap<>();
+
+        // Nodes are in topological order, so the futures of all dependencies already exist
+        for (PlanGraph.Node node : graph.nodes()) {
+            CompletableFuture<?>[] dependencies = node.dependsOn().stream()
+                    .map(futures::get)
+                    .toArray(CompletableFuture[]::new);
+            CompletableFuture<NodeResult> future = CompletableFuture.allOf(dependencies)
+                    .thenApplyAsync(ignored -> {
+                        String call = node.bind(values);
+                        long start = System.currentTimeMillis();
+                        String result = step.apply(node, call);
+                        log.debug("Plan node {} (level {}) finished in {} ms", node.id(), node.level(), System.currentTimeMillis() - start);
+                        if (node.output() != null) {
+                            values.put(node.output(), result.trim());
+                        }
+                        return new NodeResult(call, result);
+                    }, pool);
+            futures.put(node.id(), future);
+        }
+
+        Map<String, NodeResult> results = new LinkedHashMap<>();
+        for (PlanGraph.Node node : graph.nodes()) {
+            try {
+                results.put(node.id(), futures.get(node.id()).join());
+            } catch (CompletionException e) {
+                futures.values().forEach(future -> future.cancel(true));
+                throw new IllegalStateException("Plan node " + node.id() + " failed", e.getCause());
+            }
+        }
+        return results;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Outcome of one node.
+     *
+     * @param call   the executed call, placeholders bound
+     * @param result the node's result
+     */
+    public record NodeResult(String call, String result) {
+    }
+}
@@ -1,6 +1,7 @@
 package com.gonnect.apiaide.orchestrator;
 
 import com.gonnect.apiaide.oas.ReducedOpenAPISpec;
+import com.gonnect.apiaide.request.Deadline;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -22,6 +23,8 @@ public class QueryInput {
 
     private Map<String, String> parameters; // Additional parameters
 
+    private Deadline deadline; // Set when the orchestration starts, unless given
+
     public QueryInput() {
         this.parameters = new HashMap<>();
     }
@@ -0,0 +1,186 @@
+package com.gonnect.apiaide.parser;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.gonnect.apiaide.plancache.QueryShape;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@code ExtractionProgramStore} remembers the generated Python that extracted an answer from a response, so
+ * the same extraction from the same kind of response does not need the LLM to write it again.
+ * <p>
+ * Programs are stored under a {@link Key}: the endpoint, a fingerprint of the response's structure and the
+ * intent of the query, its {@link QueryShape} in lower case. "What is the id of Tom Hanks?" and "What is the
+ * id of Meryl Streep?" have the same intent, so a program is only kept if it does not contain any entity of
+ * the query it was written for. Only verified programs are stored, ones that ran without error and printed
+ * something; a stored program that fails on a later response is forgotten.
+ * <p>
+ * At most {@code maxEntries} programs are kept, evicting the least recently used first.
+ */
+@Component
+public class ExtractionProgramStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ExtractionProgramStore.class);
+    // Deeper levels differ most between responses of an endpoint, and a program that does not fit is forgotten
+    private static final int MAX_DEPTH = 3;
+    private static final int SAMPLED_ELEMENTS = 5;
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final LinkedHashMap<Key, String> programs = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public ExtractionProgramStore(@Value("${apiaide.parser.program-cache.enabled:false}") boolean enabled,
+                                  @Value("${apiaide.parser.program-cache.max-entries:1024}") int maxEntries) {
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param endpoint the endpoint that returned the response, e.g. "GET /search/person"
+     * @param response the response
+     * @param query    the query the response is parsed for
+     * @return the key, empty if there is no endpoint or the response is not a JSON object or array
+     */
+    public static Optional<Key> key(String endpoint, JsonNode response, String query) {
+        if (endpoint == null || endpoint.isBlank() || response == null || !response.isContainerNode() || query == null) {
+            return Optional.empty();
+        }
+        String intent = QueryShape.of(query.trim()).shape().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+        return Optional.of(new Key(endpoint.trim(), fingerprint(response), intent));
+    }
+
+    public synchronized Optional<String> lookup(Key key) {
+        String program = programs.get(key);
+        if (program == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(program);
+    }
+
+    /**
+     * Stores a program that was verified on a response.
+     *
+     * @param key     the key of the response it ran on
+     * @param program the program
+     * @param query   the query it was written for
+     * @return {@code true} if the program was stored, {@code false} if it is specific to the query's entities
+     */
+    public boolean remember(Key key, String program, String query) {
+        String lowerCaseProgram = program.toLowerCase(Locale.ROOT);
+        for (String slot : QueryShape.of(query.trim()).slots()) {
+            if (lowerCaseProgram.contains(slot.toLowerCase(Locale.ROOT))) {
+                log.debug("Not storing the program for {}, it mentions \"{}\" of the query", key.endpoint(), slot);
+                return false;
+            }
+        }
+        synchronized (this) {
+            programs.put(key, program);
+            while (programs.size() > maxEntries) {
+                programs.remove(programs.keySet().iterator().next());
+            }
+        }
+        stored.increment();
+        return true;
+    }
+
+    /**
+     * Forgets a stored program that did not work on a response of its key.
+     */
+    public synchronized void forget(Key key) {
+        if (programs.remove(key) != null) {
+            invalidations.increment();
+        }
+    }
+
+    /**
+     * Fingerprints the structure of a response: its field paths and whether each is an object or an array,
+     * leaving out values and scalar types, which vary between responses of an endpoint (a field may be null in
+     * one and a string in the next). The elements of an array are sampled, and their paths merged; only the
+     * top levels are taken into account.
+     */
+    static String fingerprint(JsonNode response) {
+        TreeSet<String> paths = new TreeSet<>();
+        collect(response, "", 0, paths);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(String.join("\n", paths).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void collect(JsonNode node, String path, int depth, TreeSet<String> paths) {
+        if (depth > MAX_DEPTH) {
+            return;
+        }
+        if (node.isObject()) {
+            paths.add(path + "{}");
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                String fieldPath = path + "/" + field.getKey();
+                paths.add(fieldPath);
+                collect(field.getValue(), fieldPath, depth + 1, paths);
+            }
+        } else if (node.isArray()) {
+            paths.add(path + "[]");
+            for (int i = 0; i < Math.min(node.size(), SAMPLED_ELEMENTS); i++) {
+                collect(node.get(i), path + "[]", depth + 1, paths);
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return programs.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getStored() {
+        return stored.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    /**
+     * @param endpoint the endpoint, e.g. "GET /search/person"
+     * @param schema   the fingerprint of the response structure
+     * @param intent   the normalized query shape
+     */
+    public record Key(String endpoint, String schema, String intent) {
+    }
+}
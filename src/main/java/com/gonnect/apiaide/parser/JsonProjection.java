@@ -0,0 +1,153 @@
+package com.gonnect.apiaide.parser;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@code JsonProjection} names the parts of an API response that are needed, so the
+ * {@link StreamingJsonProjector} can drop the rest while the response is read.
+ * <p>
+ * Parts are named by paths of field names, e.g. {@code results.id}: arrays are transparent, so the path keeps
+ * the {@code id} of every element of {@code results}, and {@code *} matches any field name. The value at the end
+ * of a path is kept whole. Parts can also be named by field names alone, which are kept wherever they appear;
+ * an object or array kept this way is filtered by the same names, except for the scalar elements of arrays.
+ * <p>
+ * An empty projection keeps the whole response.
+ */
+public final class JsonProjection {
+
+    public static final JsonProjection ALL = new JsonProjection(new Node(), Set.of());
+
+    private static final Pattern PATH_INDEX = Pattern.compile("\\[[^]]*]");
+    private static final Pattern STRING_KEY = Pattern.compile("[\"']([A-Za-z_][A-Za-z0-9_\\-]*)[\"']");
+    private static final int MAX_SCHEMA_DEPTH = 16;
+
+    private final Node root;
+    private final Set<String> fields;
+
+    private JsonProjection(Node root, Set<String> fields) {
+        this.root = root;
+        this.fields = fields;
+        if (root.children.isEmpty() && fields.isEmpty()) {
+            root.terminal = true;
+        }
+    }
+
+    /**
+     * @param paths paths of field names such as {@code results.id} or {@code results[].title}; a leading
+     *              {@code $} or {@code data} is ignored
+     */
+    public static JsonProjection ofPaths(Collection<String> paths) {
+        Node root = new Node();
+        for (String path : paths) {
+            Node node = root;
+            for (String segment : PATH_INDEX.matcher(path.trim()).replaceAll("").split("\\.")) {
+                if (!segment.isEmpty() && !(node == root && (segment.equals("$") || segment.equals("data")))) {
+                    node = node.children.computeIfAbsent(segment, name -> new Node());
+                }
+            }
+            if (node != root) {
+                node.terminal = true;
+            }
+        }
+        return new JsonProjection(root, Set.of());
+    }
+
+    /**
+     * @param names field names to keep wherever they appear
+     */
+    public static JsonProjection ofFields(Collection<String> names) {
+        return new JsonProjection(new Node(), Set.copyOf(names));
+    }
+
+    /**
+     * Derives the projection an extraction program needs from the keys it uses, e.g. {@code data["results"]} or
+     * {@code movie.get('title')}.
+     *
+     * @param code           the Python code run on the response
+     * @param responseSchema the response schema from the OAS, null if unknown
+     * @return the paths of the response schema leading to those keys, or the keys as field names without a schema
+     */
+    public static JsonProjection fromCode(String code, Map<String, Object> responseSchema) {
+        Set<String> keys = new LinkedHashSet<>();
+        Matcher key = STRING_KEY.matcher(code);
+        while (key.find()) {
+            keys.add(key.group(1));
+        }
+        if (keys.isEmpty()) {
+            return ALL;
+        }
+        if (responseSchema == null) {
+            return ofFields(keys);
+        }
+        List<String> paths = new ArrayList<>();
+        schemaPaths(responseSchema, "", keys, paths, 0);
+        return paths.isEmpty() ? ofFields(keys) : ofPaths(paths);
+    }
+
+    /**
+     * Collects the paths to properties named by {@code keys}. A property whose own properties are named too is
+     * narrowed down to those, so {@code data["results"]} followed by {@code movie["title"]} keeps
+     * {@code results.title} and not all of {@code results}.
+     */
+    @SuppressWarnings("unchecked")
+    private static void schemaPaths(Map<String, Object> schema, String prefix, Set<String> keys, List<String> paths, int depth) {
+        if (depth > MAX_SCHEMA_DEPTH) {
+            return;
+        }
+        if (schema.get("items") instanceof Map<?, ?> items) {
+            schemaPaths((Map<String, Object>) items, prefix, keys, paths, depth + 1);
+        }
+        if (schema.get("properties") instanceof Map<?, ?> properties) {
+            properties.forEach((name, property) -> {
+                String path = prefix.isEmpty() ? String.valueOf(name) : prefix + "." + name;
+                List<String> nested = new ArrayList<>();
+                if (property instanceof Map<?, ?> propertySchema) {
+                    schemaPaths((Map<String, Object>) propertySchema, path, keys, nested, depth + 1);
+                }
+                if (nested.isEmpty() && keys.contains(String.valueOf(name))) {
+                    paths.add(path);
+                } else {
+                    paths.addAll(nested);
+                }
+            });
+        }
+    }
+
+    public boolean isAll() {
+        return root.terminal;
+    }
+
+    Node root() {
+        return root;
+    }
+
+    Set<String> fields() {
+        return fields;
+    }
+
+    /**
+     * A field of the paths, with the fields below it.
+     */
+    static final class Node {
+
+        private final Map<String, Node> children = new HashMap<>();
+        private boolean terminal;
+
+        Node child(String name) {
+            Node child = children.get(name);
+            return child != null ? child : children.get("*");
+        }
+
+        boolean isTerminal() {
+            return terminal;
+        }
+    }
+}
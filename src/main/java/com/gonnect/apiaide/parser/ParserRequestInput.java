@@ -15,5 +15,6 @@ public class ParserRequestInput {
     private String apiPath;
     private String apiDescription;
     private String responseDescription;  // Added field for response_description
+    private String endpoint;  // Endpoint that returned the response, e.g. "GET /search/person"
 
 }
@@ -1,16 +1,19 @@
 package com.gonnect.apiaide.parser;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gonnect.apiaide.python.PythonExecutionService;
 import dev.langchain4j.chain.ConversationalRetrievalChain;
 import dev.langchain4j.model.input.Prompt;
 import dev.langchain4j.model.input.PromptTemplate;
 import lombok.SneakyThrows;
-import org.apache.commons.codec.binary.Base64;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.Optional;
 
@@ -30,6 +33,10 @@ import static java.util.Optional.ofNullable;
  * which sequentially tries different strategies, such as code parsing based on JSON schema, code parsing based on JSON response snippet,
  * and direct parsing using the LLM. Additionally, it handles post-processing of the output if its length exceeds a specified maximum.
  * <p>
+ * Generated code that worked is kept in the {@link ExtractionProgramStore}; when the same endpoint returns a response
+ * of the same structure for a query of the same shape, the stored code runs directly and the LLM is not asked to
+ * write it again.
+ * <p>
  * The class utilizes prompt templates and conversational chains to facilitate communication with the LLM.
  * It includes methods for generating Python code, executing Python code, tracking intermediate steps, encoding input JSON, and post-processing.
  * <p>
@@ -48,9 +55,14 @@ import static java.util.Optional.ofNullable;
 @Service
 public class ResponseParser {
 
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     private final Logger logger = LoggerFactory.getLogger(ResponseParser.class);
     private final PythonExecutionService pythonService;
     private final ConversationalRetrievalChain chain;
+    private final ExtractionProgramStore programs;
+    private final StreamingJsonProjector projector;
+    private final boolean projection;
 
     /**
      * Constructs a ResponseParser with the specified PythonExecutionService.
@@ -59,12 +71,20 @@ public class ResponseParser {
      * @param chain         Chain for parsing API response based on JSON schema and query.
      *                      Chain for directly parsing and summarizing response using LLM.
      *                      Chain for post-processing truncated output if needed
+     * @param projector     Projector cutting the response down to the fields the generated code uses.
+     * @param projection    Whether to project the response before handing it to the generated code.
+     * @param programs      Store of generated code that worked, reused instead of generating it again.
      */
     public ResponseParser(PythonExecutionService pythonService,
-                          ConversationalRetrievalChain chain) {
+                          ConversationalRetrievalChain chain,
+                          StreamingJsonProjector projector,
+                          @Value("${apiaide.parser.projection.enabled:false}") boolean projection,
+                          ExtractionProgramStore programs) {
         this.pythonService = pythonService;
         this.chain = chain;
-
+        this.programs = programs;
+        this.projector = projector;
+        this.projection = projection;
     }
 
     /**
@@ -75,16 +95,31 @@ public class ResponseParser {
      * @return A Map containing the parsed output with the key as OUTPUT_KEY.
      */
     public Map<String, String> parse(ParserRequestInput input) {
+        return parse(input, chain);
+    }
 
+    /**
+     * Parses an API response as {@link #parse(ParserRequestInput)} does, talking to the model on the given chain.
+     *
+     * @param input The RequestInput containing query and API information.
+     * @param chain The chain to talk to the model on, with a memory of its own for concurrent parsing.
+     * @return A Map containing the parsed output with the key as OUTPUT_KEY.
+     */
+    public Map<String, String> parse(ParserRequestInput input, ConversationalRetrievalChain chain) {
+        JsonNode response = readResponse(input.getJson());
+        Optional<ExtractionProgramStore.Key> key = programs.isEnabled()
+                ? ExtractionProgramStore.key(input.getEndpoint(), response, input.getQuery())
+                : Optional.empty();
 
-        // Try different parsing strategies
-        String output = tryCodeTemplate(input, codeParsingSchemaTemplate)
-                .orElse(tryCodeTemplate(input, codeParsingResponseTemplate)
-                        .orElse(tryLLMParsing(input, llmParsingTemplate)));
+        // Try different parsing strategies, each only if the ones before it gave no output
+        String output = key.flatMap(programKey -> tryStoredProgram(programKey, input, response))
+                .or(() -> tryCodeTemplate(input, response, key, codeParsingSchemaTemplate, chain))
+                .or(() -> tryCodeTemplate(input, response, key, codeParsingResponseTemplate, chain))
+                .orElseGet(() -> tryLLMParsing(input, llmParsingTemplate, chain));
 
         // Post-process if output length exceeds maximum allowed
         if (output.length() > MAX_OUTPUT_LENGTH) {
-            postProcess(output, from(POSTPROCESS_TEMPLATE));
+            postProcess(output, from(POSTPROCESS_TEMPLATE), chain);
         }
 
         return of(ParsingConstants.OUTPUT_KEY, output);
@@ -109,17 +144,67 @@ public class ResponseParser {
      * Attempts to execute Python code based on a code template.
      *
      * @param input    The RequestInput containing query and API information.
+     * @param response The response, null if it is not JSON.
+     * @param key      The key to store the code under if it works, if the code can be stored.
      * @param template The PromptTemplate for generating Python code.
+     * @param chain    The chain generating the code.
      * @return An optional output string if successful, otherwise empty.
      */
-    private Optional<String> tryCodeTemplate(ParserRequestInput input, PromptTemplate template) {
-        String code = generateCode(input, template);
-        String encodedJson = encodeInput(input.getJson());
-        String output = executePythonCode(code, encodedJson);
-        if (output != null) {
-            trackIntermediateStep(code, output);
+    private Optional<String> tryCodeTemplate(ParserRequestInput input, JsonNode response,
+                                             Optional<ExtractionProgramStore.Key> key, PromptTemplate template,
+                                             ConversationalRetrievalChain chain) {
+        if (response == null) {
+            // There is no data for the code to run on
+            return Optional.empty();
+        }
+        String code = generateCode(input, template, chain);
+        Optional<String> output = runCode(code, input.getJson(), response);
+        output.ifPresent(result -> {
+            trackIntermediateStep(code, result);
+            key.ifPresent(programKey -> programs.remember(programKey, code, input.getQuery()));
+        });
+        return output;
+    }
+
+    /**
+     * Runs the stored code for responses like this one, forgetting it if it does not work on this response.
+     *
+     * @param key      The key of the response.
+     * @param input    The RequestInput containing query and API information.
+     * @param response The response.
+     * @return An optional output string if code was stored and worked, otherwise empty.
+     */
+    private Optional<String> tryStoredProgram(ExtractionProgramStore.Key key, ParserRequestInput input, JsonNode response) {
+        return programs.lookup(key).flatMap(code -> {
+            Optional<String> output = runCode(code, input.getJson(), response);
+            if (output.isPresent()) {
+                trackIntermediateStep(code, output.get());
+            } else {
+                programs.forget(key);
+            }
+            return output;
+        });
+    }
+
+    /**
+     * Runs Python code on the response.
+     *
+     * @param code     The Python code.
+     * @param json     The response as text.
+     * @param response The response.
+     * @return The output, empty if the code failed or printed nothing.
+     */
+    private Optional<String> runCode(String code, String json, JsonNode response) {
+        try {
+            String output = projection
+                    ? executePythonCode(code, projectResponse(code, json))
+                    : executePythonCode(code, MAPPER.convertValue(response, Object.class));
+            return ofNullable(output).filter(result -> !result.isBlank());
+        } catch (Exception e) {
+            // Python errors, and a response the projection cannot read
+            logger.debug("Code failed: {}", e.getMessage());
+            return Optional.empty();
         }
-        return ofNullable(output);
     }
 
     /**
@@ -127,9 +212,11 @@ public class ResponseParser {
      *
      * @param input              The RequestInput containing query and API information.
      * @param llmParsingTemplate The PromptTemplate for LLM parsing.
+     * @param chain              The chain parsing the response.
      * @return The parsed output based on LLM.
      */
-    private String tryLLMParsing(ParserRequestInput input, PromptTemplate llmParsingTemplate) {
+    private String tryLLMParsing(ParserRequestInput input, PromptTemplate llmParsingTemplate,
+                                 ConversationalRetrievalChain chain) {
         return chain.execute(llmParsingTemplate.apply(input).text());
     }
 
@@ -138,8 +225,9 @@ public class ResponseParser {
      *
      * @param output              The output to post-process.
      * @param postprocessTemplate The PromptTemplate for post-processing.
+     * @param chain               The chain post-processing the output.
      */
-    private void postProcess(String output, PromptTemplate postprocessTemplate) {
+    private void postProcess(String output, PromptTemplate postprocessTemplate, ConversationalRetrievalChain chain) {
         chain.execute(postprocessTemplate.apply(output).text());
     }
 
@@ -148,9 +236,10 @@ public class ResponseParser {
      *
      * @param input    The RequestInput containing query and API information.
      * @param template The PromptTemplate for generating Python code.
+     * @param chain    The chain generating the code.
      * @return The generated Python code.
      */
-    private String generateCode(ParserRequestInput input, PromptTemplate template) {
+    private String generateCode(ParserRequestInput input, PromptTemplate template, ConversationalRetrievalChain chain) {
         Prompt prompt = template.apply(of("query", input.getQuery(), "json", input.getJson(),
                 "api_path", input.getApiPath(), "api_description", input.getApiDescription(),
                 "api_param", input.getApiParam(), "response_description", input.getResponseDescription()));
@@ -158,15 +247,28 @@ public class ResponseParser {
     }
 
     /**
-     * Executes Python code and returns the output.
+     * Executes Python code on a response that has already been read.
      *
      * @param code The Python code to execute.
-     * @param json The encoded JSON input for the Python code.
+     * @param data The response, as maps and lists.
      * @return The output of the Python code.
      */
+    private String executePythonCode(String code, Object data) {
+        return pythonService.execute(code, of("data", data)).toString();
+    }
+
+    /**
+     * Reads the response keeping only the fields the code uses, so only those are converted for Python.
+     * The caller has buffered the body already, so it is projected in one piece rather than streamed.
+     *
+     * @param code The Python code that will run on the response.
+     * @param json The response.
+     * @return The projected response, as maps and lists.
+     */
     @SneakyThrows
-    private String executePythonCode(String code, String json) {
-        return pythonService.execute(code, of("data", new ObjectMapper().readValue(json, Map.class))).toString();
+    private Object projectResponse(String code, String json) {
+        JsonNode projected = projector.project(json.getBytes(StandardCharsets.UTF_8), JsonProjection.fromCode(code, null));
+        return MAPPER.convertValue(projected, Object.class);
     }
 
     /**
@@ -180,13 +282,21 @@ public class ResponseParser {
     }
 
     /**
-     * Encodes the input JSON into Base64 format.
+     * Reads the response the code runs on.
      *
-     * @param input The JSON input to encode.
-     * @return The Base64-encoded input.
+     * @param json The response.
+     * @return The response, null if it is not a JSON object or array.
      */
-    private String encodeInput(String input) {
-        return Base64.encodeBase64String(input.getBytes());
+    private static JsonNode readResponse(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            JsonNode response = MAPPER.readTree(json);
+            return response != null && response.isContainerNode() ? response : null;
+        } catch (IOException e) {
+            return null;
+        }
     }
 }
 
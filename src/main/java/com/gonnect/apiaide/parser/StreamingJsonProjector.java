@@ -0,0 +1,274 @@
+package com.gonnect.apiaide.parser;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ContainerNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code StreamingJsonProjector} reads a JSON response token by token as its bytes arrive and keeps only the
+ * parts named by a {@link JsonProjection}.
+ * <p>
+ * Only the kept parts are ever built as a tree; everything else is dropped as it is read, so a huge list
+ * response costs no more memory than the fields taken from it. Objects and arrays that contain nothing that is
+ * kept are dropped too, except inside an array that keeps something: there an element without kept parts is
+ * replaced by an empty object or array, or by null for a value, so the kept elements stay at their positions.
+ * <p>
+ * The {@link ResponseParser} projects response bodies that are already buffered, because the caller reads
+ * the whole body to show it to the model; the streaming entry point serves callers that read a response
+ * through {@link com.gonnect.apiaide.request.RequestWrapper#stream} only to project it.
+ */
+@Component
+public class StreamingJsonProjector {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Projects a response body as it streams in. The buffers are released as soon as they are read.
+     *
+     * @param body       the body, e.g. from {@link com.gonnect.apiaide.request.RequestWrapper#stream}
+     * @param projection the parts to keep
+     * @return the projected response; an empty object or array if nothing is kept
+     */
+    public Mono<JsonNode> project(Flux<DataBuffer> body, JsonProjection projection) {
+        return Mono.defer(() -> {
+            Session session = new Session(projection);
+            return body
+                    .doOnNext(buffer -> {
+                        try {
+                            byte[] bytes = new byte[buffer.readableByteCount()];
+                            buffer.read(bytes);
+                            session.feed(bytes, 0, bytes.length);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        } finally {
+                            DataBufferUtils.release(buffer);
+                        }
+                    })
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                    .then(Mono.fromCallable(session::finish));
+        });
+    }
+
+    /**
+     * Projects a response that has been read completely.
+     */
+    public JsonNode project(byte[] body, JsonProjection projection) throws IOException {
+        Session session = new Session(projection);
+        session.feed(body, 0, body.length);
+        return session.finish();
+    }
+
+    /**
+     * The projection of one response, fed with its bytes in the chunks they arrive in.
+     */
+    static final class Session {
+
+        private final JsonProjection projection;
+        private final JsonParser parser;
+        private final ByteArrayFeeder feeder;
+
+        private Frame top;
+        private JsonNode result;
+        private JsonToken rootToken;
+
+        private TokenBuffer capture;
+        private int captureDepth;
+        private Frame captureParent;
+        private String captureField;
+
+        Session(JsonProjection projection) {
+            this.projection = projection;
+            try {
+                this.parser = MAPPER.getFactory().createNonBlockingByteArrayParser();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        }
+
+        void feed(byte[] bytes, int offset, int length) throws IOException {
+            feeder.feedInput(bytes, offset, offset + length);
+            drain();
+        }
+
+        JsonNode finish() throws IOException {
+            feeder.endOfInput();
+            drain();
+            if (rootToken == null || top != null || capture != null) {
+                throw new IOException("The response ended before its JSON was complete");
+            }
+            if (result == null) {
+                return rootToken == JsonToken.START_ARRAY ? MAPPER.createArrayNode() : MAPPER.createObjectNode();
+            }
+            return result;
+        }
+
+        private void drain() throws IOException {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                handle(token);
+            }
+        }
+
+        private void handle(JsonToken token) throws IOException {
+            if (capture != null) {
+                capture.copyCurrentEvent(parser);
+                if (token.isStructStart()) {
+                    captureDepth++;
+                } else if (token.isStructEnd()) {
+                    captureDepth--;
+                }
+                if (captureDepth == 0) {
+                    endCapture();
+                }
+                return;
+            }
+            if (token == JsonToken.FIELD_NAME) {
+                top.field = parser.currentName();
+                return;
+            }
+            if (token.isStructEnd()) {
+                Frame done = top;
+                top = top.parent;
+                if (done.out == null) {
+                    skip(top, done.array ? JsonToken.START_ARRAY : JsonToken.START_OBJECT);
+                }
+                return;
+            }
+            if (rootToken == null) {
+                rootToken = token;
+            }
+
+            // A value: decide whether to keep it whole, look inside it or drop it
+            Frame parent = top;
+            String field = parent == null || parent.array ? null : parent.field;
+            JsonProjection.Node node;
+            boolean named;
+            if (parent == null) {
+                node = projection.root();
+                named = false;
+            } else if (parent.array) {
+                node = parent.node;
+                named = parent.kept;
+            } else {
+                node = parent.node == null ? null : parent.node.child(field);
+                named = projection.fields().contains(field);
+            }
+
+            boolean container = token.isStructStart();
+            if ((node != null && node.isTerminal()) || (named && !container)) {
+                capture = new TokenBuffer(MAPPER, false);
+                capture.copyCurrentEvent(parser);
+                captureDepth = container ? 1 : 0;
+                captureParent = parent;
+                captureField = field;
+                if (captureDepth == 0) {
+                    endCapture();
+                }
+            } else if (container) {
+                top = new Frame(parent, field, token == JsonToken.START_ARRAY, node, named);
+                if (named) {
+                    materialize(top);
+                }
+            } else {
+                skip(parent, token);
+            }
+        }
+
+        /**
+         * Holds the place of a dropped array element, in case the array keeps a later one. Until it does, only
+         * the first token of each dropped element is remembered.
+         */
+        private void skip(Frame parent, JsonToken element) {
+            if (parent == null || !parent.array) {
+                return;
+            }
+            if (parent.out != null) {
+                ((ArrayNode) parent.out).add(placeholder(element));
+            } else {
+                parent.skipped.add(element);
+            }
+        }
+
+        private static JsonNode placeholder(JsonToken element) {
+            return switch (element) {
+                case START_OBJECT -> MAPPER.createObjectNode();
+                case START_ARRAY -> MAPPER.createArrayNode();
+                default -> NullNode.getInstance();
+            };
+        }
+
+        private void endCapture() throws IOException {
+            JsonNode value = MAPPER.readTree(capture.asParser());
+            capture = null;
+            attach(captureParent, captureField, value);
+        }
+
+        private void attach(Frame parent, String field, JsonNode value) {
+            if (parent == null) {
+                result = value;
+                return;
+            }
+            materialize(parent);
+            if (parent.array) {
+                ((ArrayNode) parent.out).add(value);
+            } else {
+                ((ObjectNode) parent.out).set(field, value);
+            }
+        }
+
+        /**
+         * Builds the node of an object or array, and of its parents, once something in it is kept.
+         */
+        private void materialize(Frame frame) {
+            if (frame.out == null) {
+                frame.out = frame.array ? MAPPER.createArrayNode() : MAPPER.createObjectNode();
+                attach(frame.parent, frame.nameInParent, frame.out);
+                if (frame.array) {
+                    frame.skipped.forEach(element -> ((ArrayNode) frame.out).add(placeholder(element)));
+                    frame.skipped.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * An object or array being read.
+     */
+    private static final class Frame {
+
+        final Frame parent;
+        final String nameInParent;
+        final boolean array;
+        final JsonProjection.Node node;
+        final boolean kept;
+        final List<JsonToken> skipped = new ArrayList<>();
+        ContainerNode<?> out;
+        String field;
+
+        Frame(Frame parent, String nameInParent, boolean array, JsonProjection.Node node, boolean kept) {
+            this.parent = parent;
+            this.nameInParent = nameInParent;
+            this.array = array;
+            this.node = node;
+            this.kept = kept;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.gonnect.apiaide.plancache;
+
+import java.util.List;
+
+/**
+ * A verified plan for one query shape: the endpoints that answered a query of that shape, in call order.
+ *
+ * @param scenario  the API scenario, e.g. "tmdb"
+ * @param shape     the query shape the plan was verified for
+ * @param slotCount number of entity slots in the shape
+ * @param endpoints endpoint templates in call order, e.g. "GET /person/{person_id}/movie_credits"
+ */
+public record PlanTemplate(String scenario, String shape, int slotCount, List<String> endpoints) {
+}
@@ -0,0 +1,108 @@
+package com.gonnect.apiaide.plancache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@code PlanTemplateCache} remembers which endpoint sequence answers which shape of query.
+ * <p>
+ * Queries are reduced to their {@link QueryShape} ("movies directed by &lt;entity&gt;"). A verified endpoint
+ * sequence is stored under the shape; a new query matches a template only when its shape is the same, ignoring
+ * case, spacing and the closing punctuation. On a match the orchestration replays the endpoints with the new
+ * query's slot values and skips planning and API selection altogether.
+ * <p>
+ * Shapes are not matched by similarity: "movies directed by &lt;entity&gt;" and "movies produced by
+ * &lt;entity&gt;" are nearly the same text but need different endpoints, and a replayed plan is not checked
+ * by the planner.
+ * <p>
+ * Templates come from runs that completed successfully in any orchestration mode; a step-by-step run counts
+ * once the planner gives its final answer and every selected call resolved to an endpoint.
+ */
+@Component
+public class PlanTemplateCache {
+
+    private static final Logger log = LoggerFactory.getLogger(PlanTemplateCache.class);
+
+    private final Map<String, PlanTemplate> templates = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Stores the endpoint sequence of a query that was answered successfully.
+     * A shape that already has a template keeps it.
+     *
+     * @param scenario  the API scenario
+     * @param query     the answered query
+     * @param endpoints the endpoint templates called, in order
+     * @return {@code true} if a new template was stored
+     */
+    public boolean record(String scenario, String query, List<String> endpoints) {
+        if (endpoints.isEmpty()) {
+            return false;
+        }
+        QueryShape shape = QueryShape.of(query.trim());
+        PlanTemplate template = new PlanTemplate(scenario, shape.shape(), shape.slots().size(), List.copyOf(endpoints));
+        if (templates.putIfAbsent(key(scenario, shape), template) != null) {
+            return false;
+        }
+        log.debug("Recorded plan template {} -> {}", shape.shape(), endpoints);
+        return true;
+    }
+
+    /**
+     * Finds the template for a query.
+     *
+     * @param scenario the API scenario
+     * @param query    the user query
+     * @return the template of the query's shape, if any
+     */
+    public Optional<Match> match(String scenario, String query) {
+        QueryShape shape = QueryShape.of(query.trim());
+
+        PlanTemplate template = templates.get(key(scenario, shape));
+        if (template == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(new Match(template, shape));
+    }
+
+    public int size() {
+        return templates.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private static String key(String scenario, QueryShape shape) {
+        String normalized = shape.shape()
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("\\s+", " ")
+                .replaceAll("[\\s.?!]+$", "");
+        return scenario + "\n" + normalized;
+    }
+
+    /**
+     * A template matched for a query.
+     *
+     * @param template the matched template
+     * @param shape    the shape of the query, carrying its slot values
+     */
+    public record Match(PlanTemplate template, QueryShape shape) {
+    }
+}
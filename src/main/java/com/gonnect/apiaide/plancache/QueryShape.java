@@ -0,0 +1,133 @@
+package com.gonnect.apiaide.plancache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The shape of a user query: the query with its entities abstracted into slots.
+ * <p>
+ * "give me the number of movies directed by Sofia Coppola" has the shape
+ * "give me the number of movies directed by &lt;entity&gt;" and the single slot "Sofia Coppola".
+ * Entities are quoted strings, numbers and runs of capitalized words (allowing lowercase connectors
+ * inside a title, as in "Lord of the Rings"). The sentence-initial word is not treated as an entity.
+ *
+ * @param shape the query with every slot replaced by {@link #SLOT}
+ * @param slots the extracted entity values, in order of appearance
+ */
+public record QueryShape(String shape, List<String> slots) {
+
+    public static final String SLOT = "<entity>";
+
+    private static final Pattern QUOTED = Pattern.compile("[\"\u201C]([^\"\u201D]+)[\"\u201D]");
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}](?:[\\p{L}\\p{N}'\u2019&-]|\\.(?=[\\p{L}\\p{N}]))*");
+    private static final Pattern NUMBER = Pattern.compile("\\d+(?:\\.\\d+)?");
+    private static final Set<String> CONNECTORS = Set.of("of", "the", "and", "in", "on", "de", "a");
+    private static final Set<String> NOT_ENTITIES = Set.of("I", "TV");
+
+    /**
+     * Extracts the shape of a query.
+     *
+     * @param query the user query
+     * @return the query shape
+     */
+    public static QueryShape of(String query) {
+        List<int[]> spans = new ArrayList<>();
+
+        Matcher quoted = QUOTED.matcher(query);
+        while (quoted.find()) {
+            spans.add(new int[]{quoted.start(), quoted.end(), quoted.start(1), quoted.end(1)});
+        }
+
+        Matcher words = WORD.matcher(query);
+        int runStart = -1;
+        int runEnd = -1;
+        int connectors = 0;
+        boolean sentenceStart = true;
+        while (words.find()) {
+            String word = stripPossessive(words.group());
+            int end = words.start() + word.length();
+            boolean insideQuote = spans.stream().anyMatch(span -> words.start() >= span[0] && words.start() < span[1]);
+            boolean entityWord = !insideQuote && !sentenceStart && isEntityWord(word);
+
+            if (entityWord && NUMBER.matcher(word).matches()) {
+                // Numbers are slots of their own: "season 3, episode 24 of Friends"
+                if (runStart >= 0) {
+                    spans.add(new int[]{runStart, runEnd, runStart, runEnd});
+                }
+                spans.add(new int[]{words.start(), end, words.start(), end});
+                runStart = -1;
+                connectors = 0;
+            } else if (entityWord) {
+                if (runStart < 0) {
+                    runStart = words.start();
+                }
+                runEnd = end;
+                connectors = 0;
+            } else if (runStart >= 0 && !insideQuote && CONNECTORS.contains(word) && connectors < 2) {
+                connectors++;
+            } else {
+                if (runStart >= 0) {
+                    spans.add(new int[]{runStart, runEnd, runStart, runEnd});
+                }
+                runStart = -1;
+                connectors = 0;
+            }
+
+            if (word.length() < words.group().length()) {
+                // A possessive ends the entity: "Clint Eastwood's latest movie"
+                if (runStart >= 0) {
+                    spans.add(new int[]{runStart, runEnd, runStart, runEnd});
+                }
+                runStart = -1;
+                connectors = 0;
+            }
+            sentenceStart = endsSentence(query, words.end());
+        }
+        if (runStart >= 0) {
+            spans.add(new int[]{runStart, runEnd, runStart, runEnd});
+        }
+
+        spans.sort((a, b) -> Integer.compare(a[0], b[0]));
+        StringBuilder shape = new StringBuilder();
+        List<String> slots = new ArrayList<>();
+        int position = 0;
+        for (int[] span : spans) {
+            shape.append(query, position, span[0]).append(SLOT);
+            slots.add(query.substring(span[2], span[3]).trim());
+            position = span[1];
+        }
+        shape.append(query.substring(position));
+
+        return new QueryShape(shape.toString().trim(), List.copyOf(slots));
+    }
+
+    private static boolean isEntityWord(String word) {
+        if (NOT_ENTITIES.contains(word)) {
+            return false;
+        }
+        return Character.isUpperCase(word.charAt(0)) || NUMBER.matcher(word).matches();
+    }
+
+    private static String stripPossessive(String word) {
+        if (word.endsWith("'s") || word.endsWith("\u2019s")) {
+            return word.substring(0, word.length() - 2);
+        }
+        return word;
+    }
+
+    private static boolean endsSentence(String query, int position) {
+        for (int i = position; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (c == '.' || c == '?' || c == '!') {
+                return true;
+            }
+            if (!Character.isWhitespace(c)) {
+                return false;
+            }
+        }
+        return false;
+    }
+}
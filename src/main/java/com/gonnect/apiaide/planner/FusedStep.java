@@ -0,0 +1,52 @@
+package com.gonnect.apiaide.planner;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.Optional;
+
+/**
+ * The next step of a plan together with the API call that carries it out, produced by a single fused
+ * planner and selector call.
+ *
+ * @param plan        the step in natural language, null once the query is answered
+ * @param apiCall     the API call for the step, e.g. "GET /person/1032/movie_credits to get ...", null once answered
+ * @param finalAnswer the answer to the user query, null while more steps are needed
+ */
+public record FusedStep(String plan, String apiCall, String finalAnswer) {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public boolean isFinal() {
+        return finalAnswer != null;
+    }
+
+    /**
+     * Parses the model output, a JSON object optionally surrounded by prose or a code fence.
+     *
+     * @param output the raw model output
+     * @return the step, or empty when the output is not a well-formed step
+     */
+    public static Optional<FusedStep> parse(String output) {
+        int start = output.indexOf('{');
+        int end = output.lastIndexOf('}');
+        if (start < 0 || end < start) {
+            return Optional.empty();
+        }
+        try {
+            JsonNode json = MAPPER.readTree(output.substring(start, end + 1));
+            FusedStep step = new FusedStep(text(json, "plan"), text(json, "api_call"), text(json, "final_answer"));
+            return step.isFinal() || (step.plan() != null && step.apiCall() != null)
+                    ? Optional.of(step)
+                    : Optional.empty();
+        } catch (JsonProcessingException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static String text(JsonNode json, String field) {
+        JsonNode value = json.get(field);
+        return value == null || value.isNull() || value.asText().isBlank() ? null : value.asText().trim();
+    }
+}
@@ -0,0 +1,78 @@
+package com.gonnect.apiaide.planner;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A compiled plan: API calls as nodes of a dependency graph.
+ * <p>
+ * A node's call may reference values produced by other nodes with {@code {{name}}} placeholders; a node
+ * only depends on the nodes that produce the values it references (or that it lists explicitly).
+ * Nodes are kept in topological order, and {@link #depth()} is the number of sequential rounds needed
+ * when independent nodes run concurrently.
+ *
+ * @param nodes nodes in topological order
+ */
+public record PlanGraph(List<Node> nodes) {
+
+    static final Pattern PLACEHOLDER = Pattern.compile("\\{\\{\\s*(\\w+)\\s*}}");
+
+    /**
+     * @return number of levels in the graph, i.e. round trips when every level runs in parallel
+     */
+    public int depth() {
+        return nodes.stream().mapToInt(Node::level).max().orElse(-1) + 1;
+    }
+
+    /**
+     * A single API call in the plan.
+     *
+     * @param id        unique node id
+     * @param call      the API calling instruction, e.g. "GET /movie/{{movie_id}}/credits to get the director"
+     * @param output    name of the value this node produces for dependents, may be null
+     * @param dependsOn ids of the nodes that must complete first
+     * @param level     length of the longest dependency chain leading to this node
+     */
+    public record Node(String id, String call, String output, Set<String> dependsOn, int level) {
+
+        /**
+         * @return the placeholder names referenced by the call
+         */
+        public Set<String> placeholders() {
+            return placeholdersIn(call);
+        }
+
+        /**
+         * Replaces the placeholders in the call with values produced by upstream nodes.
+         *
+         * @param values produced values by placeholder name
+         * @return the executable call
+         */
+        public String bind(Map<String, String> values) {
+            Matcher matcher = PLACEHOLDER.matcher(call);
+            StringBuilder bound = new StringBuilder();
+            while (matcher.find()) {
+                String value = values.get(matcher.group(1));
+                if (value == null) {
+                    throw new IllegalStateException("No value for {{" + matcher.group(1) + "}} in node " + id);
+                }
+                matcher.appendReplacement(bound, Matcher.quoteReplacement(value));
+            }
+            matcher.appendTail(bound);
+            return bound.toString();
+        }
+    }
+
+    static Set<String> placeholdersIn(String text) {
+        Matcher matcher = PLACEHOLDER.matcher(text);
+        Set<String> names = new LinkedHashSet<>();
+        while (matcher.find()) {
+            names.add(matcher.group(1));
+        }
+        return names;
+    }
+}
@@ -0,0 +1,149 @@
+package com.gonnect.apiaide.planner;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@code PlanGraphCompiler} turns the planner's one-shot JSON plan into a validated {@link PlanGraph}.
+ * <p>
+ * Expected input is a JSON array (optionally surrounded by prose or a code fence) of objects:
+ * <pre>
+ * {@code
+ * [
+ *   {"id": "a", "call": "GET /search/movie to search for the movie Titanic", "output": "titanic_id"},
+ *   {"id": "b", "call": "GET /movie/{{titanic_id}} to get the rating of Titanic"}
+ * ]
+ * }
+ * </pre>
+ * Dependencies are the union of the optional {@code depends_on} list and the nodes producing the
+ * placeholders a call references. The compiler rejects duplicate ids and outputs, unknown dependencies,
+ * unresolved placeholders and cycles, then orders the nodes topologically and assigns levels.
+ */
+public class PlanGraphCompiler {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * Compiles the planner output.
+     *
+     * @param plannerOutput raw text returned by the planner
+     * @return the compiled graph
+     * @throws IllegalArgumentException if the output is not a valid plan graph
+     */
+    public PlanGraph compile(String plannerOutput) {
+        JsonNode array = readArray(plannerOutput);
+
+        Map<String, JsonNode> rawNodes = new LinkedHashMap<>();
+        Map<String, String> producers = new HashMap<>();
+        for (JsonNode rawNode : array) {
+            String id = text(rawNode, "id");
+            if (id == null || text(rawNode, "call") == null) {
+                throw new IllegalArgumentException("Every plan node needs an id and a call: " + rawNode);
+            }
+            if (rawNodes.put(id, rawNode) != null) {
+                throw new IllegalArgumentException("Duplicate plan node id: " + id);
+            }
+            String output = text(rawNode, "output");
+            if (output != null && producers.put(output, id) != null) {
+                throw new IllegalArgumentException("Output " + output + " is produced by more than one node");
+            }
+        }
+
+        Map<String, Set<String>> dependencies = new LinkedHashMap<>();
+        for (Map.Entry<String, JsonNode> entry : rawNodes.entrySet()) {
+            String id = entry.getKey();
+            Set<String> dependsOn = new LinkedHashSet<>();
+            for (JsonNode dependency : entry.getValue().path("depends_on")) {
+                if (!rawNodes.containsKey(dependency.asText())) {
+                    throw new IllegalArgumentException("Node " + id + " depends on unknown node " + dependency.asText());
+                }
+                dependsOn.add(dependency.asText());
+            }
+            for (String placeholder : PlanGraph.placeholdersIn(text(entry.getValue(), "call"))) {
+                String producer = producers.get(placeholder);
+                if (producer == null) {
+                    throw new IllegalArgumentException("Node " + id + " references {{" + placeholder + "}} which no node produces");
+                }
+                dependsOn.add(producer);
+            }
+            if (dependsOn.contains(id)) {
+                throw new IllegalArgumentException("Node " + id + " depends on itself");
+            }
+            dependencies.put(id, dependsOn);
+        }
+
+        return new PlanGraph(topologicalOrder(rawNodes, dependencies));
+    }
+
+    /**
+     * Kahn's algorithm; a node's level is one more than the highest level among its dependencies.
+     */
+    private List<PlanGraph.Node> topologicalOrder(Map<String, JsonNode> rawNodes, Map<String, Set<String>> dependencies) {
+        Map<String, Integer> pending = new HashMap<>();
+        Map<String, List<String>> dependents = new HashMap<>();
+        Deque<String> ready = new ArrayDeque<>();
+        for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+            pending.put(entry.getKey(), entry.getValue().size());
+            for (String dependency : entry.getValue()) {
+                dependents.computeIfAbsent(dependency, k -> new ArrayList<>()).add(entry.getKey());
+            }
+            if (entry.getValue().isEmpty()) {
+                ready.add(entry.getKey());
+            }
+        }
+
+        Map<String, Integer> levels = new HashMap<>();
+        List<PlanGraph.Node> ordered = new ArrayList<>(rawNodes.size());
+        while (!ready.isEmpty()) {
+            String id = ready.poll();
+            int level = dependencies.get(id).stream().mapToInt(levels::get).max().orElse(-1) + 1;
+            levels.put(id, level);
+            JsonNode rawNode = rawNodes.get(id);
+            ordered.add(new PlanGraph.Node(id, text(rawNode, "call"), text(rawNode, "output"), Set.copyOf(dependencies.get(id)), level));
+
+            for (String dependent : dependents.getOrDefault(id, List.of())) {
+                if (pending.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+
+        if (ordered.size() != rawNodes.size()) {
+            throw new IllegalArgumentException("Plan graph contains a cycle");
+        }
+        return ordered;
+    }
+
+    private JsonNode readArray(String plannerOutput) {
+        int start = plannerOutput.indexOf('[');
+        int end = plannerOutput.lastIndexOf(']');
+        if (start < 0 || end < start) {
+            throw new IllegalArgumentException("Planner output does not contain a JSON plan graph");
+        }
+        try {
+            JsonNode array = mapper.readTree(plannerOutput.substring(start, end + 1));
+            if (!array.isArray() || array.isEmpty()) {
+                throw new IllegalArgumentException("Plan graph must be a non-empty JSON array");
+            }
+            return array;
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Planner output is not valid JSON", e);
+        }
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() || value.asText().isBlank() ? null : value.asText().trim();
+    }
+}
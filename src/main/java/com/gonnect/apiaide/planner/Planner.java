@@ -1,22 +1,29 @@
 package com.gonnect.apiaide.planner;
 
+import com.gonnect.apiaide.oas.ReducedOpenAPISpec;
 import com.gonnect.apiaide.utils.CastUtil;
 import dev.langchain4j.chain.ConversationalRetrievalChain;
 import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.Tokenizer;
 import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.openai.OpenAiTokenizer;
 import dev.langchain4j.store.embedding.EmbeddingStore;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
-import static com.gonnect.apiaide.prompts.PlannerPrompts.ICL_EXAMPLES;
+import static com.gonnect.apiaide.prompts.PlannerPrompts.FUSED_PLANNER_PROMPT;
 import static com.gonnect.apiaide.prompts.PlannerPrompts.PLANNER_PROMPT;
+import static com.gonnect.apiaide.prompts.PlannerPrompts.PLAN_GRAPH_PROMPT;
 import static com.gonnect.apiaide.utils.CastUtil.castToList;
 import static com.gonnect.apiaide.utils.CastUtil.castToMap;
-import static java.lang.String.format;
+import static dev.langchain4j.model.openai.OpenAiModelName.GPT_3_5_TURBO;
 import static java.util.regex.Pattern.compile;
 
 /**
@@ -31,33 +38,46 @@ public class Planner {
     final private ConversationalRetrievalChain chain;
     private final EmbeddingStore<TextSegment> store;
     private final EmbeddingModel embeddingModel;
+    private final Tokenizer tokenizer = new OpenAiTokenizer(GPT_3_5_TURBO);
+    private final int scratchpadTokenBudget;
 
     public Planner(ConversationalRetrievalChain chain,
                    EmbeddingStore<TextSegment> store,
-                   EmbeddingModel embeddingModel) {
+                   EmbeddingModel embeddingModel,
+                   @Value("${apiaide.planner.scratchpad-token-budget:1500}") int scratchpadTokenBudget) {
         this.chain = chain;
         this.store = store;
         this.embeddingModel = embeddingModel;
+        this.scratchpadTokenBudget = scratchpadTokenBudget;
+    }
+
+    /**
+     * Creates an empty history for one orchestration, bounded by the configured token budget.
+     */
+    public Scratchpad newScratchpad() {
+        return new Scratchpad(tokenizer, scratchpadTokenBudget);
     }
 
     /**
      * Generates the next plan step for the given user input.
      * Maintains context embeddings in the store.
+     * <p>
+     * The history is taken from a {@link Scratchpad} under "scratchpad" when present, which is rendered
+     * incrementally; otherwise it is built from the list of steps under "history".
+     * The query is read from "query" or "input".
      */
     public Map<String, String> run(Map<String, ?> inputs) {
 
-        String history = constructScratchpad(castToList(inputs.get("history")));
-        String iclExamples = ICL_EXAMPLES.get("tmdb");
-
+        String history = inputs.get("scratchpad") instanceof Scratchpad scratchpad
+                ? scratchpad.render()
+                : constructScratchpad(castToList(inputs.get("history")));
+        Object query = inputs.containsKey("query") ? inputs.get("query") : inputs.get("input");
 
-        String plannerPrompt = format(PLANNER_PROMPT,
-                Map.of(
-                        "input", inputs.get("query"),
-                        "agent_scratchpad", history,
-                        "stop_signals", generateStopSignals(castToMap(inputs))
 
-
-                ));
+        String plannerPrompt = PLANNER_PROMPT
+                .replace("{input}", String.valueOf(query))
+                .replace("{agent_scratchpad}", history)
+                .replace("{stop_signals}", generateStopSignals(castToMap(inputs)));
 
 
         String plannerChainOutput = chain.execute(plannerPrompt);
@@ -70,19 +90,52 @@ public class Planner {
         );
     }
 
+    /**
+     * Asks for the complete plan of the query at once, as a JSON graph of API calls
+     * to be compiled by {@link PlanGraphCompiler}.
+     *
+     * @param query   the user query
+     * @param apiSpec the API the plan may use
+     * @return the raw planner output
+     */
+    public String planGraph(String query, ReducedOpenAPISpec apiSpec) {
+        String planGraphPrompt = PLAN_GRAPH_PROMPT
+                .replace("{endpoints}", describeEndpoints(apiSpec))
+                .replace("{input}", query);
 
-    private String constructScratchpad(List<Map<String, String>> history) {
-        if (history.isEmpty()) {
-            return "";
-        }
+        return chain.execute(planGraphPrompt);
+    }
 
-        StringBuilder scratchpad = new StringBuilder();
-        for (int i = 0; i < history.size(); i++) {
-            Map<String, String> step = history.get(i);
-            scratchpad.append(format("Plan step %d: %s\n", i + 1, step.get("plan")));
-            scratchpad.append(format("API response: %s\n", step.get("execution_res")));
+    /**
+     * Asks for the next plan step and the API call that carries it out in a single call,
+     * replacing a separate planner and API selector round trip.
+     *
+     * @param query      the user query
+     * @param scratchpad the steps executed so far
+     * @param apiSpec    the API the plan may use
+     * @return the next step, or empty when the model did not answer in the expected format
+     */
+    public Optional<FusedStep> planAndSelect(String query, Scratchpad scratchpad, ReducedOpenAPISpec apiSpec) {
+        String fusedPrompt = FUSED_PLANNER_PROMPT
+                .replace("{endpoints}", describeEndpoints(apiSpec))
+                .replace("{input}", query)
+                .replace("{agent_scratchpad}", scratchpad.render());
+
+        return FusedStep.parse(chain.execute(fusedPrompt));
+    }
+
+    private String describeEndpoints(ReducedOpenAPISpec apiSpec) {
+        return apiSpec.getEndpoints().stream()
+                .map(endpoint -> endpoint.get("name") + ": " + endpoint.getOrDefault("description", ""))
+                .collect(Collectors.joining("\n"));
+    }
+
+    private String constructScratchpad(List<Map<String, String>> history) {
+        Scratchpad scratchpad = newScratchpad();
+        for (Map<String, String> step : history) {
+            scratchpad.append(step.get("plan"), step.get("execution_res"));
         }
-        return scratchpad.toString();
+        return scratchpad.render();
     }
 
     private String generateStopSignals(Map<String, List<String>> history) {
@@ -0,0 +1,107 @@
+package com.gonnect.apiaide.planner;
+
+import dev.langchain4j.model.Tokenizer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.String.format;
+
+/**
+ * {@code Scratchpad} is the planner history of a single orchestration.
+ * <p>
+ * Steps are append-only and each one is rendered and token-counted exactly once, when it is appended.
+ * The rendered history is kept in a buffer and extended in place, so asking the planner for the next step
+ * costs nothing proportional to the number of previous steps.
+ * <p>
+ * When the total token count exceeds the budget, the oldest steps are dropped and replaced by a single
+ * marker line. The first step (which anchors the plan) and the latest step are always kept.
+ */
+public class Scratchpad {
+
+    private static final String OMITTED_FORMAT = "(%d earlier plan steps omitted)\n";
+
+    private final Tokenizer tokenizer;
+    private final int tokenBudget;
+
+    private final List<Step> steps = new ArrayList<>();
+    private final StringBuilder rendered = new StringBuilder();
+    private int totalTokens = 0;
+    private int omitted = 0;
+    private int appended = 0;
+
+    /**
+     * @param tokenizer   tokenizer used to count step tokens
+     * @param tokenBudget maximum number of history tokens, non-positive for unbounded
+     */
+    public Scratchpad(Tokenizer tokenizer, int tokenBudget) {
+        this.tokenizer = tokenizer;
+        this.tokenBudget = tokenBudget;
+    }
+
+    /**
+     * Appends a plan step and its API response.
+     *
+     * @param plan            the plan step
+     * @param executionResult the parsed API response for the step
+     */
+    public void append(String plan, String executionResult) {
+        appended++;
+        String text = format("Plan step %d: %s\n", appended, plan) + format("API response: %s\n", executionResult);
+        Step step = new Step(text, tokenizer.estimateTokenCountInText(text));
+
+        steps.add(step);
+        totalTokens += step.tokens();
+        rendered.append(step.text());
+
+        if (tokenBudget > 0 && totalTokens > tokenBudget && steps.size() > 2) {
+            trim();
+        }
+    }
+
+    /**
+     * @return the rendered history, ready to be placed into the planner prompt
+     */
+    public String render() {
+        return rendered.toString();
+    }
+
+    /**
+     * @return token count of the retained steps
+     */
+    public int tokenCount() {
+        return totalTokens;
+    }
+
+    /**
+     * @return number of steps appended so far, including omitted ones
+     */
+    public int size() {
+        return appended;
+    }
+
+    public boolean isEmpty() {
+        return appended == 0;
+    }
+
+    /**
+     * Drops the oldest steps after the first until the budget is met or only the first and last remain,
+     * then rebuilds the buffer from the retained steps.
+     */
+    private void trim() {
+        while (totalTokens > tokenBudget && steps.size() > 2) {
+            totalTokens -= steps.remove(1).tokens();
+            omitted++;
+        }
+
+        rendered.setLength(0);
+        rendered.append(steps.get(0).text());
+        rendered.append(format(OMITTED_FORMAT, omitted));
+        for (int i = 1; i < steps.size(); i++) {
+            rendered.append(steps.get(i).text());
+        }
+    }
+
+    private record Step(String text, int tokens) {
+    }
+}
@@ -2,6 +2,13 @@ package com.gonnect.apiaide.prompts;
 
 public class CallerPrompts {
 
+    /**
+     * Fills {@code {pagination}} in {@link #CALLER_PROMPT} when paged list endpoints are read on the caller's behalf.
+     */
+    public static final String PAGINATION_INSTRUCTIONS = "\n"
+            + " If the plan needs a number of results from a list API, e.g. the top 30 rated movies, add\n"
+            + " \"max_results\" with that number to \"params\". The results are collected across as many pages as\n"
+            + " needed, so do not call the API again for the next pages.";
 
     public static final String CALLER_PROMPT = """ 
                 You are an agent that gets a sequence of API calls and given their documentation, should execute them
@@ -38,6 +45,9 @@ public class CallerPrompts {
                  pairs.
                  If you are using POST, PATCH or PUT methods, add "data" key, and the value of "data" should be a dict
                  of key-value pairs.
+                 If the plan calls the same API for several ids, keep the variable in the url and give the list of ids
+                 as the value of that variable in "params", as in Example 4. The calls are made together and the
+                 response is a JSON array with one element per id, in the same order.{pagination}
                 
                  Remember to add a comma after every value except the last one, ensuring that the overall structure of
                  the JSON remains valid.
@@ -74,6 +84,17 @@ public class CallerPrompts {
                             "description": "Set the volume for the current playback device."
                         }}
                         
+                        Example 4:
+                        Operation: GET
+                        Input: {{
+                            "url": "https://api.themoviedb.org/3/movie/{movie_id}",
+                            "params": {{
+                                "movie_id": [603, 550, 13]
+                            }},
+                            "description": "The API response is a list of the details of the movies with ids 603, 550 and 13",
+                            "output_instructions": "What are the titles and release dates of these movies?"
+                        }}
+                        
                         I will give you the background information and the plan you should execute.
                         Background: background information which you can use to execute the plan, e.g., the id of a person.
                         Plan: the plan of API calls to execute
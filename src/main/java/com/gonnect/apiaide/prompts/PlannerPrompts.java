@@ -72,4 +72,38 @@ public class PlannerPrompts {
             Plan step 1: {agent_scratchpad}
             {stop_signals}
             """;
+
+    public static final String PLAN_GRAPH_PROMPT = """
+            You are an agent that plans a solution to user queries as a graph of RESTful API calls.
+            Here are the endpoints you can use:
+            {endpoints}
+
+            Output the complete plan at once as a JSON array. Each element is one API call with the fields:
+            "id": a short unique id,
+            "call": the endpoint and what to get from it, e.g. "GET /search/person to search for Martin Scorsese",
+            "output": optional name of the single value this call provides to later calls, e.g. "person_id",
+            "depends_on": optional list of ids of calls that must finish first.
+            A call that needs a value produced by another call refers to it as {{output name}}, e.g. "GET /person/{{person_id}}/movie_credits to get the movies directed by Martin Scorsese".
+            Calls that do not need each other's results must not depend on each other, so they can run at the same time.
+            Only output the JSON array.
+
+            User query: {input}
+            Plan:
+            """;
+
+    public static final String FUSED_PLANNER_PROMPT = """
+            You are an agent that plans a solution to user queries and selects the RESTful API call for every step.
+            Here are the endpoints you can use. Do not use APIs that are not listed here.
+            {endpoints}
+
+            Given the user query and the steps executed so far, output the next step as a JSON object with the fields:
+            "plan": the next step in natural language. It should be specific and use the results obtained previously instead of pronouns, e.g. "Get the most popular movie directed by Martin Scorsese (1032)".
+            "api_call": the API call that carries out the step, e.g. "GET /person/1032/movie_credits to get the most popular movie directed by Martin Scorsese (1032)". Put ids obtained previously into the path.
+            "final_answer": null while the query has not been fulfilled. Once it has, the answer to the user query, with "plan" and "api_call" set to null.
+            Only output the JSON object.
+
+            User query: {input}
+            {agent_scratchpad}
+            Next step:
+            """;
 }
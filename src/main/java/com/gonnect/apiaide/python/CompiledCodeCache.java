@@ -0,0 +1,95 @@
+package com.gonnect.apiaide.python;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * {@code CompiledCodeCache} keeps compiled code by the hash of its source, so code that runs again is not
+ * parsed and compiled again.
+ * <p>
+ * At most {@code maxEntries} are kept, evicting the least recently used first; 0 disables the cache. Sources
+ * are compiled outside the lock, so two threads missing the same source at once may both compile it.
+ *
+ * @param <C> the type of compiled code
+ */
+public class CompiledCodeCache<C> {
+
+    private final int maxEntries;
+    private final LinkedHashMap<String, C> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CompiledCodeCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the compiled code for a source, compiling it on a miss.
+     *
+     * @param source   the source code
+     * @param compiler compiles the source; its exceptions are thrown as is and nothing is cached
+     * @return the compiled code
+     */
+    public C get(String source, Function<String, C> compiler) {
+        String key = key(source);
+        synchronized (this) {
+            C compiled = entries.get(key);
+            if (compiled != null) {
+                hits.increment();
+                return compiled;
+            }
+        }
+        misses.increment();
+        C compiled = compiler.apply(source);
+        if (maxEntries > 0) {
+            synchronized (this) {
+                entries.put(key, compiled);
+                while (entries.size() > maxEntries) {
+                    entries.remove(entries.keySet().iterator().next());
+                    evictions.increment();
+                }
+            }
+        }
+        return compiled;
+    }
+
+    static String key(String source) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the share of lookups answered from the cache, 0 before the first lookup
+     */
+    public double getHitRate() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+}
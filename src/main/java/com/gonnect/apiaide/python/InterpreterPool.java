@@ -0,0 +1,201 @@
+package com.gonnect.apiaide.python;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * {@code InterpreterPool} hands out interpreters that are not thread-safe, one caller at a time.
+ * <p>
+ * All interpreters are created up front. A call borrows one, waiting up to the borrow timeout if all are in
+ * use, and gets it back reset, so no state of one call is visible to the next. An interpreter is evicted and
+ * replaced by a new one when a call fails in a way that may have broken it, when resetting it fails, or after
+ * {@code maxUses} calls, which bounds whatever leaks past the reset.
+ *
+ * @param <T> the interpreter type
+ */
+public class InterpreterPool<T> implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(InterpreterPool.class);
+
+    private final BlockingQueue<Slot<T>> idle = new LinkedBlockingQueue<>();
+    private final Supplier<T> factory;
+    private final Consumer<T> reset;
+    private final Consumer<T> dispose;
+    private final Predicate<Throwable> broken;
+    private final Duration borrowTimeout;
+    private final int maxUses;
+    private final AtomicInteger size = new AtomicInteger();
+    private volatile boolean closed;
+
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param size          the number of interpreters
+     * @param factory       creates an initialized interpreter
+     * @param reset         clears an interpreter after a call, e.g. gives it a fresh namespace
+     * @param dispose       releases an evicted interpreter
+     * @param broken        whether a failure of a call means the interpreter must be evicted
+     * @param borrowTimeout the maximum wait for a free interpreter
+     * @param maxUses       the number of calls after which an interpreter is replaced
+     */
+    public InterpreterPool(int size, Supplier<T> factory, Consumer<T> reset, Consumer<T> dispose,
+                           Predicate<Throwable> broken, Duration borrowTimeout, int maxUses) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1, was " + size);
+        }
+        this.factory = factory;
+        this.reset = reset;
+        this.dispose = dispose;
+        this.broken = broken;
+        this.borrowTimeout = borrowTimeout;
+        this.maxUses = maxUses;
+        for (int i = 0; i < size; i++) {
+            idle.add(new Slot<>(factory.get()));
+            this.size.incrementAndGet();
+        }
+    }
+
+    /**
+     * Runs a call with an interpreter of its own.
+     *
+     * @param call uses the interpreter; must not keep a reference to it
+     * @return the result of the call
+     * @throws IllegalStateException if no interpreter became free within the borrow timeout
+     */
+    public <R> R withInterpreter(Function<T, R> call) {
+        Slot<T> slot = borrow();
+        boolean healthy = true;
+        try {
+            return call.apply(slot.interpreter);
+        } catch (RuntimeException | Error e) {
+            healthy = !broken.test(e);
+            throw e;
+        } finally {
+            release(slot, healthy);
+        }
+    }
+
+    private Slot<T> borrow() {
+        if (closed) {
+            throw new IllegalStateException("Interpreter pool is closed");
+        }
+        borrows.increment();
+        Slot<T> slot = idle.poll();
+        if (slot != null) {
+            return slot;
+        }
+        waits.increment();
+        try {
+            slot = idle.poll(borrowTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an interpreter", e);
+        }
+        if (slot == null) {
+            throw new IllegalStateException("No interpreter free within " + borrowTimeout.toMillis() + " ms, "
+                    + size.get() + " in the pool");
+        }
+        return slot;
+    }
+
+    private void release(Slot<T> slot, boolean healthy) {
+        slot.uses++;
+        if (healthy && slot.uses < maxUses) {
+            try {
+                reset.accept(slot.interpreter);
+            } catch (RuntimeException e) {
+                log.warn("Could not reset interpreter: {}", e.getMessage());
+                healthy = false;
+            }
+        } else {
+            healthy = false;
+        }
+        if (healthy && !closed) {
+            idle.add(slot);
+            return;
+        }
+        evict(slot);
+    }
+
+    private void evict(Slot<T> slot) {
+        evictions.increment();
+        disposeQuietly(slot.interpreter);
+        if (closed) {
+            size.decrementAndGet();
+            return;
+        }
+        try {
+            idle.add(new Slot<>(factory.get()));
+        } catch (RuntimeException e) {
+            size.decrementAndGet();
+            log.error("Could not replace an evicted interpreter, {} left in the pool", size.get(), e);
+        }
+    }
+
+    private void disposeQuietly(T interpreter) {
+        try {
+            dispose.accept(interpreter);
+        } catch (RuntimeException e) {
+            log.debug("Could not dispose interpreter: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Disposes the idle interpreters; interpreters in use are disposed when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Slot<T> slot;
+        while ((slot = idle.poll()) != null) {
+            disposeQuietly(slot.interpreter);
+            size.decrementAndGet();
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public int idle() {
+        return idle.size();
+    }
+
+    public long getBorrows() {
+        return borrows.sum();
+    }
+
+    /**
+     * @return the number of borrows that found no interpreter free and had to wait
+     */
+    public long getWaits() {
+        return waits.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private static final class Slot<T> {
+
+        private final T interpreter;
+        private int uses;
+
+        private Slot(T interpreter) {
+            this.interpreter = interpreter;
+        }
+    }
+}
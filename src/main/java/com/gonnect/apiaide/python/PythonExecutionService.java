@@ -1,39 +1,102 @@
 package com.gonnect.apiaide.python;
 
+import org.python.core.CompileMode;
+import org.python.core.CompilerFlags;
 import org.python.core.Py;
+import org.python.core.PyCode;
+import org.python.core.PyException;
 import org.python.core.PyObject;
 import org.python.core.PyString;
+import org.python.core.PyStringMap;
 import org.python.util.PythonInterpreter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.StringWriter;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * {@code PythonExecutionService} runs Python code on a pooled interpreter.
+ * <p>
+ * Every call borrows an interpreter of the {@link InterpreterPool} for itself and starts with an empty
+ * namespace holding only its bindings, so calls run in parallel, one per interpreter, and see nothing of
+ * each other.
+ * <p>
+ * Code is compiled once and kept in a {@link CompiledCodeCache}, so running the same code on many inputs
+ * skips Jython's parser and compiler. A single expression is evaluated and its value returned; any other
+ * code is executed as statements and what it prints is returned.
+ */
 @Service
 public class PythonExecutionService {
 
-    private final PythonInterpreter interpreter;
+    private static final String FILENAME = "<script>";
 
-    public PythonExecutionService(PythonInterpreter interpreter) {
-        this.interpreter = interpreter;
+    private final CompletableFuture<InterpreterPool<PythonInterpreter>> poolFuture;
+    private final CompiledCodeCache<Compiled> codeCache;
+
+    public PythonExecutionService(CompletableFuture<InterpreterPool<PythonInterpreter>> poolFuture,
+                                  @Value("${apiaide.python.code-cache.size:256}") int codeCacheSize) {
+        this.poolFuture = poolFuture;
+        this.codeCache = new CompiledCodeCache<>(codeCacheSize);
     }
 
     public Object execute(String script, Map<String, Object> bindings) {
 
-        PyObject scope = interpreter.getLocals();
+        // Blocks only while the interpreters are still warming up
+        InterpreterPool<PythonInterpreter> pool = poolFuture.join();
 
-        if (bindings != null) {
-            for (Map.Entry<String, Object> entry : bindings.entrySet()) {
+        Compiled compiled = codeCache.get(script, PythonExecutionService::compile);
 
-                String key = entry.getKey();
-                Object value = entry.getValue();
+        return pool.withInterpreter(interpreter -> {
+            if (bindings != null) {
+                for (Map.Entry<String, Object> entry : bindings.entrySet()) {
+                    interpreter.set(entry.getKey(), Py.java2py(entry.getValue()));
+                }
+            }
 
-                PyObject pyKey = new PyString(key);
-                PyObject pyValue = Py.java2py(value);
+            StringWriter out = new StringWriter();
+            interpreter.setOut(out);
+            if (compiled.expression()) {
+                return interpreter.eval(compiled.code());
+            }
+            interpreter.exec(compiled.code());
+            return out.toString().strip();
+        });
+    }
 
-                scope.__set__(pyKey, pyValue);
+    /**
+     * Compiles code as an expression if it is one, and as statements otherwise.
+     */
+    private static Compiled compile(String script) {
+        try {
+            return new Compiled(Py.compile_flags(script, FILENAME, CompileMode.eval, new CompilerFlags()), true);
+        } catch (PyException e) {
+            if (!e.match(Py.SyntaxError)) {
+                throw e;
             }
         }
+        return new Compiled(Py.compile_flags(script, FILENAME, CompileMode.exec, new CompilerFlags()), false);
+    }
+
+    public CompiledCodeCache<?> getCodeCache() {
+        return codeCache;
+    }
+
+    /**
+     * @return an empty module namespace, as a fresh interpreter has
+     */
+    public static PyObject namespace() {
+        PyStringMap namespace = new PyStringMap();
+        namespace.__setitem__("__name__", new PyString("__main__"));
+        namespace.__setitem__("__doc__", Py.None);
+        return namespace;
+    }
 
-        return interpreter.eval(script);
+    /**
+     * @param code       the compiled code, which can run in any interpreter
+     * @param expression whether the code is a single expression, with a value
+     */
+    private record Compiled(PyCode code, boolean expression) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,330 @@
+package com.gonnect.apiaide.request;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * {@code CassetteStore} records upstream responses to a cassette file and replays them, so benchmark reruns
+ * measure this code rather than the network.
+ * <p>
+ * In {@link Mode#RECORD} the {@link RequestWrapper} appends every response it receives; in {@link Mode#REPLAY}
+ * it answers from the cassette and sends nothing, failing requests that were never recorded. Responses are
+ * found by a fingerprint of the method, the URI with its query parameters sorted and the request body, which
+ * leaves out the API token, so a cassette recorded on one machine replays on any other.
+ * <p>
+ * The file is a magic header followed by length-prefixed records, each holding the fingerprint, the status,
+ * the headers and the gzipped body. Records are only ever appended; the file is memory-mapped for reading,
+ * and an index from fingerprint to record offset is built when it is opened. A record cut short by a crash
+ * is dropped.
+ */
+@Component
+public class CassetteStore {
+
+    private static final Logger log = LoggerFactory.getLogger(CassetteStore.class);
+    private static final byte[] MAGIC = "APICASS1".getBytes(StandardCharsets.US_ASCII);
+    private static final int FINGERPRINT_BYTES = 32;
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    public enum Mode {
+        OFF, RECORD, REPLAY
+    }
+
+    private final Mode mode;
+    private final Path path;
+    private final Map<String, Long> index = new ConcurrentHashMap<>();
+    private FileChannel channel;
+    private volatile MappedByteBuffer mapped;
+    private long end;
+
+    private final LongAdder replays = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder recordings = new LongAdder();
+
+    @Autowired
+    public CassetteStore(@Value("${apiaide.http.cassette.mode:off}") String mode,
+                         @Value("${apiaide.http.cassette.path:cassettes/tmdb.cassette}") String path) throws IOException {
+        this(Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT)), Path.of(path));
+    }
+
+    CassetteStore(Mode mode, Path path) throws IOException {
+        this.mode = mode;
+        this.path = path;
+        if (mode == Mode.RECORD) {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            load();
+        } else if (mode == Mode.REPLAY) {
+            if (Files.exists(path)) {
+                channel = FileChannel.open(path, StandardOpenOption.READ);
+                load();
+            } else {
+                log.warn("Cassette {} does not exist, every request will fail", path);
+            }
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Finds the recorded response to a request.
+     *
+     * @param method the HTTP method
+     * @param uri    the request URI
+     * @param body   the request body, null for none
+     * @return the response, empty if it was never recorded
+     */
+    public Optional<Recording> replay(String method, URI uri, Object body) {
+        Long offset = index.get(fingerprint(method, uri, body));
+        if (offset == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        replays.increment();
+        try {
+            return Optional.of(read(offset));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read cassette " + path, e);
+        }
+    }
+
+    /**
+     * Appends a response, unless one for the same request is already recorded.
+     *
+     * @param headers the response headers to keep, names in lower case
+     * @return {@code true} if the response was appended
+     */
+    public synchronized boolean record(String method, URI uri, Object requestBody, int status, Map<String, String> headers,
+                                       byte[] body) {
+        if (mode != Mode.RECORD) {
+            return false;
+        }
+        String fingerprint = fingerprint(method, uri, requestBody);
+        if (index.containsKey(fingerprint)) {
+            return false;
+        }
+        try {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(payload);
+            out.write(HexFormat.of().parseHex(fingerprint));
+            out.writeInt(status);
+            out.writeShort(headers.size());
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                writeString(out, header.getKey());
+                writeString(out, header.getValue());
+            }
+            byte[] compressed = gzip(body == null ? new byte[0] : body);
+            out.writeInt(compressed.length);
+            out.write(compressed);
+            out.flush();
+
+            ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + payload.size());
+            record.putInt(payload.size()).put(payload.toByteArray()).flip();
+            long offset = end;
+            while (record.hasRemaining()) {
+                channel.write(record, end + record.position());
+            }
+            end += record.limit();
+            index.put(fingerprint, offset);
+            recordings.increment();
+            return true;
+        } catch (IOException e) {
+            log.warn("Could not record {} {} to {}: {}", method, uri, path, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Fingerprints a request: the SHA-256 of the method, the URI with its query parameters sorted and the body
+     * as JSON with sorted keys.
+     */
+    static String fingerprint(String method, URI uri, Object body) {
+        String query = uri.getRawQuery() == null ? "" : Arrays.stream(uri.getRawQuery().split("&"))
+                .sorted()
+                .collect(Collectors.joining("&"));
+        String request = method.toUpperCase(Locale.ROOT) + " " + uri.getScheme() + "://" + uri.getRawAuthority()
+                + uri.getRawPath() + "?" + query + "\n" + json(body);
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(request.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String json(Object body) {
+        if (body == null) {
+            return "";
+        }
+        try {
+            return MAPPER.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            return String.valueOf(body);
+        }
+    }
+
+    /**
+     * Indexes the records of the file, dropping a last record that was not written completely.
+     */
+    private void load() throws IOException {
+        long size = channel.size();
+        if (size == 0 && mode == Mode.RECORD) {
+            channel.write(ByteBuffer.wrap(MAGIC), 0);
+            end = MAGIC.length;
+            return;
+        }
+        ByteBuffer buffer = map(size);
+        byte[] magic = new byte[MAGIC.length];
+        if (size >= MAGIC.length) {
+            buffer.get(0, magic);
+        }
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException(path + " is not a cassette");
+        }
+        int position = MAGIC.length;
+        byte[] fingerprint = new byte[FINGERPRINT_BYTES];
+        while (position + Integer.BYTES <= size) {
+            int length = buffer.getInt(position);
+            if (length < FINGERPRINT_BYTES || position + Integer.BYTES + (long) length > size) {
+                break;
+            }
+            buffer.get(position + Integer.BYTES, fingerprint);
+            index.put(HexFormat.of().formatHex(fingerprint), (long) position);
+            position += Integer.BYTES + length;
+        }
+        end = position;
+        if (end < size) {
+            log.warn("Dropping {} bytes of an incomplete record at the end of {}", size - end, path);
+            if (mode == Mode.RECORD) {
+                channel.truncate(end);
+            }
+        }
+        log.info("Cassette {} opened with {} recorded responses", path, index.size());
+    }
+
+    private Recording read(long offset) throws IOException {
+        ByteBuffer buffer = mapped;
+        if (buffer == null || offset + Integer.BYTES > buffer.capacity()
+                || offset + Integer.BYTES + buffer.getInt((int) offset) > buffer.capacity()) {
+            // Recorded after the file was mapped
+            buffer = map(end);
+        }
+        ByteBuffer record = buffer.duplicate();
+        record.position((int) offset + Integer.BYTES + FINGERPRINT_BYTES);
+        int status = record.getInt();
+        int headerCount = Short.toUnsignedInt(record.getShort());
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (int i = 0; i < headerCount; i++) {
+            headers.put(readString(record), readString(record));
+        }
+        byte[] compressed = new byte[record.getInt()];
+        record.get(compressed);
+        return new Recording(status, headers, gunzip(compressed));
+    }
+
+    private synchronized MappedByteBuffer map(long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException(path + " is too large to map");
+        }
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        return mapped;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(body);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+            channel.close();
+            channel = null;
+        }
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public long getReplays() {
+        return replays.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getRecordings() {
+        return recordings.sum();
+    }
+
+    /**
+     * A recorded response.
+     *
+     * @param status  the status code
+     * @param headers the headers kept, names in lower case
+     * @param body    the body, uncompressed
+     */
+    public record Recording(int status, Map<String, String> headers, byte[] body) {
+    }
+}
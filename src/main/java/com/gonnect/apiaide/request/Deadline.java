@@ -0,0 +1,35 @@
+package com.gonnect.apiaide.request;
+
+import java.time.Duration;
+
+/**
+ * The point in time by which a piece of work must be done, e.g. answering a query. Requests sent on its behalf
+ * time out when it passes, and are not retried if a retry could not finish before it.
+ *
+ * @param expiresAtNanos the {@link System#nanoTime()} at which the deadline passes
+ */
+public record Deadline(long expiresAtNanos) {
+
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    /**
+     * @return the time left, zero once the deadline has passed
+     */
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, expiresAtNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return expiresAtNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * @return {@code timeout}, or the time left if that is shorter
+     */
+    public Duration cap(Duration timeout) {
+        Duration remaining = remaining();
+        return remaining.compareTo(timeout) < 0 ? remaining : timeout;
+    }
+}
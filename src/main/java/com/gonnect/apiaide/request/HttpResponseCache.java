@@ -0,0 +1,301 @@
+package com.gonnect.apiaide.request;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@code HttpResponseCache} keeps the raw bodies of GET responses so repeated lookups of the same resource are
+ * answered locally, without a request that counts against the API's rate limit or quota.
+ * <p>
+ * Freshness follows the response headers: {@code Cache-Control: no-store} and {@code Vary: *} responses are not
+ * kept, {@code max-age} (or {@code s-maxage}) and otherwise {@code Expires} decide how long a response is fresh,
+ * and {@code no-cache} responses are kept only to be revalidated. A TTL override configured for an endpoint takes
+ * precedence over the headers. Stale entries with an {@code ETag} or {@code Last-Modified} are revalidated with a
+ * conditional request; a {@code 304 Not Modified} renews them without transferring the body again.
+ * <p>
+ * Entries are evicted least recently used first once their bodies exceed {@code maxBytes} in total.
+ */
+@Component
+public class HttpResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(HttpResponseCache.class);
+    private static final Pattern MAX_AGE = Pattern.compile("(?:^|,)\\s*(s-maxage|max-age)\\s*=\\s*\"?(\\d+)\"?");
+    private static final Pattern PATH_VARIABLE = Pattern.compile("\\{[^}]+}");
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final long defaultTtlMillis;
+    private final LongSupplier clock;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private volatile List<TtlOverride> ttlOverrides = List.of();
+    private long totalBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public HttpResponseCache(@Value("${apiaide.http.cache.enabled:false}") boolean enabled,
+                             @Value("${apiaide.http.cache.max-bytes:67108864}") long maxBytes,
+                             @Value("${apiaide.http.cache.max-entry-bytes:4194304}") long maxEntryBytes,
+                             @Value("${apiaide.http.cache.default-ttl-ms:0}") long defaultTtlMillis,
+                             @Value("${apiaide.http.cache.ttl-overrides:}") String ttlOverrides) {
+        this(enabled, maxBytes, maxEntryBytes, defaultTtlMillis, ttlOverrides, System::currentTimeMillis);
+    }
+
+    HttpResponseCache(boolean enabled, long maxBytes, long maxEntryBytes, long defaultTtlMillis, String ttlOverrides,
+                      LongSupplier clock) {
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxEntryBytes;
+        this.defaultTtlMillis = defaultTtlMillis;
+        this.clock = clock;
+        for (String override : ttlOverrides.split(",")) {
+            String[] elements = override.trim().split("=", 2);
+            if (elements.length == 2) {
+                registerTtl(elements[0].trim(), Duration.ofSeconds(Long.parseLong(elements[1].trim())));
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets how long responses of an endpoint stay fresh, whatever their headers say.
+     *
+     * @param pathTemplate the endpoint path as in the spec, e.g. "/movie/{movie_id}"
+     * @param ttl          the time to live
+     */
+    public synchronized void registerTtl(String pathTemplate, Duration ttl) {
+        // Any base path of the server may precede the endpoint path
+        StringBuilder regex = new StringBuilder("(?:/.*)?");
+        Matcher variable = PATH_VARIABLE.matcher(pathTemplate);
+        int literalStart = 0;
+        while (variable.find()) {
+            regex.append(Pattern.quote(pathTemplate.substring(literalStart, variable.start()))).append("[^/]+");
+            literalStart = variable.end();
+        }
+        regex.append(Pattern.quote(pathTemplate.substring(literalStart)));
+
+        List<TtlOverride> overrides = new ArrayList<>(ttlOverrides);
+        overrides.add(new TtlOverride(pathTemplate, Pattern.compile(regex.toString()), ttl.toMillis(),
+                literalSegments(pathTemplate)));
+        // Prefer the most specific template, so "/movie/top_rated" wins over "/movie/{movie_id}"
+        overrides.sort(Comparator.comparingInt(TtlOverride::literalSegments).reversed());
+        ttlOverrides = List.copyOf(overrides);
+    }
+
+    /**
+     * Looks up the cached response for a GET.
+     *
+     * @param uri the request URI
+     * @return the entry and whether it can be used without revalidation
+     */
+    public synchronized Lookup lookup(URI uri) {
+        Entry entry = entries.get(uri.toString());
+        if (entry == null) {
+            misses.increment();
+            return Lookup.MISS;
+        }
+        if (clock.getAsLong() < entry.expiresAt()) {
+            hits.increment();
+            return new Lookup(entry, true);
+        }
+        misses.increment();
+        return new Lookup(entry, false);
+    }
+
+    /**
+     * Keeps a response if its headers allow it.
+     *
+     * @param uri     the request URI
+     * @param status  the status code; only 200 responses are kept
+     * @param body    the raw body
+     * @param headers the response headers, names in lower case
+     * @return {@code true} if the response was cached
+     */
+    public boolean store(URI uri, int status, byte[] body, Map<String, String> headers) {
+        if (!enabled || status != 200 || body == null || body.length > maxEntryBytes) {
+            return false;
+        }
+        String cacheControl = headers.getOrDefault("cache-control", "").toLowerCase(Locale.ROOT);
+        if (cacheControl.contains("no-store") || "*".equals(headers.get("vary"))) {
+            return false;
+        }
+        long now = clock.getAsLong();
+        long ttl = ttlMillis(uri, cacheControl, headers, now);
+        Entry entry = new Entry(status, body, headers.get("content-type"), headers.get("etag"),
+                headers.get("last-modified"), now + ttl);
+        if (ttl <= 0 && !entry.canRevalidate()) {
+            return false;
+        }
+        put(uri.toString(), entry);
+        return true;
+    }
+
+    /**
+     * Renews an entry after the server answered a conditional request with {@code 304 Not Modified}.
+     *
+     * @param uri      the request URI
+     * @param previous the stale entry
+     * @param headers  the headers of the 304 response, names in lower case
+     * @return the renewed entry
+     */
+    public Entry revalidate(URI uri, Entry previous, Map<String, String> headers) {
+        revalidations.increment();
+        long now = clock.getAsLong();
+        String cacheControl = headers.getOrDefault("cache-control", "").toLowerCase(Locale.ROOT);
+        Entry renewed = new Entry(previous.status(), previous.body(), previous.contentType(),
+                headers.getOrDefault("etag", previous.etag()),
+                headers.getOrDefault("last-modified", previous.lastModified()),
+                now + ttlMillis(uri, cacheControl, headers, now));
+        put(uri.toString(), renewed);
+        return renewed;
+    }
+
+    private long ttlMillis(URI uri, String cacheControl, Map<String, String> headers, long now) {
+        String path = uri.getPath() == null ? "" : uri.getPath();
+        for (TtlOverride override : ttlOverrides) {
+            if (override.pattern().matcher(path).matches()) {
+                return override.ttlMillis();
+            }
+        }
+        if (cacheControl.contains("no-cache")) {
+            return 0;
+        }
+        Matcher maxAge = MAX_AGE.matcher(cacheControl);
+        long seconds = -1;
+        while (maxAge.find()) {
+            // s-maxage takes precedence over max-age
+            if (seconds < 0 || maxAge.group(1).equals("s-maxage")) {
+                seconds = Long.parseLong(maxAge.group(2));
+            }
+        }
+        if (seconds >= 0) {
+            return seconds * 1000;
+        }
+        String expires = headers.get("expires");
+        if (expires != null) {
+            try {
+                long expiresAt = ZonedDateTime.parse(expires, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+                return Math.max(0, expiresAt - now);
+            } catch (DateTimeParseException e) {
+                // An invalid Expires means already expired
+                return 0;
+            }
+        }
+        return defaultTtlMillis;
+    }
+
+    private synchronized void put(String key, Entry entry) {
+        Entry replaced = entries.put(key, entry);
+        if (replaced != null) {
+            totalBytes -= replaced.body().length;
+        }
+        totalBytes += entry.body().length;
+
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Entry> evicted = eldest.next();
+            totalBytes -= evicted.getValue().body().length;
+            eldest.remove();
+            evictions.increment();
+            log.debug("Evicted {} from the response cache", evicted.getKey());
+        }
+    }
+
+    private static int literalSegments(String pathTemplate) {
+        int count = 0;
+        for (String segment : pathTemplate.split("/")) {
+            if (!segment.isEmpty() && !segment.startsWith("{")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getRevalidations() {
+        return revalidations.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * A cached response.
+     *
+     * @param status       the status code
+     * @param body         the raw body
+     * @param contentType  the Content-Type header, if any
+     * @param etag         the ETag header, if any
+     * @param lastModified the Last-Modified header, if any
+     * @param expiresAt    epoch millis from which the entry must be revalidated
+     */
+    public record Entry(int status, byte[] body, String contentType, String etag, String lastModified, long expiresAt) {
+
+        public boolean canRevalidate() {
+            return etag != null || lastModified != null;
+        }
+    }
+
+    /**
+     * Outcome of a lookup.
+     *
+     * @param entry the cached entry, null on a miss
+     * @param fresh whether the entry can be used without asking the server
+     */
+    public record Lookup(Entry entry, boolean fresh) {
+
+        static final Lookup MISS = new Lookup(null, false);
+
+        public Optional<Entry> stale() {
+            return fresh || entry == null || !entry.canRevalidate() ? Optional.empty() : Optional.of(entry);
+        }
+    }
+
+    private record TtlOverride(String pathTemplate, Pattern pattern, long ttlMillis, int literalSegments) {
+    }
+}
@@ -0,0 +1,213 @@
+package com.gonnect.apiaide.request;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * {@code RequestPolicy} decides when the {@link RequestWrapper} hedges or retries a request, to cut the tail
+ * latency of the upstream APIs.
+ * <p>
+ * The latencies of the last {@value #WINDOW} responses of every endpoint are kept. Once an endpoint has
+ * {@code minSamples} of them, a GET still unanswered after the endpoint's {@code percentile} latency (the p95 by
+ * default) is hedged: a second request is sent and whichever answers first is used.
+ * <p>
+ * Idempotent requests that fail with a transport error, a timeout or a 429, 502, 503 or 504 status are retried
+ * up to {@code maxRetries} times, after an exponential backoff with full jitter. A retry is given up when the
+ * deadline of the request would pass before the backoff and a median response of the endpoint.
+ */
+@Component
+public class RequestPolicy {
+
+    static final int WINDOW = 256;
+    private static final int MAX_ENDPOINTS = 1024;
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(429, 502, 503, 504);
+
+    private final boolean hedging;
+    private final double percentile;
+    private final int minSamples;
+    private final long minHedgeDelayMillis;
+    private final int maxRetries;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final DoubleSupplier random;
+
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder retriesAbandoned = new LongAdder();
+
+    @Autowired
+    public RequestPolicy(@Value("${apiaide.http.hedging.enabled:false}") boolean hedging,
+                         @Value("${apiaide.http.hedging.percentile:0.95}") double percentile,
+                         @Value("${apiaide.http.hedging.min-samples:20}") int minSamples,
+                         @Value("${apiaide.http.hedging.min-delay-ms:20}") long minHedgeDelayMillis,
+                         @Value("${apiaide.http.retry.max-retries:0}") int maxRetries,
+                         @Value("${apiaide.http.retry.base-backoff-ms:100}") long baseBackoffMillis,
+                         @Value("${apiaide.http.retry.max-backoff-ms:2000}") long maxBackoffMillis) {
+        this(hedging, percentile, minSamples, minHedgeDelayMillis, maxRetries, baseBackoffMillis, maxBackoffMillis,
+                () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    RequestPolicy(boolean hedging, double percentile, int minSamples, long minHedgeDelayMillis, int maxRetries,
+                  long baseBackoffMillis, long maxBackoffMillis, DoubleSupplier random) {
+        this.hedging = hedging;
+        this.percentile = percentile;
+        this.minSamples = Math.max(1, minSamples);
+        this.minHedgeDelayMillis = minHedgeDelayMillis;
+        this.maxRetries = maxRetries;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.random = random;
+    }
+
+    /**
+     * Records the latency of a response.
+     *
+     * @param endpoint the endpoint called, e.g. "GET /movie/{movie_id}"
+     * @param millis   the time from sending the request to receiving the whole response
+     */
+    public void recordLatency(String endpoint, long millis) {
+        LatencyWindow window = latencies.get(endpoint);
+        if (window == null) {
+            if (latencies.size() >= MAX_ENDPOINTS) {
+                return;
+            }
+            window = latencies.computeIfAbsent(endpoint, key -> new LatencyWindow());
+        }
+        window.add(millis);
+    }
+
+    /**
+     * @param endpoint the endpoint called
+     * @return how long to wait for a response before hedging, empty if the request must not be hedged
+     */
+    public Optional<Duration> hedgeDelay(String endpoint) {
+        if (!hedging) {
+            return Optional.empty();
+        }
+        OptionalLong latency = latency(endpoint, percentile);
+        return latency.isPresent()
+                ? Optional.of(Duration.ofMillis(Math.max(minHedgeDelayMillis, latency.getAsLong())))
+                : Optional.empty();
+    }
+
+    /**
+     * Decides whether to retry a failed request.
+     *
+     * @param endpoint  the endpoint called, null if unknown
+     * @param retry     the number of the retry, starting at 1
+     * @param remaining the time left before the deadline of the request
+     * @return the backoff before retrying, empty if the request must not be retried
+     */
+    public Optional<Duration> retryDelay(String endpoint, int retry, Duration remaining) {
+        if (retry > maxRetries) {
+            return Optional.empty();
+        }
+        long ceiling = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(retry - 1, 30));
+        long backoff = (long) (random.getAsDouble() * ceiling);
+        long expected = endpoint == null ? 0 : latency(endpoint, 0.5).orElse(0);
+        if (backoff + expected >= remaining.toMillis()) {
+            retriesAbandoned.increment();
+            return Optional.empty();
+        }
+        retries.increment();
+        return Optional.of(Duration.ofMillis(backoff));
+    }
+
+    public static boolean isRetryable(int status) {
+        return RETRYABLE_STATUSES.contains(status);
+    }
+
+    /**
+     * @return the latency at {@code quantile}, empty until the endpoint has {@code minSamples} responses
+     */
+    OptionalLong latency(String endpoint, double quantile) {
+        LatencyWindow window = latencies.get(endpoint);
+        return window == null ? OptionalLong.empty() : window.quantile(quantile, minSamples);
+    }
+
+    public boolean isHedging() {
+        return hedging;
+    }
+
+    void requested() {
+        requests.increment();
+    }
+
+    void hedged() {
+        hedges.increment();
+    }
+
+    void hedgeWon() {
+        hedgeWins.increment();
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getHedges() {
+        return hedges.sum();
+    }
+
+    public long getHedgeWins() {
+        return hedgeWins.sum();
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    public long getRetriesAbandoned() {
+        return retriesAbandoned.sum();
+    }
+
+    public double getHedgeRate() {
+        long count = requests.sum();
+        return count == 0 ? 0 : (double) hedges.sum() / count;
+    }
+
+    public double getRetryRate() {
+        long count = requests.sum();
+        return count == 0 ? 0 : (double) retries.sum() / count;
+    }
+
+    /**
+     * The latest latencies of an endpoint, in a ring buffer.
+     */
+    private static final class LatencyWindow {
+
+        private final long[] samples = new long[WINDOW];
+        private long count;
+
+        synchronized void add(long millis) {
+            samples[(int) (count++ % WINDOW)] = millis;
+        }
+
+        synchronized OptionalLong quantile(double quantile, int minSamples) {
+            int size = (int) Math.min(count, WINDOW);
+            if (size < minSamples) {
+                return OptionalLong.empty();
+            }
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(quantile * size) - 1;
+            return OptionalLong.of(sorted[Math.max(0, Math.min(size - 1, index))]);
+        }
+    }
+}
@@ -1,63 +1,409 @@
 package com.gonnect.apiaide.request;
 
+import io.netty.channel.ChannelOption;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+import reactor.util.function.Tuple2;
+import reactor.util.retry.Retry;
 
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * {@code RequestWrapper} is the HTTP client for the APIs being called.
+ * <p>
+ * All requests are non-blocking: the {@code *Mono} methods, {@link #exchange} and {@link #stream} return
+ * publishers that send the request when subscribed to, run on the client's event loop and hold no thread
+ * while waiting. Every call has a timeout, the configured response timeout unless one is passed; cancelling
+ * the subscription, or a {@code toFuture()} of it, aborts the request. The blocking methods are a facade for
+ * imperative callers: they wait on the calling thread without holding a monitor, so they can run on many
+ * cheap threads, but must never be called from an event-loop thread.
+ * <p>
+ * Connections are pooled per remote host, at most {@code maxConnectionsPerHost} each, and idle connections are
+ * closed after {@code maxIdleMillis}. Requests beyond the pool size wait for a connection without holding a
+ * thread, up to {@code maxPendingPerHost} per host.
+ * <p>
+ * GETs sent through {@link #exchange} are answered from the {@link HttpResponseCache} while the cached response
+ * is fresh, and revalidated with a conditional request once it is stale.
+ * <p>
+ * Requests sent through {@link #exchange} for a known endpoint are hedged and retried as the {@link RequestPolicy}
+ * decides: a slow GET gets a second request after the endpoint's p95 latency, and idempotent requests failing
+ * with a transient error are retried with jittered backoff while their {@link Deadline} allows.
+ * <p>
+ * Responses to {@link #exchange} can be recorded to, and replayed from, a {@link CassetteStore}. When replaying,
+ * nothing is sent: requests that were not recorded fail.
+ */
 @Component
 public class RequestWrapper {
 
+    private static final Set<HttpMethod> IDEMPOTENT = Set.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.PUT,
+            HttpMethod.DELETE, HttpMethod.OPTIONS);
+    private static final List<String> CACHE_HEADERS = List.of(HttpHeaders.CACHE_CONTROL, HttpHeaders.EXPIRES,
+            HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED, HttpHeaders.CONTENT_TYPE, HttpHeaders.VARY);
+
     private final WebClient client;
+    private final HttpResponseCache cache;
+    private final RequestPolicy policy;
+    private final CassetteStore cassette;
+    private final Duration defaultTimeout;
 
     @Autowired
     public RequestWrapper(WebClient.Builder builder,
-                          @Value("${API_TOKEN}") String apiToken) {
-        this.client = builder.defaultHeader("Authorization", "Bearer " + apiToken)
+                          HttpResponseCache cache,
+                          RequestPolicy policy,
+                          CassetteStore cassette,
+                          @Value("${API_TOKEN}") String apiToken,
+                          @Value("${apiaide.http.max-connections-per-host:16}") int maxConnectionsPerHost,
+                          @Value("${apiaide.http.max-pending-per-host:4096}") int maxPendingPerHost,
+                          @Value("${apiaide.http.max-idle-ms:30000}") long maxIdleMillis,
+                          @Value("${apiaide.http.event-loop-threads:0}") int eventLoopThreads,
+                          @Value("${apiaide.http.connect-timeout-ms:2000}") int connectTimeoutMillis,
+                          @Value("${apiaide.http.response-timeout-ms:10000}") long responseTimeoutMillis,
+                          @Value("${apiaide.http.max-response-bytes:4194304}") int maxResponseBytes) {
+        this.cache = cache;
+        this.policy = policy;
+        this.cassette = cassette;
+        this.defaultTimeout = Duration.ofMillis(responseTimeoutMillis);
+
+        ConnectionProvider connections = ConnectionProvider.builder("apiaide")
+                .maxConnections(maxConnectionsPerHost)
+                .pendingAcquireMaxCount(maxPendingPerHost)
+                .pendingAcquireTimeout(defaultTimeout)
+                .maxIdleTime(Duration.ofMillis(maxIdleMillis))
+                .build();
+        HttpClient httpClient = HttpClient.create(connections)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMillis);
+        if (eventLoopThreads > 0) {
+            httpClient = httpClient.runOn(LoopResources.create("apiaide-http", eventLoopThreads, true));
+        }
+
+        this.client = builder.clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(maxResponseBytes))
+                .defaultHeader("Authorization", "Bearer " + apiToken)
                 .build();
     }
 
-    public <T> ResponseEntity<T> get(String url, Class<T> responseType, Object... uriVars) {
-        return client.get()
-                .uri(url, uriVars)
+    /**
+     * Sends a request and returns the response whatever its status, so error bodies reach the caller too.
+     *
+     * @param method the HTTP method
+     * @param uri    the absolute, encoded URI
+     * @param body   the request body, null for none
+     * @return the response with its body as text
+     */
+    public Mono<ResponseEntity<String>> exchange(HttpMethod method, URI uri, Object body) {
+        return exchange(method, uri, body, defaultTimeout);
+    }
+
+    /**
+     * Like {@link #exchange(HttpMethod, URI, Object)}, failing with a {@link java.util.concurrent.TimeoutException}
+     * if the whole response, retries included, has not arrived within {@code timeout}.
+     */
+    public Mono<ResponseEntity<String>> exchange(HttpMethod method, URI uri, Object body, Duration timeout) {
+        return exchange(method, uri, body, null, Deadline.after(timeout));
+    }
+
+    /**
+     * Sends a request for an endpoint of a spec. Its latency is tracked per endpoint, which decides when it is
+     * hedged, and it is not retried past its deadline.
+     *
+     * @param method   the HTTP method
+     * @param uri      the absolute, encoded URI
+     * @param body     the request body, null for none
+     * @param endpoint the spec endpoint, e.g. "GET /movie/{movie_id}"; null for no latency tracking or hedging
+     * @param deadline the time by which the response is needed; null for the configured response timeout
+     * @return the response with its body as text
+     */
+    public Mono<ResponseEntity<String>> exchange(HttpMethod method, URI uri, Object body, String endpoint, Deadline deadline) {
+        if (cassette.getMode() == CassetteStore.Mode.REPLAY) {
+            return replay(method, uri, body);
+        }
+        Deadline effectiveDeadline = deadline == null ? Deadline.after(defaultTimeout) : deadline;
+        Mono<ResponseEntity<String>> response;
+        if (cache.isEnabled() && method == HttpMethod.GET && body == null) {
+            response = cachedGet(uri, endpoint, effectiveDeadline).map(cached -> ResponseEntity.status(cached.getStatusCode())
+                    .headers(cached.getHeaders())
+                    .body(cached.getBody() == null ? null : new String(cached.getBody(), StandardCharsets.UTF_8)));
+        } else {
+            response = resilient(method, endpoint, effectiveDeadline, () -> withBody(client.method(method).uri(uri), body)
+                    .exchangeToMono(entity -> entity.toEntity(String.class)));
+        }
+        return cassette.getMode() == CassetteStore.Mode.RECORD ? record(method, uri, body, response) : response;
+    }
+
+    /**
+     * Streams a response body as it arrives, without buffering it.
+     * <p>
+     * The buffers belong to the subscriber, which must release them, e.g. with
+     * {@link org.springframework.core.io.buffer.DataBufferUtils#release(DataBuffer)}. Error statuses fail the
+     * stream with a {@link org.springframework.web.reactive.function.client.WebClientResponseException}.
+     *
+     * @param method  the HTTP method
+     * @param uri     the absolute, encoded URI
+     * @param body    the request body, null for none
+     * @param timeout maximum wait for the first buffer and between buffers
+     * @return the body in the chunks it arrives in
+     */
+    public Flux<DataBuffer> stream(HttpMethod method, URI uri, Object body, Duration timeout) {
+        return withBody(client.method(method).uri(uri), body)
                 .retrieve()
-                .toEntity(responseType)
-                .block();
+                .bodyToFlux(DataBuffer.class)
+                .timeout(timeout);
+    }
+
+    public <T> Mono<ResponseEntity<T>> getMono(String url, Class<T> responseType, Object... uriVars) {
+        return getMono(url, responseType, defaultTimeout, uriVars);
+    }
+
+    public <T> Mono<ResponseEntity<T>> getMono(String url, Class<T> responseType, Duration timeout, Object... uriVars) {
+        return retrieve(client.get().uri(url, uriVars), responseType, timeout);
+    }
+
+    public <T> Mono<ResponseEntity<T>> postMono(String url, Object request, Class<T> responseType, Object... uriVars) {
+        return postMono(url, request, responseType, defaultTimeout, uriVars);
+    }
+
+    public <T> Mono<ResponseEntity<T>> postMono(String url, Object request, Class<T> responseType, Duration timeout, Object... uriVars) {
+        return retrieve(client.post().uri(url, uriVars).bodyValue(request), responseType, timeout);
+    }
+
+    public <T> Mono<ResponseEntity<T>> putMono(String url, Object request, Class<T> responseType, Object... uriVars) {
+        return putMono(url, request, responseType, defaultTimeout, uriVars);
+    }
+
+    public <T> Mono<ResponseEntity<T>> putMono(String url, Object request, Class<T> responseType, Duration timeout, Object... uriVars) {
+        return retrieve(client.put().uri(url, uriVars).bodyValue(request), responseType, timeout);
+    }
+
+    public <T> Mono<ResponseEntity<T>> patchMono(String url, Object request, Class<T> responseType, Object... uriVars) {
+        return patchMono(url, request, responseType, defaultTimeout, uriVars);
+    }
+
+    public <T> Mono<ResponseEntity<T>> patchMono(String url, Object request, Class<T> responseType, Duration timeout, Object... uriVars) {
+        return retrieve(client.patch().uri(url, uriVars).bodyValue(request), responseType, timeout);
+    }
+
+    public <T> Mono<ResponseEntity<T>> deleteMono(String url, Class<T> responseType, Object... uriVars) {
+        return deleteMono(url, responseType, defaultTimeout, uriVars);
+    }
+
+    public <T> Mono<ResponseEntity<T>> deleteMono(String url, Class<T> responseType, Duration timeout, Object... uriVars) {
+        return retrieve(client.delete().uri(url, uriVars), responseType, timeout);
+    }
+
+    public <T> ResponseEntity<T> get(String url, Class<T> responseType, Object... uriVars) {
+        return join(getMono(url, responseType, uriVars));
     }
 
     public <T> ResponseEntity<T> post(String url, Object request, Class<T> responseType, Object... uriVars) {
-        return client.post()
-                .uri(url, uriVars)
-                .bodyValue(request)
-                .retrieve()
-                .toEntity(responseType)
-                .block();
+        return join(postMono(url, request, responseType, uriVars));
     }
 
     public <T> ResponseEntity<T> put(String url, Object request, Class<T> responseType, Object... uriVars) {
-        return client.put()
-                .uri(url, uriVars)
-                .bodyValue(request)
-                .retrieve()
-                .toEntity(responseType)
-                .block();
+        return join(putMono(url, request, responseType, uriVars));
     }
 
     public <T> ResponseEntity<T> patch(String url, Object request, Class<T> responseType, Object... uriVars) {
-        return client.patch()
-                .uri(url, uriVars)
-                .bodyValue(request)
-                .retrieve()
-                .toEntity(responseType)
-                .block();
+        return join(patchMono(url, request, responseType, uriVars));
     }
 
     public <T> ResponseEntity<T> delete(String url, Class<T> responseType, Object... uriVars) {
-        return client.delete()
-                .uri(url, uriVars)
-                .retrieve()
+        return join(deleteMono(url, responseType, uriVars));
+    }
+
+    /**
+     * Waits for a call on the current thread. Interrupting the thread cancels the call.
+     *
+     * @param call a call of this wrapper; its timeout bounds the wait
+     * @return the result
+     * @throws IllegalStateException if called from an event-loop thread, which must never block
+     */
+    public <T> T join(Mono<T> call) {
+        return call.block();
+    }
+
+    private Mono<ResponseEntity<String>> replay(HttpMethod method, URI uri, Object body) {
+        return Mono.fromCallable(() -> cassette.replay(method.name(), uri, body))
+                .flatMap(recording -> recording
+                        .map(recorded -> {
+                            HttpHeaders headers = new HttpHeaders();
+                            recorded.headers().forEach(headers::set);
+                            return Mono.just(ResponseEntity.status(recorded.status())
+                                    .headers(headers)
+                                    .body(new String(recorded.body(), StandardCharsets.UTF_8)));
+                        })
+                        .orElseGet(() -> Mono.error(new IllegalStateException("No recorded response for " + method + " " + uri))));
+    }
+
+    /**
+     * Appends the response to the cassette, off the event loop, unless it is a transient error.
+     */
+    private Mono<ResponseEntity<String>> record(HttpMethod method, URI uri, Object body, Mono<ResponseEntity<String>> response) {
+        return response.flatMap(entity -> {
+            int status = entity.getStatusCode().value();
+            if (RequestPolicy.isRetryable(status) || status == HttpStatus.NOT_MODIFIED.value()) {
+                return Mono.just(entity);
+            }
+            byte[] bytes = entity.getBody() == null ? new byte[0] : entity.getBody().getBytes(StandardCharsets.UTF_8);
+            return Mono.fromRunnable(() -> cassette.record(method.name(), uri, body, status, cacheHeaders(entity.getHeaders()), bytes))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .thenReturn(entity);
+        });
+    }
+
+    private Mono<ResponseEntity<byte[]>> cachedGet(URI uri, String endpoint, Deadline deadline) {
+        HttpResponseCache.Lookup lookup = cache.lookup(uri);
+        if (lookup.fresh()) {
+            return Mono.just(toResponse(lookup.entry()));
+        }
+        return resilient(HttpMethod.GET, endpoint, deadline, () -> client.get().uri(uri)
+                .headers(headers -> lookup.stale().ifPresent(entry -> {
+                    if (entry.etag() != null) {
+                        headers.setIfNoneMatch(entry.etag());
+                    }
+                    if (entry.lastModified() != null) {
+                        headers.set(HttpHeaders.IF_MODIFIED_SINCE, entry.lastModified());
+                    }
+                }))
+                .exchangeToMono(response -> response.toEntity(byte[].class)))
+                .map(response -> {
+                    Map<String, String> headers = cacheHeaders(response.getHeaders());
+                    if (response.getStatusCode().value() == HttpStatus.NOT_MODIFIED.value() && lookup.stale().isPresent()) {
+                        return toResponse(cache.revalidate(uri, lookup.stale().get(), headers));
+                    }
+                    cache.store(uri, response.getStatusCode().value(), response.getBody(), headers);
+                    return response;
+                });
+    }
+
+    /**
+     * Sends a request with the hedging and retries of the {@link RequestPolicy}.
+     *
+     * @param send creates the request; called once per attempt
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Mono<ResponseEntity<T>> resilient(HttpMethod method, String endpoint, Deadline deadline,
+                                                  Supplier<Mono<ResponseEntity<T>>> send) {
+        policy.requested();
+        Mono<ResponseEntity<T>> attempt = Mono.defer(() -> send.get().timeout(deadline.cap(defaultTimeout)));
+        if (endpoint != null) {
+            attempt = attempt.elapsed()
+                    .doOnNext(timed -> policy.recordLatency(endpoint, timed.getT1()))
+                    .map(Tuple2::getT2);
+        }
+        Mono<ResponseEntity<T>> call = method == HttpMethod.GET && endpoint != null ? hedged(endpoint, attempt) : attempt;
+        if (!IDEMPOTENT.contains(method)) {
+            return call;
+        }
+        return call
+                .flatMap(response -> RequestPolicy.isRetryable(response.getStatusCode().value())
+                        ? Mono.<ResponseEntity<T>>error(new RetryableResponse(response))
+                        : Mono.just(response))
+                .retryWhen(Retry.from(signals -> signals.concatMap(signal -> {
+                    Throwable failure = signal.failure();
+                    if (!isRetryable(failure)) {
+                        return Mono.<Long>error(failure);
+                    }
+                    return policy.retryDelay(endpoint, (int) signal.totalRetries() + 1, deadline.remaining())
+                            .map(Mono::delay)
+                            .orElseGet(() -> Mono.error(failure));
+                })))
+                // Once the retries are used up, the caller gets the last error response as it is
+                .onErrorResume(RetryableResponse.class, e -> Mono.just((ResponseEntity<T>) e.response));
+    }
+
+    /**
+     * Sends a second request if the first has not been answered after the endpoint's hedge delay, and takes
+     * whichever response arrives first; the other request is cancelled.
+     */
+    private <T> Mono<ResponseEntity<T>> hedged(String endpoint, Mono<ResponseEntity<T>> attempt) {
+        return Mono.defer(() -> policy.hedgeDelay(endpoint)
+                .map(delay -> Mono.firstWithValue(attempt, Mono.delay(delay)
+                        .then(attempt.doOnSubscribe(subscription -> policy.hedged())
+                                .doOnNext(response -> policy.hedgeWon()))))
+                .orElse(attempt));
+    }
+
+    private static boolean isRetryable(Throwable failure) {
+        if (failure instanceof RetryableResponse || failure instanceof TimeoutException
+                || failure instanceof WebClientRequestException || failure instanceof IOException) {
+            return true;
+        }
+        // Both requests of a hedge failed
+        for (Throwable suppressed : failure.getSuppressed()) {
+            if (isRetryable(suppressed)) {
+                return true;
+            }
+        }
+        return failure.getCause() != null && failure.getCause() != failure && isRetryable(failure.getCause());
+    }
+
+    private static Map<String, String> cacheHeaders(HttpHeaders headers) {
+        Map<String, String> values = new HashMap<>();
+        for (String name : CACHE_HEADERS) {
+            List<String> value = headers.get(name);
+            if (value != null && !value.isEmpty()) {
+                values.put(name.toLowerCase(Locale.ROOT), String.join(", ", value));
+            }
+        }
+        return values;
+    }
+
+    private static ResponseEntity<byte[]> toResponse(HttpResponseCache.Entry entry) {
+        HttpHeaders headers = new HttpHeaders();
+        if (entry.contentType() != null) {
+            headers.set(HttpHeaders.CONTENT_TYPE, entry.contentType());
+        }
+        if (entry.etag() != null) {
+            headers.setETag(entry.etag());
+        }
+        return ResponseEntity.status(entry.status()).headers(headers).body(entry.body());
+    }
+
+    private static WebClient.RequestHeadersSpec<?> withBody(WebClient.RequestBodySpec request, Object body) {
+        return body == null ? request : request.bodyValue(body);
+    }
+
+    private static <T> Mono<ResponseEntity<T>> retrieve(WebClient.RequestHeadersSpec<?> request, Class<T> responseType, Duration timeout) {
+        return request.retrieve()
                 .toEntity(responseType)
-                .block();
+                .timeout(timeout);
+    }
+
+    /**
+     * A response with a status worth retrying, carried as an error through {@link Retry}.
+     */
+    private static final class RetryableResponse extends RuntimeException {
+
+        private final transient ResponseEntity<?> response;
+
+        RetryableResponse(ResponseEntity<?> response) {
+            super("Status " + response.getStatusCode().value(), null, false, false);
+            this.response = response;
+        }
     }
 }
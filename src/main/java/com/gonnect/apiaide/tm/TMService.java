@@ -2,19 +2,24 @@ package com.gonnect.apiaide.tm;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gonnect.apiaide.apiselector.EndpointTransitionModel;
 import com.gonnect.apiaide.oas.OpenApiProcessor;
 import com.gonnect.apiaide.oas.ReducedOpenAPISpec;
 import com.gonnect.apiaide.orchestrator.APIOrchestration;
 import com.gonnect.apiaide.orchestrator.QueryInput;
 import com.gonnect.apiaide.request.RequestWrapper;
+import com.gonnect.apiaide.warmup.WarmupOrchestrator;
+import jakarta.annotation.PostConstruct;
 import lombok.SneakyThrows;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class TMService {
@@ -29,26 +34,43 @@ public class TMService {
     private RequestWrapper requestWrapper;
     @Autowired
     private APIOrchestration apiOrchestration;
+    @Autowired
+    private WarmupOrchestrator warmup;
+    @Autowired
+    private EndpointTransitionModel transitionModel;
+
+    @Value("${apiaide.tm.seed-split:0}")
+    private double seedSplit;
+
+    private CompletableFuture<ReducedOpenAPISpec> reducedSpecFuture;
+    private CompletableFuture<Integer> transitionsFuture = CompletableFuture.completedFuture(0);
+
+    /**
+     * Starts reducing the TMDB spec, and seeding endpoint transitions from the held-out dataset solutions,
+     * on the warm-up pool, so both are ready by the time queries run.
+     * <p>
+     * The first {@code apiaide.tm.seed-split} fraction of the dataset is held out: its solutions seed the
+     * transition model and {@link #run()} evaluates only the remaining queries, whose solutions are never seen.
+     */
+    @PostConstruct
+    public void warmUp() {
+        reducedSpecFuture = warmup.start("tmdb-spec", this::reduceSpec);
+        if (seedSplit > 0) {
+            transitionsFuture = warmup.start("tmdb-endpoint-transitions", this::seedTransitions);
+        }
+    }
 
     @SneakyThrows
     public void run() {
 
         ObjectMapper mapper = new ObjectMapper();
-        String rawTmdbApiSpecStr = loaderService.loadOAS();
-
-        JsonNode rawTmdbApiSpec = mapper.readTree(rawTmdbApiSpecStr);
-
-        ReducedOpenAPISpec reducedSpec = openApiProcessor.reduceOpenApiSpec(
-                rawTmdbApiSpec,
-                false,   // dereference
-                true,    // onlyRequired
-                true     // mergeAllOf
-        );
+        ReducedOpenAPISpec reducedSpec = reducedSpecFuture.join();
+        transitionsFuture.join();
 
         List<String> queries = mapper.readValue(loaderService.loadTMDBQueries(), List.class);
 
 
-        for (int idx = 0; idx < queries.size(); idx++) {
+        for (int idx = heldOut(queries.size()); idx < queries.size(); idx++) {
             Map<String, String> queryAndSolution = Map.class.cast(queries.get(idx));
             String query = queryAndSolution.get("query");
             log.info("#".repeat(20) + " Query-" + (idx + 1) + " " + "#".repeat(20));
@@ -66,4 +88,36 @@ public class TMService {
 
 
     }
+
+    @SneakyThrows
+    private Integer seedTransitions() {
+        List<Map<String, Object>> dataset = new ObjectMapper().readValue(loaderService.loadTMDBQueries(), List.class);
+        int sequences = 0;
+        for (Map<String, Object> entry : dataset.subList(0, heldOut(dataset.size()))) {
+            if (entry.get("solution") instanceof List<?> solution) {
+                transitionModel.observe("tmdb", solution.stream().map(String::valueOf).toList());
+                sequences++;
+            }
+        }
+        return sequences;
+    }
+
+    /**
+     * @return how many queries, from the start of the dataset, seed the transition model instead of being run
+     */
+    private int heldOut(int queries) {
+        return (int) Math.min(queries, Math.round(queries * seedSplit));
+    }
+
+    @SneakyThrows
+    private ReducedOpenAPISpec reduceSpec() {
+        JsonNode rawTmdbApiSpec = new ObjectMapper().readTree(loaderService.loadOAS());
+
+        return openApiProcessor.reduceOpenApiSpec(
+                rawTmdbApiSpec,
+                false,   // dereference
+                true,    // onlyRequired
+                true     // mergeAllOf
+        );
+    }
 }
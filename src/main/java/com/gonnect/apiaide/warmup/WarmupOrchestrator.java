@@ -0,0 +1,112 @@
+package com.gonnect.apiaide.warmup;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * {@code WarmupOrchestrator} runs expensive start-up work in parallel on a background pool instead of
+ * serially on the main thread.
+ * <p>
+ * Each component (Python interpreter, embedding model, ICL embeddings, reduced specs) is started with
+ * {@link #start(String, Supplier)} and handed out as a future. Callers that arrive before warm-up finished
+ * block only on the future of the component they actually use.
+ * <p>
+ * Readiness is exposed through {@link #isReady()} and Spring Boot's {@link ReadinessState}: the application
+ * refuses traffic until every registered component completed, then flips to {@code ACCEPTING_TRAFFIC}.
+ */
+@Component
+public class WarmupOrchestrator {
+
+    private static final Logger log = LoggerFactory.getLogger(WarmupOrchestrator.class);
+
+    private final ApplicationEventPublisher publisher;
+    private final Map<String, CompletableFuture<?>> components = new ConcurrentHashMap<>();
+    private final ExecutorService pool;
+
+    public WarmupOrchestrator(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "warmup-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts warming up a component in the background.
+     *
+     * @param name        unique component name, used in logs
+     * @param initializer the start-up work, returning the initialized component
+     * @return a future completed with the component
+     */
+    public <T> CompletableFuture<T> start(String name, Supplier<T> initializer) {
+        CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> {
+            long start = System.currentTimeMillis();
+            T component = initializer.get();
+            log.info("Warm-up of {} finished in {} ms", name, System.currentTimeMillis() - start);
+            return component;
+        }, pool);
+        future.whenComplete((component, error) -> {
+            if (error != null) {
+                log.error("Warm-up of {} failed", name, error);
+            }
+        });
+        if (components.putIfAbsent(name, future) != null) {
+            throw new IllegalStateException("Warm-up component " + name + " is already registered");
+        }
+        return future;
+    }
+
+    /**
+     * @return {@code true} once every registered component finished warming up
+     */
+    public boolean isReady() {
+        CompletableFuture<Void> all = whenReady();
+        return all.isDone() && !all.isCompletedExceptionally();
+    }
+
+    /**
+     * @return a future completed when every component registered so far finished warming up
+     */
+    public CompletableFuture<Void> whenReady() {
+        return CompletableFuture.allOf(components.values().toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Keeps the application out of rotation until warm-up completes. Spring Boot marks the application
+     * as accepting traffic as soon as the context is ready; while components are still loading this
+     * reverts that, and flips it back once they are done.
+     */
+    @EventListener
+    public void onReadinessChange(AvailabilityChangeEvent<ReadinessState> event) {
+        if (event.getState() != ReadinessState.ACCEPTING_TRAFFIC || event.getSource() == this || isReady()) {
+            return;
+        }
+        AvailabilityChangeEvent.publish(publisher, this, ReadinessState.REFUSING_TRAFFIC);
+        whenReady().whenComplete((ignored, error) -> {
+            if (error == null) {
+                AvailabilityChangeEvent.publish(publisher, this, ReadinessState.ACCEPTING_TRAFFIC);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,38 @@
+package com.gonnect.apiaide;
+
+import com.gonnect.apiaide.orchestrator.APIOrchestration;
+import com.gonnect.apiaide.request.CassetteStore;
+import com.gonnect.apiaide.request.HttpResponseCache;
+import com.gonnect.apiaide.request.RequestPolicy;
+import com.gonnect.apiaide.request.RequestWrapper;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Builds the application context with the chat model mocked, so the wiring is checked without a model key.
+ */
+@SpringBootTest(properties = {"OPENAI_API_KEY=", "API_TOKEN=test"})
+class ApiAideApplicationTest {
+
+    @MockBean
+    ChatLanguageModel chatModel;
+
+    @Autowired
+    ApplicationContext context;
+
+    @Test
+    void wiresTheRequestPipelineAndTheOrchestration() {
+        // Then
+        assertNotNull(context.getBean(HttpResponseCache.class));
+        assertNotNull(context.getBean(RequestPolicy.class));
+        assertNotNull(context.getBean(CassetteStore.class));
+        assertNotNull(context.getBean(RequestWrapper.class));
+        assertNotNull(context.getBean(APIOrchestration.class));
+    }
+}
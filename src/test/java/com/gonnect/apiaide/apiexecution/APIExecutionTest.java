@@ -0,0 +1,124 @@
+package com.gonnect.apiaide.apiexecution;
+
+import com.gonnect.apiaide.oas.ReducedOpenAPISpec;
+import dev.langchain4j.chain.ConversationalRetrievalChain;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class APIExecutionTest {
+
+    private static final ReducedOpenAPISpec SPEC = new ReducedOpenAPISpec(
+            List.of(Map.of("url", "https://api.themoviedb.org/3")), "TMDB",
+            List.of(Map.of("name", "GET /search/person", "description", "Search for people")));
+    private static final String ACTION = "Operation: GET\nInput: {\"url\": \"/search/person\", \"params\": {\"query\": \"Sofia\"}}";
+
+    private final ConversationalRetrievalChain chain = mock(ConversationalRetrievalChain.class);
+    private final HttpExecutionEngine engine = mock(HttpExecutionEngine.class);
+
+    @Test
+    void showsTheModelTheFirstItemsOfLongResponses() {
+        // Given
+        String results = IntStream.range(0, 20)
+                .mapToObj(i -> "{\"id\": " + i + ", \"name\": \"Sofia " + i + "\"}")
+                .collect(Collectors.joining(", ", "{\"page\": 1, \"results\": [", "]}"));
+        respondWith(new HttpExecutionEngine.ExecutionResponse("GET /search/person", null, 200, results, 1));
+
+        // When
+        Map<String, String> output = new APIExecution(chain, engine, 5, 3000).run(request());
+
+        // Then
+        assertEquals("Response: {\"page\":1,\"results\":[{\"id\":0,\"name\":\"Sofia 0\"},{\"id\":1,\"name\":\"Sofia 1\"}]}",
+                observation());
+        assertEquals(results, output.get("response"));
+        assertEquals("done", output.get("result"));
+    }
+
+    @Test
+    void cutsObservationsAtTheMaximumLength() {
+        // Given
+        String biography = "x".repeat(500);
+        respondWith(new HttpExecutionEngine.ExecutionResponse("GET /search/person", null, 200,
+                "{\"biography\": \"" + biography + "\"}", 1));
+
+        // When
+        new APIExecution(chain, engine, 5, 100).run(request());
+
+        // Then
+        String observation = observation();
+        assertEquals("Response: ".length() + 100 + "...".length(), observation.length());
+        assertTrue(observation.endsWith("xxx..."));
+    }
+
+    @Test
+    void showsTheStatusOfFailedRequests() {
+        // Given
+        respondWith(new HttpExecutionEngine.ExecutionResponse("GET /search/person", null, 503,
+                "Request failed: Connection refused", 1));
+
+        // When
+        Map<String, String> output = new APIExecution(chain, engine, 5, 3000).run(request());
+
+        // Then
+        assertEquals("Response: Error 503: Request failed: Connection refused", observation());
+        assertNull(output.get("response"));
+    }
+
+    @Test
+    void asksForMaxResultsOnlyWhenPagesAreReadForTheCaller() {
+        // Given
+        when(chain.execute(any())).thenReturn("Execution Result: done");
+        APIExecution execution = new APIExecution(chain, engine, 5, 3000);
+
+        // When
+        when(engine.isPaginationEnabled()).thenReturn(false);
+        execution.run(request());
+        when(engine.isPaginationEnabled()).thenReturn(true);
+        execution.run(request());
+
+        // Then
+        ArgumentCaptor<String> prompts = ArgumentCaptor.forClass(String.class);
+        verify(chain, times(2)).execute(prompts.capture());
+        String withoutPagination = prompts.getAllValues().get(0);
+        String withPagination = prompts.getAllValues().get(1);
+        assertFalse(withoutPagination.contains("max_results"));
+        assertFalse(withoutPagination.contains("{pagination}"));
+        assertTrue(withoutPagination.contains("in the same order.\n"));
+        assertTrue(withPagination.contains("in the same order.\n If the plan needs a number of results"));
+        assertTrue(withPagination.contains("do not call the API again for the next pages.\n"));
+    }
+
+    private void respondWith(HttpExecutionEngine.ExecutionResponse response) {
+        when(chain.execute(any())).thenReturn(ACTION, "Execution Result: done");
+        when(engine.execute(any(), eq(SPEC), eq("tmdb"), any())).thenReturn(response);
+    }
+
+    /**
+     * @return the response line of the second prompt, the one feeding the response back to the model
+     */
+    private String observation() {
+        ArgumentCaptor<String> prompts = ArgumentCaptor.forClass(String.class);
+        verify(chain, times(2)).execute(prompts.capture());
+        return prompts.getAllValues().get(1).lines()
+                .filter(line -> line.startsWith("Response: "))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static APIExecutionRequest request() {
+        APIExecutionRequest request = new APIExecutionRequest();
+        request.setPlan("search for Sofia Coppola");
+        request.setScenario("tmdb");
+        request.setApiSpec(SPEC);
+        return request;
+    }
+}
@@ -0,0 +1,187 @@
+package com.gonnect.apiaide.apiexecution;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gonnect.apiaide.apiselector.EndpointTransitionModel;
+import com.gonnect.apiaide.mock.EndpointBehaviour;
+import com.gonnect.apiaide.mock.MockApiServer;
+import com.gonnect.apiaide.oas.ReducedOpenAPISpec;
+import com.gonnect.apiaide.request.CassetteStore;
+import com.gonnect.apiaide.request.HttpResponseCache;
+import com.gonnect.apiaide.request.RequestPolicy;
+import com.gonnect.apiaide.request.RequestWrapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs actions through the engine and a real {@link RequestWrapper} against a {@link MockApiServer} of the TMDB spec.
+ */
+class HttpExecutionEngineIntegrationTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String MOVIE = "GET /movie/{movie_id}";
+    private static final String TOP_RATED = "GET /movie/top_rated";
+
+    private MockApiServer server;
+    private ReducedOpenAPISpec spec;
+    private Path cassettePath;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = MockApiServer.start("oas/tmdb_oas.json");
+        spec = new ReducedOpenAPISpec(List.of(Map.of("url", server.baseUrl())), "TMDB", List.of(
+                Map.of("name", MOVIE),
+                Map.of("name", TOP_RATED),
+                Map.of("name", "GET /search/person")));
+        cassettePath = Files.createTempDirectory("cassette").resolve("tmdb.cassette");
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        server.close();
+        Files.deleteIfExists(cassettePath);
+        Files.deleteIfExists(cassettePath.getParent());
+    }
+
+    @Test
+    void answersRepeatedRequestsFromTheCache() throws IOException {
+        // Given
+        server.configure(MOVIE, EndpointBehaviour.DEFAULT.withCacheControl("max-age=60"));
+        HttpResponseCache cache = new HttpResponseCache(true, 1 << 20, 1 << 16, 0, "");
+        HttpExecutionEngine engine = engine(wrapper(cache, noPolicy(), cassette("off")), false);
+
+        // When
+        HttpExecutionEngine.ExecutionResponse first = engine.execute(action("/movie/603", Map.of()), spec, "tmdb", null);
+        HttpExecutionEngine.ExecutionResponse second = engine.execute(action("/movie/603", Map.of()), spec, "tmdb", null);
+
+        // Then
+        assertEquals(200, second.status());
+        assertEquals(first.body(), second.body());
+        assertEquals(603, MAPPER.readTree(second.body()).path("id").asInt());
+        assertEquals(1, server.requests(MOVIE));
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    void hedgesARequestSlowerThanTheEndpointUsuallyIs() {
+        // Given
+        RequestPolicy policy = new RequestPolicy(true, 0.5, 3, 20, 0, 100, 2000);
+        HttpExecutionEngine engine = engine(wrapper(disabledCache(), policy, cassette("off")), false);
+        for (int id = 1; id <= 3; id++) {
+            engine.execute(action("/movie/" + id, Map.of()), spec, "tmdb", null);
+        }
+        server.configure(MOVIE, EndpointBehaviour.DEFAULT.withLatency(Duration.ofMillis(500)));
+
+        // When
+        HttpExecutionEngine.ExecutionResponse slow = engine.execute(action("/movie/603", Map.of()), spec, "tmdb", null);
+
+        // Then
+        assertEquals(200, slow.status());
+        assertEquals(1, policy.getHedges());
+        assertEquals(5, server.requests(MOVIE));
+    }
+
+    @Test
+    void fansOutAListOfIdsAndKeepsTheirOrder() throws IOException {
+        // Given
+        HttpExecutionEngine engine = engine(wrapper(disabledCache(), noPolicy(), cassette("off")), false);
+
+        // When
+        HttpExecutionEngine.ExecutionResponse movies = engine.execute(
+                action("/movie/{movie_id}", Map.of("movie_id", List.of(603, 550, 13))), spec, "tmdb", null);
+
+        // Then
+        JsonNode body = MAPPER.readTree(movies.body());
+        assertEquals(200, movies.status());
+        assertEquals(3, movies.items());
+        assertEquals(List.of(603, 550, 13), List.of(body.get(0).path("id").asInt(), body.get(1).path("id").asInt(),
+                body.get(2).path("id").asInt()));
+        assertEquals(3, server.requests(MOVIE));
+        assertEquals(1, engine.getFanOuts());
+    }
+
+    @Test
+    void readsAsManyPagesAsMaxResultsNeeds() throws IOException {
+        // Given
+        server.configure(TOP_RATED, EndpointBehaviour.DEFAULT.withListSize(5).withTotalPages(10));
+        HttpExecutionEngine engine = engine(wrapper(disabledCache(), noPolicy(), cassette("off")), true);
+
+        // When
+        HttpExecutionEngine.ExecutionResponse topRated = engine.execute(
+                action("/movie/top_rated", Map.of("max_results", 12)), spec, "tmdb", null);
+
+        // Then
+        JsonNode body = MAPPER.readTree(topRated.body());
+        assertEquals(200, topRated.status());
+        assertEquals(12, body.path("results").size());
+        // The page after the last one read may have been requested ahead before it was cancelled
+        long requests = server.requests(TOP_RATED);
+        assertTrue(requests == 3 || requests == 4, "requested " + requests + " pages");
+        assertEquals(1, engine.getPagedReads());
+    }
+
+    @Test
+    void replaysRecordedResponsesWithoutTheServer() throws IOException {
+        // Given
+        CassetteStore recorder = cassette("record");
+        HttpExecutionEngine recording = engine(wrapper(disabledCache(), noPolicy(), recorder), false);
+        HttpExecutionEngine.ExecutionResponse recorded = recording.execute(action("/movie/603", Map.of()), spec, "tmdb", null);
+        recorder.close();
+        server.close();
+
+        // When
+        CassetteStore player = cassette("replay");
+        HttpExecutionEngine replaying = engine(wrapper(disabledCache(), noPolicy(), player), false);
+        HttpExecutionEngine.ExecutionResponse replayed = replaying.execute(action("/movie/603", Map.of()), spec, "tmdb", null);
+        HttpExecutionEngine.ExecutionResponse missing = replaying.execute(action("/movie/550", Map.of()), spec, "tmdb", null);
+
+        // Then
+        assertEquals(200, replayed.status());
+        assertEquals(recorded.body(), replayed.body());
+        assertEquals(503, missing.status());
+        assertTrue(missing.body().contains("No recorded response"), missing.body());
+        assertEquals(1, player.getReplays());
+        player.close();
+    }
+
+    private HttpExecutionEngine engine(RequestWrapper wrapper, boolean pagination) {
+        return new HttpExecutionEngine(wrapper, new EndpointTransitionModel(false, 20, 3), false, 0.6, 30_000,
+                50, 8, pagination, 10);
+    }
+
+    private static RequestWrapper wrapper(HttpResponseCache cache, RequestPolicy policy, CassetteStore cassette) {
+        return new RequestWrapper(WebClient.builder(), cache, policy, cassette, "token",
+                16, 4096, 30_000, 0, 2000, 5000, 1 << 22);
+    }
+
+    private static HttpResponseCache disabledCache() {
+        return new HttpResponseCache(false, 0, 0, 0, "");
+    }
+
+    private static RequestPolicy noPolicy() {
+        return new RequestPolicy(false, 0.95, 20, 20, 0, 100, 2000);
+    }
+
+    private CassetteStore cassette(String mode) {
+        try {
+            return new CassetteStore(mode, cassettePath.toString());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static CallerAction action(String url, Map<String, Object> params) {
+        return new CallerAction("GET", url, params, null, null, null);
+    }
+}
@@ -0,0 +1,135 @@
+package com.gonnect.apiaide.apiexecution;
+
+import com.gonnect.apiaide.apiselector.EndpointTransitionModel;
+import com.gonnect.apiaide.oas.ReducedOpenAPISpec;
+import com.gonnect.apiaide.request.RequestWrapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class HttpExecutionEngineTest {
+
+    private static final String SERVER = "https://api.themoviedb.org/3";
+    private static final URI SEARCH = URI.create(SERVER + "/search/person?query=Sofia%20Coppola");
+    private static final URI CREDITS = URI.create(SERVER + "/person/1769/movie_credits");
+    private static final ReducedOpenAPISpec SPEC = new ReducedOpenAPISpec(List.of(Map.of("url", SERVER)), "TMDB", List.of(
+            Map.of("name", "GET /search/person"),
+            Map.of("name", "GET /person/{person_id}/movie_credits")));
+
+    private final RequestWrapper requestWrapper = mock(RequestWrapper.class);
+    private final EndpointTransitionModel transitions = new EndpointTransitionModel(true, 20, 1);
+
+    @BeforeEach
+    void setUp() {
+        when(requestWrapper.join(any())).thenAnswer(invocation -> ((Mono<?>) invocation.getArgument(0)).block());
+        when(requestWrapper.exchange(eq(HttpMethod.GET), eq(SEARCH), isNull(), any(), any()))
+                .thenReturn(Mono.just(ResponseEntity.ok("{\"results\": [{\"id\": 1769, \"name\": \"Sofia Coppola\"}]}")));
+        when(requestWrapper.exchange(eq(HttpMethod.GET), eq(CREDITS), isNull()))
+                .thenReturn(Mono.just(ResponseEntity.ok("{\"cast\": [], \"crew\": [{\"title\": \"Lost in Translation\"}]}")));
+        transitions.observe("tmdb", List.of("GET /search/person", "GET /person/{person_id}/movie_credits"));
+    }
+
+    @Test
+    void prefetchesThePredictedCallAndServesItWhenAsked() {
+        // Given
+        HttpExecutionEngine engine = engine(true);
+
+        // When
+        HttpExecutionEngine.ExecutionResponse search = engine.execute(
+                action("/search/person", Map.of("query", "Sofia Coppola")), SPEC, "tmdb", null);
+        HttpExecutionEngine.ExecutionResponse credits = engine.execute(
+                action("/person/1769/movie_credits", Map.of()), SPEC, "tmdb", null);
+
+        // Then
+        assertEquals(200, search.status());
+        assertEquals("GET /person/{person_id}/movie_credits", credits.endpoint());
+        assertTrue(credits.body().contains("Lost in Translation"));
+        assertEquals(1, engine.getPrefetches());
+        assertEquals(1, engine.getPrefetchHits());
+        verify(requestWrapper, never()).exchange(any(), eq(CREDITS), any(), any(), any());
+    }
+
+    @Test
+    void sendsNothingAheadWhenPrefetchIsDisabled() {
+        // Given
+        HttpExecutionEngine engine = engine(false);
+
+        // When
+        engine.execute(action("/search/person", Map.of("query", "Sofia Coppola")), SPEC, "tmdb", null);
+
+        // Then
+        assertEquals(0, engine.getPrefetches());
+        verify(requestWrapper, never()).exchange(any(), any(), any());
+    }
+
+    @Test
+    void predictsACallOnlyForASinglePathVariableWithAnId() {
+        // When
+        Optional<CallerAction> fromResults = HttpExecutionEngine.predictedCall("GET /person/{person_id}/movie_credits",
+                "{\"results\": [{\"id\": 1769}, {\"id\": 4}]}");
+        Optional<CallerAction> fromObject = HttpExecutionEngine.predictedCall("GET /movie/{movie_id}", "{\"id\": 603}");
+        Optional<CallerAction> twoVariables = HttpExecutionEngine.predictedCall("GET /tv/{tv_id}/season/{season_number}", "{\"id\": 1399}");
+        Optional<CallerAction> noVariable = HttpExecutionEngine.predictedCall("GET /movie/top_rated", "{\"id\": 603}");
+        Optional<CallerAction> noId = HttpExecutionEngine.predictedCall("GET /movie/{movie_id}", "{\"results\": []}");
+
+        // Then
+        assertEquals("/person/1769/movie_credits", fromResults.orElseThrow().url());
+        assertEquals("/movie/603", fromObject.orElseThrow().url());
+        assertTrue(twoVariables.isEmpty());
+        assertTrue(noVariable.isEmpty());
+        assertTrue(noId.isEmpty());
+    }
+
+    @Test
+    void returnsActionsThatCannotBeBoundAsBadRequests() {
+        // Given
+        HttpExecutionEngine engine = engine(false);
+
+        // When
+        HttpExecutionEngine.ExecutionResponse unknown = engine.execute(action("/tv/popular", Map.of()), SPEC, "tmdb", null);
+
+        // Then
+        assertEquals(400, unknown.status());
+        assertFalse(unknown.isSuccessful());
+        assertTrue(unknown.body().startsWith("No endpoint matches"));
+        assertEquals(0, engine.getRequests());
+    }
+
+    @Test
+    void returnsTransportFailuresAsServiceUnavailable() {
+        // Given
+        HttpExecutionEngine engine = engine(false);
+        when(requestWrapper.exchange(eq(HttpMethod.GET), eq(SEARCH), isNull(), any(), any()))
+                .thenReturn(Mono.error(new IllegalStateException("Connection refused")));
+
+        // When
+        HttpExecutionEngine.ExecutionResponse failed = engine.execute(
+                action("/search/person", Map.of("query", "Sofia Coppola")), SPEC, "tmdb", null);
+
+        // Then
+        assertEquals(503, failed.status());
+        assertEquals("Request failed: Connection refused", failed.body());
+        assertEquals(SEARCH, failed.uri());
+    }
+
+    private HttpExecutionEngine engine(boolean prefetch) {
+        return new HttpExecutionEngine(requestWrapper, transitions, prefetch, 0.6, 30_000, 50, 8, false, 10);
+    }
+
+    private static CallerAction action(String url, Map<String, Object> params) {
+        return new CallerAction("GET", url, params, null, null, null);
+    }
+}
@@ -0,0 +1,89 @@
+package com.gonnect.apiaide.apiexecution;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.IntNode;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PagedResultsTest {
+
+    private static final int PAGE_SIZE = 10;
+    private static final int TOTAL_PAGES = 6;
+
+    private final List<Integer> fetched = new ArrayList<>();
+
+    @Test
+    void fetchesPagesOnlyAsTheyAreReadWithOnePageAhead() {
+        // When
+        List<JsonNode> results = PagedResults.results(page(1), this::fetch, 10)
+                .take(25)
+                .collectList()
+                .block();
+
+        // Then
+        assertEquals(25, results.size());
+        assertEquals(25, results.get(24).asInt());
+        assertEquals(List.of(2, 3, 4), fetched);
+    }
+
+    @Test
+    void stopsAtTheLastPageOrMaxPages() {
+        // When
+        List<JsonNode> all = PagedResults.results(page(1), this::fetch, 10).collectList().block();
+        fetched.clear();
+        List<JsonNode> capped = PagedResults.results(page(1), this::fetch, 2).collectList().block();
+
+        // Then
+        assertEquals(TOTAL_PAGES * PAGE_SIZE, all.size());
+        assertEquals(2 * PAGE_SIZE, capped.size());
+        assertEquals(List.of(2), fetched);
+    }
+
+    @Test
+    void endsAtAnEmptyPage() {
+        // When
+        List<JsonNode> results = PagedResults.results(page(1),
+                number -> Mono.just(new PagedResults.Page(number, TOTAL_PAGES, List.of())), 10).collectList().block();
+
+        // Then
+        assertEquals(PAGE_SIZE, results.size());
+    }
+
+    @Test
+    void parsesOnlyPagedResponses() throws Exception {
+        // Given
+        ObjectMapper mapper = new ObjectMapper();
+
+        // When
+        Optional<PagedResults.Page> page = PagedResults.Page.parse(mapper.readTree("{\"page\": 2, \"total_pages\": 7, \"results\": [{\"id\": 1}]}"));
+        Optional<PagedResults.Page> details = PagedResults.Page.parse(mapper.readTree("{\"id\": 603, \"title\": \"The Matrix\"}"));
+
+        // Then
+        assertEquals(2, page.orElseThrow().page());
+        assertEquals(7, page.orElseThrow().totalPages());
+        assertEquals(1, page.orElseThrow().results().size());
+        assertTrue(details.isEmpty());
+    }
+
+    private Mono<PagedResults.Page> fetch(int number) {
+        return Mono.fromSupplier(() -> {
+            fetched.add(number);
+            return page(number);
+        });
+    }
+
+    private static PagedResults.Page page(int number) {
+        List<JsonNode> results = IntStream.rangeClosed((number - 1) * PAGE_SIZE + 1, number * PAGE_SIZE)
+                .<JsonNode>mapToObj(IntNode::valueOf)
+                .toList();
+        return new PagedResults.Page(number, TOTAL_PAGES, results);
+    }
+}
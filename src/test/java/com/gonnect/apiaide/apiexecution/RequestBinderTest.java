@@ -0,0 +1,133 @@
+package com.gonnect.apiaide.apiexecution;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestBinderTest {
+
+    private final RequestBinder binder = new RequestBinder("https://api.themoviedb.org/3", List.of(
+            "GET /search/person",
+            "GET /person/{person_id}/movie_credits",
+            "GET /movie/{movie_id}",
+            "POST /movie/{movie_id}/rating"
+    ));
+
+    @Test
+    void bindsActionParsedFromConversation() {
+        // Given
+        String conversation = """
+                Thought: I need to search for the director first
+                Operation: GET
+                Input: {
+                    "url": "https://api.themoviedb.org/3/search/person",
+                    "params": {"query": "Sofia Coppola", "page": 1,},
+                    "description": "The search result for the person \\"Sofia Coppola\\" {by name}",
+                    "output_instructions": "What is the id of Sofia Coppola?"
+                }
+                """;
+
+        // When
+        Optional<CallerAction> action = CallerAction.parsePending(conversation);
+        RequestBinder.BoundRequest request = binder.bind(action.orElseThrow());
+
+        // Then
+        assertEquals("GET /search/person", request.endpoint());
+        assertEquals("GET", request.method());
+        assertEquals("https://api.themoviedb.org/3/search/person?query=Sofia%20Coppola&page=1", request.uri().toString());
+        assertNull(request.body());
+    }
+
+    @Test
+    void ignoresAnsweredActionsAndMadeUpResponses() {
+        // Given
+        String answered = "Operation: GET\nInput: {\"url\": \"/movie/603\"}\nResponse: {\"id\": 603}\nThought: done";
+        String completion = "Operation: GET\nInput: {\"url\": \"/movie/603\"}\nResponse: {\"title\": \"imagined\"}";
+
+        // When
+        String truncated = CallerAction.truncateAtResponse(completion);
+
+        // Then
+        assertTrue(CallerAction.parsePending(answered).isEmpty());
+        assertFalse(truncated.contains("imagined"));
+        assertEquals("/movie/603", CallerAction.parsePending(truncated).orElseThrow().url());
+    }
+
+    @Test
+    void fillsPlaceholdersFromParamsAndReplacesMadeUpHosts() {
+        // Given
+        CallerAction action = new CallerAction("GET", "https://tmdb.example/person/{person_id}/Movie_Credits?language=en-US",
+                Map.of("person_id", 1769), null, null, null);
+
+        // When
+        RequestBinder.BoundRequest request = binder.bind(action);
+
+        // Then
+        assertEquals("GET /person/{person_id}/movie_credits", request.endpoint());
+        assertEquals("https://api.themoviedb.org/3/person/1769/movie_credits?language=en-US", request.uri().toString());
+    }
+
+    @Test
+    void sendsDataAsBodyOnlyForWritingMethods() {
+        // Given
+        CallerAction action = new CallerAction("post", "/movie/603/rating", Map.of(), Map.of("value", 8.5), null, null);
+
+        // When
+        RequestBinder.BoundRequest request = binder.bind(action);
+
+        // Then
+        assertEquals("POST", request.method());
+        assertEquals(Map.of("value", 8.5), request.body());
+        assertEquals("https://api.themoviedb.org/3/movie/603/rating", request.uri().toString());
+    }
+
+    @Test
+    void rejectsUnknownEndpointsAndMissingPathValues() {
+        // Given
+        CallerAction unknown = new CallerAction("GET", "/tv/1399/seasons", Map.of(), null, null, null);
+        CallerAction unbound = new CallerAction("GET", "/movie/{movie_id}", Map.of(), null, null, null);
+
+        // When
+        IllegalArgumentException noEndpoint = assertThrows(IllegalArgumentException.class, () -> binder.bind(unknown));
+        IllegalArgumentException noValue = assertThrows(IllegalArgumentException.class, () -> binder.bind(unbound));
+
+        // Then
+        assertTrue(noEndpoint.getMessage().startsWith("No endpoint matches GET /tv/1399/seasons"));
+        assertTrue(noValue.getMessage().contains("movie_id"));
+    }
+
+    @Test
+    void fansOutListsOfPathValuesInOrder() {
+        // Given
+        CallerAction action = new CallerAction("GET", "https://api.themoviedb.org/3/movie/{movie_id}",
+                Map.of("movie_id", List.of(603, 550, 13), "append_to_response", List.of("credits", "videos")), null, null, null);
+
+        // When
+        List<RequestBinder.BoundRequest> requests = binder.bindAll(action);
+
+        // Then
+        assertEquals(List.of(
+                "https://api.themoviedb.org/3/movie/603?append_to_response=credits%2Cvideos",
+                "https://api.themoviedb.org/3/movie/550?append_to_response=credits%2Cvideos",
+                "https://api.themoviedb.org/3/movie/13?append_to_response=credits%2Cvideos"
+        ), requests.stream().map(request -> request.uri().toString()).toList());
+        assertTrue(requests.stream().allMatch(request -> request.endpoint().equals("GET /movie/{movie_id}")));
+        assertThrows(IllegalArgumentException.class, () -> binder.bind(action));
+    }
+
+    @Test
+    void rejectsEmptyListsOfPathValues() {
+        // Given
+        CallerAction action = new CallerAction("GET", "/movie/{movie_id}", Map.of("movie_id", List.of()), null, null, null);
+
+        // When
+        IllegalArgumentException empty = assertThrows(IllegalArgumentException.class, () -> binder.bindAll(action));
+
+        // Then
+        assertTrue(empty.getMessage().contains("movie_id"));
+    }
+}
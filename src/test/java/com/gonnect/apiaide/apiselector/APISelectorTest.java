@@ -0,0 +1,111 @@
+package com.gonnect.apiaide.apiselector;
+
+import com.gonnect.apiaide.oas.ReducedOpenAPISpec;
+import dev.langchain4j.chain.ConversationalRetrievalChain;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class APISelectorTest {
+
+    private static final ReducedOpenAPISpec SPEC = new ReducedOpenAPISpec(List.of(), "TMDB", List.of(
+            Map.of("name", "GET /search/person", "description", "Search for people"),
+            Map.of("name", "GET /person/{person_id}", "description", "Get a person"),
+            Map.of("name", "GET /person/{person_id}/movie_credits", "description", "Get the movies of a person")));
+
+    private final ConversationalRetrievalChain chain = mock(ConversationalRetrievalChain.class);
+    private final EndpointClassifier classifier = new EndpointClassifier(null, false, 0.95, 0.85, 0.03);
+    private final APISelector selector = new APISelector(chain, classifier, new EndpointTransitionModel(false, 20, 3), 2);
+
+    @Test
+    void rendersThePlanAndBackgroundIntoThePrompt() {
+        // When
+        String prompt = APISelector.renderPrompt("GET /search/person", "The id of Wong Kar-Wai is 12453.",
+                "search for the movies directed by Wong Kar-Wai (12453)", "");
+
+        // Then
+        assertTrue(prompt.contains("Background: The id of Wong Kar-Wai is 12453.\n"));
+        assertTrue(prompt.contains("User query: search for the movies directed by Wong Kar-Wai (12453)\n"));
+        assertFalse(prompt.contains("{plan}"));
+        assertFalse(prompt.contains("{background}"));
+        assertFalse(prompt.contains("{agent_scratchpad}"));
+        assertTrue(prompt.contains("/users/1234/tweets"));
+    }
+
+    @Test
+    void listsTheLikelyNextEndpointsFirstInThePrompt() {
+        // Given
+        EndpointTransitionModel transitions = new EndpointTransitionModel(true, 2, 1);
+        transitions.observe("tmdb", List.of("GET /search/person", "GET /person/{person_id}/movie_credits"));
+        transitions.observe("tmdb", List.of("GET /search/person", "GET /person/{person_id}/movie_credits"));
+        transitions.observe("tmdb", List.of("GET /search/person", "GET /person/{person_id}"));
+        APISelector selector = new APISelector(null, null, transitions, 2);
+        ReducedOpenAPISpec spec = new ReducedOpenAPISpec(List.of(), "TMDB", List.of(
+                Map.of("name", "GET /search/movie", "description", "Search for movies"),
+                Map.of("name", "GET /person/{person_id}", "description", "Get a person"),
+                Map.of("name", "GET /person/{person_id}/movie_credits", "description", "Get the movies of a person")));
+
+        // When
+        String prompt = selector.buildPrompt(APISelectorRequestInput.builder()
+                .plan("search for the movies directed by Wong Kar-Wai (12453)")
+                .apiSpec(spec)
+                .previousEndpoint("GET /search/person")
+                .build(), "tmdb");
+
+        // Then
+        int credits = prompt.indexOf("GET /person/{person_id}/movie_credits");
+        int person = prompt.indexOf("GET /person/{person_id} ");
+        assertTrue(credits >= 0 && person > credits, prompt);
+        assertFalse(prompt.contains("GET /search/movie"), prompt);
+        assertFalse(prompt.contains("{endpoints}"));
+        assertFalse(prompt.contains("{icl_examples}"));
+    }
+
+    @Test
+    void rebuildsTheCorrectedAPICallingLine() {
+        // Given
+        when(chain.execute(anyString())).thenReturn(
+                "API calling 1: GET /Search/Person?query=Sofia%20Coppola to search for Sofia Coppola");
+
+        // When
+        String output = selector.run(selectorInput("search for Sofia Coppola"), "tmdb");
+
+        // Then
+        assertTrue(output.contains(": GET /search/person?query=Sofia%20Coppola to search for Sofia Coppola"), output);
+        verify(chain, times(1)).execute(anyString());
+    }
+
+    @Test
+    void asksAgainWithCandidatesWhenTheIdIsMissing() {
+        // Given
+        when(chain.execute(anyString())).thenReturn(
+                "API calling 1: GET /person/movie_credits to get the movies of Sofia Coppola",
+                "API calling 1: GET /person/1769/movie_credits to get the movies of Sofia Coppola (1769)");
+
+        // When
+        String output = selector.run(selectorInput("get the movies of Sofia Coppola (1769)"), "tmdb");
+
+        // Then
+        ArgumentCaptor<String> messages = ArgumentCaptor.forClass(String.class);
+        verify(chain, times(2)).execute(messages.capture());
+        assertTrue(messages.getAllValues().get(1).contains("The closest APIs are: GET /person/{person_id}/movie_credits"));
+        assertTrue(output.contains("GET /person/1769/movie_credits"), output);
+        assertEquals(Optional.of("GET /person/{person_id}/movie_credits"), selector.selectedEndpoint(output, SPEC));
+    }
+
+    private static APISelectorRequestInput selectorInput(String plan) {
+        return APISelectorRequestInput.builder()
+                .plan(plan)
+                .apiSpec(SPEC)
+                .history(new ArrayList<>())
+                .build();
+    }
+}
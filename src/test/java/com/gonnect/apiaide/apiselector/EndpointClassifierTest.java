@@ -0,0 +1,115 @@
+package com.gonnect.apiaide.apiselector;
+
+import com.gonnect.apiaide.oas.ReducedOpenAPISpec;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EndpointClassifierTest {
+
+    private static final ReducedOpenAPISpec SPEC = new ReducedOpenAPISpec(List.of(), "TMDB", List.of(
+            Map.of("name", "GET /search/person", "description", "Search for people"),
+            Map.of("name", "GET /search/movie", "description", "Search for movies")));
+
+    /**
+     * Embeds a text as the vector of the first keyword it contains: "people" and "movies" are orthogonal,
+     * "someone" only partly points towards "people" and "either" lies halfway between both.
+     */
+    private final EmbeddingModel keywordModel = new EmbeddingModel() {
+        private final Map<String, float[]> vectors = new LinkedHashMap<>() {{
+            put("people", new float[]{1, 0, 0});
+            put("movies", new float[]{0, 1, 0});
+            put("someone", new float[]{0.6f, 0, 0.8f});
+            put("either", new float[]{1, 1, 0});
+        }};
+
+        @Override
+        public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+            return Response.from(segments.stream()
+                    .map(segment -> vectors.entrySet().stream()
+                            .filter(entry -> segment.text().contains(entry.getKey()))
+                            .map(entry -> Embedding.from(entry.getValue()))
+                            .findFirst()
+                            .orElse(Embedding.from(new float[]{0, 0, 1})))
+                    .toList());
+        }
+    };
+
+    private final EndpointClassifier classifier = new EndpointClassifier(keywordModel, true, 0.95, 0.85, 0.03);
+
+    @Test
+    void selectsTheEndpointWhoseDescriptionClearlyMatches() {
+        // When
+        Optional<String> output = classifier.classify("search for people named Sofia Coppola", SPEC);
+
+        // Then
+        assertEquals(Optional.of("API calling 1: GET /search/person to search for people named Sofia Coppola"), output);
+        assertEquals(1, classifier.getDescriptionHits());
+    }
+
+    @Test
+    void leavesStepsBelowTheThresholdOrWithinTheMarginToTheSelector() {
+        // When
+        Optional<String> belowThreshold = classifier.classify("search for someone", SPEC);
+        Optional<String> withinMargin = classifier.classify("search for either", SPEC);
+
+        // Then
+        assertTrue(belowThreshold.isEmpty());
+        assertTrue(withinMargin.isEmpty());
+        assertEquals(0, classifier.getHitRate());
+    }
+
+    @Test
+    void reusesLearnedChoicesUnlessContested() {
+        // Given
+        String plan = "look up Sofia Coppola";
+        Optional<String> beforeLearning = classifier.classify(plan, SPEC);
+
+        // When
+        classifier.learn(plan, "GET /search/person");
+        Optional<String> learned = classifier.classify(plan, SPEC);
+        classifier.learn("look up Lost in Translation", "GET /search/movie");
+        Optional<String> contested = classifier.classify(plan, SPEC);
+
+        // Then
+        assertTrue(beforeLearning.isEmpty());
+        assertEquals(Optional.of("API calling 1: GET /search/person to look up Sofia Coppola"), learned);
+        assertTrue(contested.isEmpty());
+        assertEquals(1, classifier.getLearnedHits());
+    }
+
+    @Test
+    void bindsTheIdOfThePlanStep() {
+        // Then
+        assertEquals("GET /person/1769/movie_credits",
+                EndpointClassifier.bind("GET /person/{person_id}/movie_credits", "get the movies of Sofia Coppola (1769)"));
+        assertEquals("GET /movie/843/credits",
+                EndpointClassifier.bind("GET /movie/{movie_id}/credits", "get the cast of movie 843"));
+        assertEquals("GET /movie/{movie_id}/credits",
+                EndpointClassifier.bind("GET /movie/{movie_id}/credits", "get the cast of movies 843 and 550"));
+    }
+
+    @Test
+    void doesNotBindYearsOrCounts() {
+        // Then
+        assertEquals("GET /person/{person_id}/movie_credits",
+                EndpointClassifier.bind("GET /person/{person_id}/movie_credits", "get the movies of the director of 2023"));
+        assertEquals("GET /person/{person_id}/movie_credits",
+                EndpointClassifier.bind("GET /person/{person_id}/movie_credits", "get the movies of Titanic (1997)"));
+        assertEquals("GET /movie/{movie_id}/similar",
+                EndpointClassifier.bind("GET /movie/{movie_id}/similar", "get the top 100 similar movies"));
+        assertEquals("GET /movie/{movie_id}/similar",
+                EndpointClassifier.bind("GET /movie/{movie_id}/similar", "get 200 movies similar to the movie"));
+        assertEquals("GET /person/1769/movie_credits",
+                EndpointClassifier.bind("GET /person/{person_id}/movie_credits", "get the first 5 movies of Sofia Coppola (1769) since 2003"));
+    }
+}
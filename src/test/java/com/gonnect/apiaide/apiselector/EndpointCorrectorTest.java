@@ -0,0 +1,90 @@
+package com.gonnect.apiaide.apiselector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EndpointCorrectorTest {
+
+    private final EndpointCorrector corrector = new EndpointCorrector(List.of(
+            "GET /search/person",
+            "GET /search/movie",
+            "GET /person/{person_id}",
+            "GET /person/{person_id}/movie_credits",
+            "GET /movie/{movie_id}",
+            "GET /movie/{movie_id}/credits",
+            "GET /movie/top_rated",
+            "POST /movie/{movie_id}/rating"
+    ));
+
+    @Test
+    void acceptsConcreteValuesForPathVariables() {
+        // When
+        EndpointCorrector.Correction correction = corrector.correct("GET /person/1769/movie_credits to get the movies");
+
+        // Then
+        assertTrue(correction.isResolved());
+        assertFalse(correction.corrected());
+        assertEquals("GET /person/{person_id}/movie_credits", correction.endpoint());
+        assertEquals("GET /person/1769/movie_credits", correction.call());
+    }
+
+    @Test
+    void correctsWrongCaseAndTypos() {
+        // When
+        EndpointCorrector.Correction wrongCase = corrector.correct("GET /Search/Person to search for Sofia Coppola");
+        EndpointCorrector.Correction typo = corrector.correct("GET /serch/persons?query=Sofia");
+
+        // Then
+        assertEquals("GET /search/person", wrongCase.call());
+        assertTrue(wrongCase.corrected());
+        assertEquals("GET /search/person?query=Sofia", typo.call());
+    }
+
+    @Test
+    void correctsTyposAroundConcreteValues() {
+        // When
+        EndpointCorrector.Correction correction = corrector.correct("GET /persn/1769/movie_credits");
+
+        // Then
+        assertTrue(correction.isResolved());
+        assertEquals("GET /person/1769/movie_credits", correction.call());
+    }
+
+    @Test
+    void keepsThePlaceholderWhenAPathVariableHasNoValue() {
+        // When
+        EndpointCorrector.Correction missingSegment = corrector.correct("GET /person/movie_credits");
+        EndpointCorrector.Correction placeholder = corrector.correct("GET /person/{person_id}/movie_credits");
+        EndpointCorrector.Correction concrete = corrector.correct("GET /person/1769/movie_credits");
+
+        // Then
+        assertEquals("GET /person/{person_id}/movie_credits", missingSegment.call());
+        assertFalse(missingSegment.isBound());
+        assertEquals("GET /person/{person_id}/movie_credits", placeholder.endpoint());
+        assertFalse(placeholder.isBound());
+        assertTrue(concrete.isBound());
+    }
+
+    @Test
+    void returnsCandidatesInsteadOfChangingTheMethod() {
+        // When
+        EndpointCorrector.Correction correction = corrector.correct("DELETE /movie/550/credits");
+
+        // Then
+        assertFalse(correction.isResolved());
+        assertEquals("GET /movie/{movie_id}/credits", correction.candidates().get(0));
+    }
+
+    @Test
+    void leavesUnknownPathsUnresolved() {
+        // When
+        EndpointCorrector.Correction correction = corrector.correct("GET /tv/popular/weekly/charts/all");
+
+        // Then
+        assertFalse(correction.isResolved());
+        assertTrue(correction.candidates().isEmpty());
+    }
+}
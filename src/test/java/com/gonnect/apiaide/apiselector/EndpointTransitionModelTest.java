@@ -0,0 +1,86 @@
+package com.gonnect.apiaide.apiselector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EndpointTransitionModelTest {
+
+    private static final List<String> ENDPOINTS = List.of(
+            "GET /search/movie",
+            "GET /search/person",
+            "GET /movie/{movie_id}",
+            "GET /person/{person_id}/movie_credits"
+    );
+
+    @Test
+    void ranksObservedSuccessorsFirst() {
+        // Given
+        EndpointTransitionModel model = new EndpointTransitionModel(true, 20, 3);
+        model.observe("tmdb", List.of("GET /search/person", "GET /person/{person_id}/movie_credits"));
+        model.observe("tmdb", List.of("GET /search/person", "GET /person/{person_id}/movie_credits"));
+        model.observe("tmdb", List.of("GET /search/movie", "GET /movie/{movie_id}"));
+
+        // When
+        List<String> first = model.rank("tmdb", null, ENDPOINTS);
+        List<String> afterSearch = model.rank("tmdb", "GET /search/person", ENDPOINTS);
+
+        // Then
+        assertEquals(List.of("GET /search/person", "GET /search/movie"), first.subList(0, 2));
+        assertEquals("GET /person/{person_id}/movie_credits", afterSearch.get(0));
+        assertEquals(ENDPOINTS.size(), afterSearch.size());
+        assertEquals(2.0 / 3, model.probability("tmdb", EndpointTransitionModel.START, "GET /search/person"), 1e-9);
+    }
+
+    @Test
+    void cutsTheTailOnlyWithEnoughEvidence() {
+        // Given
+        EndpointTransitionModel model = new EndpointTransitionModel(true, 1, 3);
+        model.observe("tmdb", List.of("GET /search/person"));
+        model.observe("tmdb", List.of("GET /search/person"));
+
+        // When
+        List<String> fewObservations = model.rank("tmdb", null, ENDPOINTS);
+        model.observe("tmdb", List.of("GET /search/movie"));
+        List<String> enoughObservations = model.rank("tmdb", null, ENDPOINTS);
+
+        // Then
+        assertEquals(ENDPOINTS.size(), fewObservations.size());
+        assertEquals(List.of("GET /search/person", "GET /search/movie"), enoughObservations);
+    }
+
+    @Test
+    void predictsOnlyLikelySuccessors() {
+        // Given
+        EndpointTransitionModel model = new EndpointTransitionModel(true, 20, 3);
+        for (int i = 0; i < 3; i++) {
+            model.observe("tmdb", List.of("GET /search/person", "GET /person/{person_id}/movie_credits"));
+        }
+        model.observe("tmdb", List.of("GET /search/person", "GET /movie/{movie_id}"));
+
+        // When
+        Optional<String> likely = model.predictNext("tmdb", "GET /search/person", 0.7);
+        Optional<String> unlikely = model.predictNext("tmdb", "GET /search/person", 0.8);
+
+        // Then
+        assertEquals(Optional.of("GET /person/{person_id}/movie_credits"), likely);
+        assertTrue(unlikely.isEmpty());
+    }
+
+    @Test
+    void leavesCandidatesUntouchedWhenDisabled() {
+        // Given
+        EndpointTransitionModel model = new EndpointTransitionModel(false, 1, 0);
+        model.observe("tmdb", List.of("GET /movie/{movie_id}"));
+
+        // When
+        List<String> ranked = model.rank("tmdb", null, ENDPOINTS);
+
+        // Then
+        assertSame(ENDPOINTS, ranked);
+        assertTrue(model.predictNext("tmdb", EndpointTransitionModel.START, 0).isEmpty());
+    }
+}
@@ -0,0 +1,86 @@
+package com.gonnect.apiaide.embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchingEmbeddingModelTest {
+
+    private static final long INFERENCE_MILLIS = 200;
+
+    /**
+     * Embeds one text after the other, as the local ONNX model does.
+     */
+    private final AtomicInteger inferences = new AtomicInteger();
+    private final EmbeddingModel sequentialModel = new EmbeddingModel() {
+        @Override
+        public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (TextSegment segment : segments) {
+                inferences.incrementAndGet();
+                try {
+                    Thread.sleep(INFERENCE_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                embeddings.add(Embedding.from(new float[]{segment.text().length()}));
+            }
+            return Response.from(embeddings);
+        }
+    };
+
+    @Test
+    void embedsTheTextsOfConcurrentCallersInParallel() throws Exception {
+        // Given
+        int callers = 4;
+        BatchingEmbeddingModel model = new BatchingEmbeddingModel(sequentialModel, 32, 50, 100, callers);
+        ExecutorService threads = Executors.newFixedThreadPool(callers);
+
+        // When
+        long start = System.nanoTime();
+        List<Future<Embedding>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            String text = "x".repeat(i + 1);
+            results.add(threads.submit(() -> model.embed(text).content()));
+        }
+        for (int i = 0; i < callers; i++) {
+            assertEquals(i + 1, (int) results.get(i).get(5, TimeUnit.SECONDS).vector()[0]);
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        threads.shutdown();
+        model.close();
+
+        // Then
+        assertEquals(callers, inferences.get());
+        assertTrue(elapsedMillis < 2 * INFERENCE_MILLIS + 50, "took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void embedsRepeatedTextsOnce() {
+        // Given
+        BatchingEmbeddingModel model = new BatchingEmbeddingModel(sequentialModel, 32, 0, 100, 2);
+
+        // When
+        model.embed("popular movies");
+        Embedding cached = model.embed("popular movies").content();
+        List<Embedding> all = model.embedAll(List.of(TextSegment.from("popular movies"), TextSegment.from("top rated"))).content();
+        model.close();
+
+        // Then
+        assertEquals(2, inferences.get());
+        assertEquals(cached, all.get(0));
+        assertEquals(2, model.getCacheHits());
+    }
+}
@@ -0,0 +1,103 @@
+package com.gonnect.apiaide.embedding;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmbeddingSnapshotStoreTest {
+
+    private static final String TEXT = "Use GET /search/person to find the id of a person.";
+    private static final String SPLITTER = "recursive:100:0:gpt-3.5-turbo";
+    private static final String MODEL = "AllMiniLmL6V2EmbeddingModel";
+
+    private Path directory;
+    private EmbeddingSnapshotStore store;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("snapshots");
+        store = new EmbeddingSnapshotStore(directory);
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    void readsBackWhatWasSavedThroughTheMappedFile() {
+        // Given
+        String key = EmbeddingSnapshotStore.key(TEXT, SPLITTER, MODEL);
+        List<Embedding> embeddings = List.of(Embedding.from(new float[]{0.25f, -1.5f, 3f}),
+                Embedding.from(new float[]{1f, 0f, -0.125f}));
+        List<TextSegment> segments = List.of(TextSegment.from("first", Metadata.from(Map.of("index", "0"))),
+                TextSegment.from("second", Metadata.from(Map.of("index", "1"))));
+        store.save(key, embeddings, segments);
+
+        // When
+        Optional<EmbeddingSnapshotStore.Snapshot> snapshot = store.load(key);
+
+        // Then
+        assertTrue(snapshot.isPresent());
+        assertEquals(embeddings, snapshot.get().embeddings());
+        assertEquals("second", snapshot.get().segments().get(1).text());
+        assertEquals("1", snapshot.get().segments().get(1).metadata().get("index"));
+    }
+
+    @Test
+    void findsNoSnapshotOfAnotherModel() {
+        // Given
+        store.save(EmbeddingSnapshotStore.key(TEXT, SPLITTER, MODEL), List.of(Embedding.from(new float[]{1f})),
+                List.of(TextSegment.from("first")));
+
+        // When
+        String otherModel = EmbeddingSnapshotStore.key(TEXT, SPLITTER, "BgeSmallEnEmbeddingModel");
+        String otherSplitter = EmbeddingSnapshotStore.key(TEXT, "recursive:200:0:gpt-3.5-turbo", MODEL);
+
+        // Then
+        assertNotEquals(EmbeddingSnapshotStore.key(TEXT, SPLITTER, MODEL), otherModel);
+        assertTrue(store.load(otherModel).isEmpty());
+        assertTrue(store.load(otherSplitter).isEmpty());
+    }
+
+    @Test
+    void ignoresAPartlyWrittenSnapshot() throws IOException {
+        // Given
+        String key = EmbeddingSnapshotStore.key(TEXT, SPLITTER, MODEL);
+        store.save(key, List.of(Embedding.from(new float[]{1f, 2f}), Embedding.from(new float[]{3f, 4f})),
+                List.of(TextSegment.from("first"), TextSegment.from("second")));
+        Path vectors = directory.resolve(key + ".vec");
+        try (FileChannel channel = FileChannel.open(vectors, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - Float.BYTES);
+        }
+
+        // When
+        Optional<EmbeddingSnapshotStore.Snapshot> truncated = store.load(key);
+        Files.delete(vectors);
+        Optional<EmbeddingSnapshotStore.Snapshot> missingVectors = store.load(key);
+
+        // Then
+        assertTrue(truncated.isEmpty());
+        assertTrue(missingVectors.isEmpty());
+    }
+}
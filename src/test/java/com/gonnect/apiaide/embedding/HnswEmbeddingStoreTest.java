@@ -0,0 +1,79 @@
+package com.gonnect.apiaide.embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.store.embedding.CosineSimilarity;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HnswEmbeddingStoreTest {
+
+    @Test
+    void findRelevantMatchesBruteForceNearestNeighbour() {
+        // Given
+        Random random = new Random(7);
+        int size = 2000;
+        int dimension = 32;
+        float[][] vectors = new float[size][dimension];
+        HnswEmbeddingStore<String> store = new HnswEmbeddingStore<>();
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < dimension; j++) {
+                vectors[i][j] = (float) random.nextGaussian();
+            }
+            store.add(Embedding.from(vectors[i]), "segment-" + i);
+        }
+
+        // When
+        int hits = 0;
+        int queries = 50;
+        for (int q = 0; q < queries; q++) {
+            Embedding query = Embedding.from(vectors[random.nextInt(size)]);
+            List<EmbeddingMatch<String>> matches = store.findRelevant(query, 1);
+            if (matches.get(0).embedded().equals("segment-" + bruteForceNearest(vectors, query))) {
+                hits++;
+            }
+        }
+
+        // Then
+        assertEquals(size, store.size());
+        assertTrue(hits >= queries * 0.95, "recall too low: " + hits + "/" + queries);
+    }
+
+    @Test
+    void findRelevantHonoursMinScore() {
+        // Given
+        HnswEmbeddingStore<String> store = new HnswEmbeddingStore<>();
+        store.add(Embedding.from(new float[]{1, 0}), "same");
+        store.add(Embedding.from(new float[]{-1, 0}), "opposite");
+
+        // When
+        List<EmbeddingMatch<String>> matches = store.findRelevant(Embedding.from(new float[]{1, 0}), 2, 0.6);
+
+        // Then
+        assertEquals(1, matches.size());
+        assertEquals("same", matches.get(0).embedded());
+        assertEquals(1.0, matches.get(0).score(), 1e-6);
+    }
+
+    @Test
+    void findRelevantOnEmptyStoreReturnsNothing() {
+        assertTrue(new HnswEmbeddingStore<String>().findRelevant(Embedding.from(new float[]{1, 0}), 1).isEmpty());
+    }
+
+    private int bruteForceNearest(float[][] vectors, Embedding query) {
+        int best = -1;
+        double bestScore = -2;
+        for (int i = 0; i < vectors.length; i++) {
+            double score = CosineSimilarity.between(query, Embedding.from(vectors[i]));
+            if (score > bestScore) {
+                bestScore = score;
+                best = i;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,82 @@
+package com.gonnect.apiaide.embedding;
+
+import org.junit.jupiter.api.Test;
+
+import static com.gonnect.apiaide.prompts.APISelectorPrompts.API_SELECTOR_PROMPT;
+import static com.gonnect.apiaide.prompts.CallerPrompts.CALLER_PROMPT;
+import static com.gonnect.apiaide.prompts.ParsingPrompts.LLM_PARSING_TEMPLATE;
+import static com.gonnect.apiaide.prompts.PlannerPrompts.PLANNER_PROMPT;
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryExtractingRetrieverTest {
+
+    private static final String QUERY = "Who directed the latest movie of Wong Kar-Wai?";
+    private static final String PLAN = "search for the id of Wong Kar-Wai";
+
+    @Test
+    void detectsTheStageOfEveryPrompt() {
+        // Then
+        assertEquals(RetrievalStage.PLANNER, QueryExtractingRetriever.detectStage(PLANNER_PROMPT));
+        assertEquals(RetrievalStage.API_SELECTOR, QueryExtractingRetriever.detectStage(API_SELECTOR_PROMPT));
+        assertEquals(RetrievalStage.CALLER, QueryExtractingRetriever.detectStage(CALLER_PROMPT));
+        assertEquals(RetrievalStage.PARSER, QueryExtractingRetriever.detectStage(LLM_PARSING_TEMPLATE));
+        assertEquals(RetrievalStage.OTHER, QueryExtractingRetriever.detectStage("Invalid API. Please try again."));
+    }
+
+    @Test
+    void extractsTheUserQueryOfThePlanner() {
+        // Given
+        String prompt = PLANNER_PROMPT.replace("{input}", QUERY).replace("{agent_scratchpad}", "");
+
+        // When
+        String query = QueryExtractingRetriever.extractQuery(RetrievalStage.PLANNER, prompt);
+
+        // Then
+        assertEquals(QUERY, query);
+    }
+
+    @Test
+    void extractsThePlanStepOfTheSelector() {
+        // Given
+        String prompt = API_SELECTOR_PROMPT.replace("{plan}", PLAN);
+
+        // When
+        String query = QueryExtractingRetriever.extractQuery(RetrievalStage.API_SELECTOR, prompt);
+
+        // Then
+        assertEquals(PLAN, query);
+    }
+
+    @Test
+    void extractsThePlanOfTheCaller() {
+        // Given
+        String prompt = CALLER_PROMPT.replace("{api_plan}", "GET /search/person to " + PLAN);
+
+        // When
+        String query = QueryExtractingRetriever.extractQuery(RetrievalStage.CALLER, prompt);
+
+        // Then
+        assertEquals("GET /search/person to " + PLAN, query);
+    }
+
+    @Test
+    void extractsNothingFromAnUnfilledPlaceholder() {
+        // When
+        String query = QueryExtractingRetriever.extractQuery(RetrievalStage.API_SELECTOR, API_SELECTOR_PROMPT);
+
+        // Then
+        assertEquals("", query);
+    }
+
+    @Test
+    void truncatesLongQueries() {
+        // Given
+        String prompt = "User query: " + "a".repeat(QueryExtractingRetriever.MAX_QUERY_LENGTH + 10);
+
+        // When
+        String query = QueryExtractingRetriever.extractQuery(RetrievalStage.PLANNER, prompt);
+
+        // Then
+        assertEquals(QueryExtractingRetriever.MAX_QUERY_LENGTH, query.length());
+    }
+}
@@ -0,0 +1,37 @@
+package com.gonnect.apiaide.mock;
+
+import java.time.Duration;
+
+/**
+ * How the {@link MockApiServer} answers the requests for an endpoint.
+ *
+ * @param latency      the delay before each response is sent
+ * @param errorRate    the share of requests answered with a 503, between 0 and 1
+ * @param listSize     the number of elements in every array of a synthesized response
+ * @param totalPages   the {@code total_pages} of paged responses
+ * @param cacheControl the Cache-Control header of successful responses, null for none
+ */
+public record EndpointBehaviour(Duration latency, double errorRate, int listSize, int totalPages, String cacheControl) {
+
+    public static final EndpointBehaviour DEFAULT = new EndpointBehaviour(Duration.ZERO, 0, 2, 5, null);
+
+    public EndpointBehaviour withLatency(Duration latency) {
+        return new EndpointBehaviour(latency, errorRate, listSize, totalPages, cacheControl);
+    }
+
+    public EndpointBehaviour withErrorRate(double errorRate) {
+        return new EndpointBehaviour(latency, errorRate, listSize, totalPages, cacheControl);
+    }
+
+    public EndpointBehaviour withListSize(int listSize) {
+        return new EndpointBehaviour(latency, errorRate, listSize, totalPages, cacheControl);
+    }
+
+    public EndpointBehaviour withTotalPages(int totalPages) {
+        return new EndpointBehaviour(latency, errorRate, listSize, totalPages, cacheControl);
+    }
+
+    public EndpointBehaviour withCacheControl(String cacheControl) {
+        return new EndpointBehaviour(latency, errorRate, listSize, totalPages, cacheControl);
+    }
+}
@@ -0,0 +1,272 @@
+package com.gonnect.apiaide.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@code MockApiServer} serves an API described by an OAS locally, so the HTTP execution path can be tested and
+ * benchmarked without network access or rate limits.
+ * <p>
+ * Requests are routed by the path templates of the spec, the most specific template first. The response is a
+ * recorded fixture if one was registered for the endpoint, and otherwise synthesized from the endpoint's 200
+ * response schema by a {@link SchemaSampler}. Latency, error rate and payload size are set per endpoint with
+ * an {@link EndpointBehaviour}. Successful responses carry an ETag, and a matching If-None-Match is answered
+ * with 304, so cache revalidation can be measured too.
+ * <pre>
+ * try (MockApiServer server = MockApiServer.start("oas/tmdb_oas.json")) {
+ *     server.configure("GET /search/movie", EndpointBehaviour.DEFAULT.withLatency(Duration.ofMillis(50)));
+ *     String baseUrl = server.baseUrl(); // e.g. http://127.0.0.1:41234/3
+ * }
+ * </pre>
+ */
+public class MockApiServer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(MockApiServer.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Pattern PATH_VARIABLE = Pattern.compile("\\{([^}]+)}");
+
+    private final String basePath;
+    private final List<Route> routes;
+    private final SchemaSampler sampler;
+    private final Map<String, EndpointBehaviour> behaviours = new ConcurrentHashMap<>();
+    private final Map<String, String> fixtures = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> requests = new ConcurrentHashMap<>();
+    private final Random random;
+    private volatile EndpointBehaviour defaultBehaviour = EndpointBehaviour.DEFAULT;
+    private DisposableServer server;
+
+    MockApiServer(JsonNode spec, long seed) {
+        String serverUrl = spec.path("servers").path(0).path("url").asText("");
+        String path = URI.create(serverUrl.isEmpty() ? "/" : serverUrl).getPath();
+        this.basePath = path == null || path.equals("/") ? "" : path.replaceAll("/$", "");
+        this.routes = routes(spec);
+        this.sampler = new SchemaSampler(spec);
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Starts a server for a spec on the class path, on a random free port of the loopback interface.
+     *
+     * @param specResource the spec, e.g. "oas/tmdb_oas.json"
+     */
+    public static MockApiServer start(String specResource) throws IOException {
+        JsonNode spec;
+        try (InputStream in = MockApiServer.class.getClassLoader().getResourceAsStream(specResource)) {
+            if (in == null) {
+                throw new IOException("No spec " + specResource + " on the class path");
+            }
+            spec = MAPPER.readTree(in);
+        }
+        MockApiServer mock = new MockApiServer(spec, 42);
+        mock.server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .handle(mock::handle)
+                .bindNow();
+        log.info("Mock of {} listening on {}", specResource, mock.baseUrl());
+        return mock;
+    }
+
+    /**
+     * @return the URL to use as the server of the spec, e.g. "http://127.0.0.1:41234/3"
+     */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.port() + basePath;
+    }
+
+    public MockApiServer configureDefault(EndpointBehaviour behaviour) {
+        this.defaultBehaviour = behaviour;
+        return this;
+    }
+
+    /**
+     * @param endpoint  the endpoint as named in the spec, e.g. "GET /movie/{movie_id}"
+     * @param behaviour how to answer it
+     */
+    public MockApiServer configure(String endpoint, EndpointBehaviour behaviour) {
+        behaviours.put(endpoint, behaviour);
+        return this;
+    }
+
+    /**
+     * Serves a recorded response body for an endpoint instead of a synthesized one.
+     */
+    public MockApiServer fixture(String endpoint, String body) {
+        fixtures.put(endpoint, body);
+        return this;
+    }
+
+    /**
+     * @return the number of requests received for an endpoint, including those answered with an error
+     */
+    public long requests(String endpoint) {
+        LongAdder count = requests.get(endpoint);
+        return count == null ? 0 : count.sum();
+    }
+
+    public long totalRequests() {
+        return requests.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    private Mono<Void> handle(HttpServerRequest request, HttpServerResponse response) {
+        QueryStringDecoder uri = new QueryStringDecoder(request.uri());
+        String path = uri.path();
+        if (!basePath.isEmpty() && path.startsWith(basePath)) {
+            path = path.substring(basePath.length());
+        }
+        String method = request.method().name().toUpperCase(Locale.ROOT);
+
+        Optional<Match> match = match(method, path);
+        if (match.isEmpty()) {
+            return send(response, HttpResponseStatus.NOT_FOUND, error(34, "The resource you requested could not be found."));
+        }
+        Route route = match.get().route();
+        requests.computeIfAbsent(route.endpoint(), endpoint -> new LongAdder()).increment();
+        EndpointBehaviour behaviour = behaviours.getOrDefault(route.endpoint(), defaultBehaviour);
+
+        Mono<Void> answer = Mono.defer(() -> {
+            if (failing(behaviour)) {
+                return send(response, HttpResponseStatus.SERVICE_UNAVAILABLE, error(43, "Mock failure."));
+            }
+            Map<String, String> values = new HashMap<>(match.get().variables());
+            List<String> page = uri.parameters().get("page");
+            if (page != null && !page.isEmpty() && page.get(0).matches("\\d+")) {
+                values.put("page", page.get(0));
+            }
+            String body = fixtures.containsKey(route.endpoint())
+                    ? fixtures.get(route.endpoint())
+                    : sampler.sample(route.schema(), values, behaviour).toString();
+            String etag = "\"" + Integer.toHexString(body.hashCode()) + "\"";
+            response.header("ETag", etag);
+            if (behaviour.cacheControl() != null) {
+                response.header("Cache-Control", behaviour.cacheControl());
+            }
+            if (etag.equals(request.requestHeaders().get("If-None-Match"))) {
+                return response.status(HttpResponseStatus.NOT_MODIFIED).send();
+            }
+            return send(response, HttpResponseStatus.OK, body);
+        });
+        return behaviour.latency().isZero() ? answer : Mono.delay(behaviour.latency()).then(answer);
+    }
+
+    private boolean failing(EndpointBehaviour behaviour) {
+        if (behaviour.errorRate() <= 0) {
+            return false;
+        }
+        synchronized (random) {
+            return random.nextDouble() < behaviour.errorRate();
+        }
+    }
+
+    private static Mono<Void> send(HttpServerResponse response, HttpResponseStatus status, String body) {
+        return response.status(status)
+                .header("Content-Type", "application/json;charset=utf-8")
+                .sendString(Mono.just(body), StandardCharsets.UTF_8)
+                .then();
+    }
+
+    private static String error(int code, String message) {
+        return MAPPER.createObjectNode()
+                .put("status_code", code)
+                .put("status_message", message)
+                .put("success", false)
+                .toString();
+    }
+
+    private Optional<Match> match(String method, String path) {
+        for (Route route : routes) {
+            if (!route.method().equals(method)) {
+                continue;
+            }
+            Matcher matcher = route.pattern().matcher(path);
+            if (matcher.matches()) {
+                Map<String, String> variables = new LinkedHashMap<>();
+                for (int i = 0; i < route.variables().size(); i++) {
+                    variables.put(route.variables().get(i), matcher.group(i + 1));
+                }
+                return Optional.of(new Match(route, variables));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static List<Route> routes(JsonNode spec) {
+        List<Route> routes = new ArrayList<>();
+        Iterator<Map.Entry<String, JsonNode>> paths = spec.path("paths").fields();
+        while (paths.hasNext()) {
+            Map.Entry<String, JsonNode> path = paths.next();
+            Iterator<Map.Entry<String, JsonNode>> operations = path.getValue().fields();
+            while (operations.hasNext()) {
+                Map.Entry<String, JsonNode> operation = operations.next();
+                String method = operation.getKey().toUpperCase(Locale.ROOT);
+                if (!List.of("GET", "POST", "PUT", "PATCH", "DELETE").contains(method)) {
+                    continue;
+                }
+                JsonNode schema = operation.getValue().at("/responses/200/content/application~1json/schema");
+                routes.add(route(method, path.getKey(), schema.isMissingNode() ? MAPPER.createObjectNode() : schema));
+            }
+        }
+        // The most specific template first, so "/movie/top_rated" wins over "/movie/{movie_id}"
+        routes.sort(Comparator.comparingInt(Route::literalSegments).reversed());
+        return routes;
+    }
+
+    private static Route route(String method, String template, JsonNode schema) {
+        StringBuilder regex = new StringBuilder();
+        List<String> variables = new ArrayList<>();
+        Matcher variable = PATH_VARIABLE.matcher(template);
+        int literalStart = 0;
+        while (variable.find()) {
+            regex.append(Pattern.quote(template.substring(literalStart, variable.start()))).append("([^/]+)");
+            variables.add(variable.group(1));
+            literalStart = variable.end();
+        }
+        regex.append(Pattern.quote(template.substring(literalStart)));
+        int literalSegments = (int) Pattern.compile("/").splitAsStream(template)
+                .filter(segment -> !segment.isEmpty() && !segment.startsWith("{"))
+                .count();
+        return new Route(method + " " + template, method, Pattern.compile(regex.toString()), variables, literalSegments, schema);
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+
+    private record Route(String endpoint, String method, Pattern pattern, List<String> variables, int literalSegments,
+                         JsonNode schema) {
+    }
+
+    private record Match(Route route, Map<String, String> variables) {
+    }
+}
@@ -0,0 +1,101 @@
+package com.gonnect.apiaide.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.netty.http.client.HttpClient;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MockApiServerTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private MockApiServer server;
+    private final HttpClient client = HttpClient.create();
+
+    @BeforeEach
+    void start() throws IOException {
+        server = MockApiServer.start("oas/tmdb_oas.json");
+    }
+
+    @AfterEach
+    void stop() {
+        server.close();
+    }
+
+    @Test
+    void synthesizesResponsesFromTheSchemaOfTheMatchedTemplate() throws IOException {
+        // Given
+        server.configure("GET /search/movie", EndpointBehaviour.DEFAULT.withListSize(3).withTotalPages(4));
+
+        // When
+        JsonNode movie = MAPPER.readTree(get("/movie/603").body());
+        JsonNode search = MAPPER.readTree(get("/search/movie?query=matrix&page=2").body());
+
+        // Then
+        assertEquals(603, movie.path("id").asInt());
+        assertTrue(movie.path("title").isTextual());
+        assertTrue(movie.path("genres").isArray());
+        assertEquals(2, search.path("page").asInt());
+        assertEquals(4, search.path("total_pages").asInt());
+        assertEquals(3, search.path("results").size());
+        assertEquals(1, server.requests("GET /movie/{movie_id}"));
+        assertEquals(404, get("/no/such/endpoint").status());
+    }
+
+    @Test
+    void servesFixturesAndRevalidatesThemWithTheirETag() {
+        // Given
+        server.fixture("GET /movie/top_rated", "{\"page\": 1, \"results\": []}")
+                .configure("GET /movie/top_rated", EndpointBehaviour.DEFAULT.withCacheControl("max-age=60"));
+
+        // When
+        Response first = get("/movie/top_rated");
+        Response revalidated = client.headers(headers -> headers.set("If-None-Match", first.etag()))
+                .get()
+                .uri(server.baseUrl() + "/movie/top_rated")
+                .responseSingle((response, body) -> body.asString().defaultIfEmpty("")
+                        .map(text -> new Response(response.status().code(), text, response.responseHeaders().get("ETag"))))
+                .block();
+
+        // Then
+        assertEquals("{\"page\": 1, \"results\": []}", first.body());
+        assertEquals(304, revalidated.status());
+        assertEquals(2, server.requests("GET /movie/top_rated"));
+    }
+
+    @Test
+    void appliesTheConfiguredLatencyAndErrorRate() {
+        // Given
+        server.configure("GET /movie/{movie_id}", EndpointBehaviour.DEFAULT.withLatency(Duration.ofMillis(200)))
+                .configure("GET /tv/{tv_id}", EndpointBehaviour.DEFAULT.withErrorRate(1));
+
+        // When
+        long start = System.nanoTime();
+        int slow = get("/movie/550").status();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        int failing = get("/tv/1399").status();
+
+        // Then
+        assertEquals(200, slow);
+        assertTrue(elapsedMillis >= 200, "took " + elapsedMillis + " ms");
+        assertEquals(503, failing);
+    }
+
+    private Response get(String path) {
+        return client.get()
+                .uri(server.baseUrl() + path)
+                .responseSingle((response, body) -> body.asString().defaultIfEmpty("")
+                        .map(text -> new Response(response.status().code(), text, response.responseHeaders().get("ETag"))))
+                .block();
+    }
+
+    private record Response(int status, String body, String etag) {
+    }
+}
@@ -0,0 +1,132 @@
+package com.gonnect.apiaide.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * {@code SchemaSampler} synthesizes a JSON value that is valid against a schema of an OAS.
+ * <p>
+ * Values are deterministic, so responses are reproducible: strings are named after their property, integers
+ * count up from 1 and arrays have the configured number of elements. An {@code id} is the value of the path
+ * variable ending in {@code id}, if the request has one, and {@code page} is the requested page.
+ */
+class SchemaSampler {
+
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+    private static final int MAX_DEPTH = 8;
+
+    private final JsonNode spec;
+
+    SchemaSampler(JsonNode spec) {
+        this.spec = spec;
+    }
+
+    /**
+     * @param schema    the schema
+     * @param request   values of the request: the path variables, and "page" if requested
+     * @param behaviour the array and page sizes
+     */
+    JsonNode sample(JsonNode schema, Map<String, String> request, EndpointBehaviour behaviour) {
+        return sample(schema, "value", 0, 0, request, behaviour);
+    }
+
+    private JsonNode sample(JsonNode schema, String name, int index, int depth, Map<String, String> request,
+                            EndpointBehaviour behaviour) {
+        schema = resolve(schema);
+        if (depth > MAX_DEPTH) {
+            return NODES.nullNode();
+        }
+        if (schema.has("allOf")) {
+            ObjectNode merged = NODES.objectNode();
+            for (JsonNode part : schema.get("allOf")) {
+                JsonNode value = sample(part, name, index, depth + 1, request, behaviour);
+                if (value instanceof ObjectNode object) {
+                    merged.setAll(object);
+                }
+            }
+            return merged;
+        }
+        for (String alternatives : new String[]{"oneOf", "anyOf"}) {
+            if (schema.path(alternatives).isArray() && !schema.get(alternatives).isEmpty()) {
+                return sample(schema.get(alternatives).get(0), name, index, depth + 1, request, behaviour);
+            }
+        }
+        if (schema.has("enum") && !schema.get("enum").isEmpty()) {
+            return schema.get("enum").get(0);
+        }
+
+        String type = schema.path("type").asText(schema.has("properties") ? "object" : schema.has("items") ? "array" : "string");
+        switch (type) {
+            case "object" -> {
+                ObjectNode object = NODES.objectNode();
+                Iterator<Map.Entry<String, JsonNode>> properties = schema.path("properties").fields();
+                while (properties.hasNext()) {
+                    Map.Entry<String, JsonNode> property = properties.next();
+                    object.set(property.getKey(), sample(property.getValue(), property.getKey(), index, depth + 1, request, behaviour));
+                }
+                return object;
+            }
+            case "array" -> {
+                ArrayNode array = NODES.arrayNode();
+                for (int i = 0; i < behaviour.listSize(); i++) {
+                    array.add(sample(schema.path("items"), name, i, depth + 1, request, behaviour));
+                }
+                return array;
+            }
+            case "integer" -> {
+                return NODES.numberNode(integer(name, index, depth, request, behaviour));
+            }
+            case "number" -> {
+                return NODES.numberNode(index + 7.5);
+            }
+            case "boolean" -> {
+                return NODES.booleanNode(index % 2 == 0);
+            }
+            default -> {
+                return NODES.textNode(string(schema, name, index));
+            }
+        }
+    }
+
+    private static long integer(String name, int index, int depth, Map<String, String> request, EndpointBehaviour behaviour) {
+        if (name.equals("page")) {
+            return Long.parseLong(request.getOrDefault("page", "1"));
+        }
+        if (name.equals("total_pages")) {
+            return behaviour.totalPages();
+        }
+        if (name.equals("id") && depth == 1) {
+            for (Map.Entry<String, String> variable : request.entrySet()) {
+                if (variable.getKey().endsWith("id") && variable.getValue().matches("\\d+")) {
+                    return Long.parseLong(variable.getValue());
+                }
+            }
+        }
+        return index + 1;
+    }
+
+    private static String string(JsonNode schema, String name, int index) {
+        return switch (schema.path("format").asText()) {
+            case "date" -> "2020-01-%02d".formatted(index % 28 + 1);
+            case "date-time" -> "2020-01-%02dT00:00:00Z".formatted(index % 28 + 1);
+            case "uri" -> "https://example.org/" + name + "/" + (index + 1);
+            default -> name + " " + (index + 1);
+        };
+    }
+
+    /**
+     * Follows a local {@code $ref}, e.g. "#/components/schemas/image-path".
+     */
+    private JsonNode resolve(JsonNode schema) {
+        for (int hops = 0; schema.has("$ref") && hops < MAX_DEPTH; hops++) {
+            String ref = schema.get("$ref").asText();
+            schema = ref.startsWith("#") ? spec.at(ref.substring(1)) : NODES.objectNode();
+        }
+        return schema;
+    }
+}
@@ -0,0 +1,47 @@
+package com.gonnect.apiaide.oas;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenAPISpecUtilTest {
+
+    // In the order of the TMDB spec: the variable path comes before the literal ones
+    private final OpenAPISpecUtil spec = OpenAPISpecUtil.builder()
+            .endpoints(List.of(
+                    Map.of("name", "GET /movie/{movie_id}"),
+                    Map.of("name", "GET /movie/popular"),
+                    Map.of("name", "GET /movie/top_rated"),
+                    Map.of("name", "GET /movie/{movie_id}/credits"),
+                    Map.of("name", "GET /person/{person_id}/movie_credits"),
+                    Map.of("name", "POST /list/{list_id}/items")))
+            .build();
+
+    @Test
+    void prefersLiteralSegmentsOverPathVariables() {
+        // Then
+        assertEquals(Optional.of("GET /movie/popular"), spec.resolveEndpoint("GET /movie/popular to get popular movies"));
+        assertEquals(Optional.of("GET /movie/top_rated"), spec.resolveEndpoint("GET /movie/top_rated?page=2"));
+        assertEquals(Optional.of("GET /movie/{movie_id}"), spec.resolveEndpoint("GET /movie/843 to get the movie"));
+    }
+
+    @Test
+    void bindsPathVariablesToAnySegment() {
+        // Then
+        assertEquals(Optional.of("GET /person/{person_id}/movie_credits"),
+                spec.resolveEndpoint("get /person/1769/movie_credits to get the movies directed by Sofia Coppola"));
+        assertEquals(Optional.of("GET /movie/{movie_id}/credits"), spec.resolveEndpoint("GET /movie/843/credits"));
+    }
+
+    @Test
+    void resolvesNothingForAnotherMethodOrPath() {
+        // Then
+        assertTrue(spec.resolveEndpoint("DELETE /movie/843").isEmpty());
+        assertTrue(spec.resolveEndpoint("GET /movie/843/reviews").isEmpty());
+        assertTrue(spec.resolveEndpoint("GET").isEmpty());
+    }
+}
@@ -0,0 +1,224 @@
+package com.gonnect.apiaide.orchestrator;
+
+import com.gonnect.apiaide.apiexecution.APIExecution;
+import com.gonnect.apiaide.apiexecution.APIExecutionRequest;
+import com.gonnect.apiaide.apiselector.APISelector;
+import com.gonnect.apiaide.apiselector.APISelectorRequestInput;
+import com.gonnect.apiaide.apiselector.EndpointClassifier;
+import com.gonnect.apiaide.apiselector.EndpointTransitionModel;
+import com.gonnect.apiaide.apiselector.HistoryTuple;
+import com.gonnect.apiaide.oas.ReducedOpenAPISpec;
+import com.gonnect.apiaide.parser.ResponseParser;
+import com.gonnect.apiaide.plancache.PlanTemplateCache;
+import com.gonnect.apiaide.planner.Planner;
+import com.gonnect.apiaide.planner.Scratchpad;
+import dev.langchain4j.chain.ConversationalRetrievalChain;
+import dev.langchain4j.model.openai.OpenAiTokenizer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static dev.langchain4j.model.openai.OpenAiModelName.GPT_3_5_TURBO;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class APIOrchestrationTest {
+
+    private static final int MAX_ITERATIONS = 15;
+    private static final String SEARCH = "GET /search/person";
+    private static final String CREDITS = "GET /person/{person_id}/movie_credits";
+
+    private final Planner planner = mock(Planner.class);
+    private final APISelector apiSelector = mock(APISelector.class);
+    private final APIExecution caller = mock(APIExecution.class);
+    private final ResponseParser responseParser = mock(ResponseParser.class);
+    private final PlanGraphExecutor planGraphExecutor = new PlanGraphExecutor(2);
+    private final EndpointTransitionModel transitionModel = new EndpointTransitionModel(true, 20, 1);
+    private final PlanTemplateCache planTemplateCache = new PlanTemplateCache();
+    private final Supplier<ConversationalRetrievalChain> chainFactory = () -> mock(ConversationalRetrievalChain.class);
+    private final APIOrchestration orchestration = new APIOrchestration();
+
+    @BeforeEach
+    void wireOrchestration() {
+        ReflectionTestUtils.setField(orchestration, "planner", planner);
+        ReflectionTestUtils.setField(orchestration, "apiSelector", apiSelector);
+        ReflectionTestUtils.setField(orchestration, "caller", caller);
+        ReflectionTestUtils.setField(orchestration, "responseParser", responseParser);
+        ReflectionTestUtils.setField(orchestration, "planGraphExecutor", planGraphExecutor);
+        ReflectionTestUtils.setField(orchestration, "chainFactory", chainFactory);
+        ReflectionTestUtils.setField(orchestration, "transitionModel", transitionModel);
+        ReflectionTestUtils.setField(orchestration, "planTemplateCache", planTemplateCache);
+
+        when(planner.newScratchpad()).thenReturn(new Scratchpad(new OpenAiTokenizer(GPT_3_5_TURBO), 0));
+        when(planner.run(anyMap())).thenReturn(Map.of("result", "search for the id of Wong Kar-Wai"));
+        when(apiSelector.run(any(), anyString())).thenReturn("API calling 1: GET /search/person");
+        when(caller.run(any(APIExecutionRequest.class))).thenReturn(Map.of("result", "done", "response", "{\"id\": 12453}"));
+        when(caller.run(any(), any(ConversationalRetrievalChain.class))).thenReturn(Map.of("result", "done", "response", "{\"id\": 12453}"));
+        when(responseParser.parse(any())).thenReturn(Map.of("output", "The id of Wong Kar-Wai is 12453"));
+        when(responseParser.parse(any(), any())).thenReturn(Map.of("output", "The id of Wong Kar-Wai is 12453"));
+        when(planner.planGraph(anyString(), any())).thenReturn("""
+                [
+                  {"id": "person", "call": "GET /search/person to search for Wong Kar-Wai"},
+                  {"id": "genres", "call": "GET /genre/movie/list to get all genres"}
+                ]
+                """);
+    }
+
+    @AfterEach
+    void shutdownExecutor() {
+        planGraphExecutor.shutdown();
+    }
+
+    @Test
+    void plansOncePerIterationFromTheScratchpad() {
+        // When
+        orchestration.run(query());
+
+        // Then
+        ArgumentCaptor<Map<String, ?>> plannerInputs = ArgumentCaptor.forClass(Map.class);
+        verify(planner, times(MAX_ITERATIONS + 1)).run(plannerInputs.capture());
+        assertTrue(plannerInputs.getAllValues().stream().allMatch(inputs -> inputs.get("scratchpad") instanceof Scratchpad));
+        verify(apiSelector, times(MAX_ITERATIONS)).run(any(), eq("tmdb"));
+    }
+
+    @Test
+    void handsTheSelectorThePreviousStep() {
+        // When
+        orchestration.run(query());
+
+        // Then
+        ArgumentCaptor<APISelectorRequestInput> selectorInputs = ArgumentCaptor.forClass(APISelectorRequestInput.class);
+        verify(apiSelector, times(MAX_ITERATIONS)).run(selectorInputs.capture(), eq("tmdb"));
+        List<APISelectorRequestInput> inputs = selectorInputs.getAllValues();
+        assertNull(inputs.get(0).getLastHistory());
+        HistoryTuple lastHistory = inputs.get(1).getLastHistory();
+        assertEquals("search for the id of Wong Kar-Wai", lastHistory.getPlan());
+        assertEquals("API calling 1: GET /search/person", lastHistory.getApiCall());
+        assertEquals("The id of Wong Kar-Wai is 12453", lastHistory.getResponse());
+    }
+
+    @Test
+    void stopsAtTheFinalAnswerAndLearnsTheEndpointsCalled() {
+        // Given
+        answerInTwoSteps();
+
+        // When
+        String output = orchestration.run(query());
+
+        // Then
+        assertEquals("```\nFinal Answer: Wong Kar-Wai directed In the Mood for Love\n```", output);
+        verify(apiSelector, times(2)).run(any(), eq("tmdb"));
+        assertEquals(1.0, transitionModel.probability("tmdb", EndpointTransitionModel.START, SEARCH));
+        assertEquals(1.0, transitionModel.probability("tmdb", SEARCH, CREDITS));
+    }
+
+    @Test
+    void replaysTheTemplateOfASequentiallyAnsweredQuery() {
+        // Given
+        ReflectionTestUtils.setField(orchestration, "planCache", true);
+        answerInTwoSteps();
+        orchestration.run(query());
+
+        // When
+        orchestration.run(query());
+
+        // Then
+        assertEquals(1, planTemplateCache.getHits());
+        verify(planner, times(3)).run(anyMap());
+        verify(apiSelector, times(2)).run(any(), eq("tmdb"));
+        ArgumentCaptor<APIExecutionRequest> executions = ArgumentCaptor.forClass(APIExecutionRequest.class);
+        verify(caller, times(4)).run(executions.capture());
+        assertTrue(executions.getAllValues().get(2).getPlan().startsWith("API calling 1: " + SEARCH));
+        assertTrue(executions.getAllValues().get(3).getPlan().startsWith("API calling 2: " + CREDITS));
+    }
+
+    @Test
+    void failsOnlyTheQueryForWhichNoValidCallIsSelected() {
+        // Given
+        ConversationalRetrievalChain selectorChain = mock(ConversationalRetrievalChain.class);
+        EndpointClassifier classifier = mock(EndpointClassifier.class);
+        when(classifier.classify(any(), any())).thenReturn(Optional.empty());
+        ReflectionTestUtils.setField(orchestration, "apiSelector", new APISelector(selectorChain, classifier, transitionModel, 2));
+        when(selectorChain.execute(anyString())).thenReturn("API calling 1: GET /tv/popular", "API calling 1: GET /tv/popular",
+                "API calling 1: GET /tv/popular", "API calling 1: GET /search/person to search for Wong Kar-Wai");
+        when(planner.run(anyMap())).thenReturn(
+                Map.of("result", "search for the id of Wong Kar-Wai"),
+                Map.of("result", "search for the id of Wong Kar-Wai"),
+                Map.of("result", "Final Answer: The id of Wong Kar-Wai is 12453"));
+
+        // When
+        String failed = orchestration.run(query());
+        String answered = orchestration.run(query());
+
+        // Then
+        assertEquals("```\nQuery failed: No valid API call selected after 3 attempts, last proposal: GET /tv/popular\n```", failed);
+        assertEquals("```\nFinal Answer: The id of Wong Kar-Wai is 12453\n```", answered);
+        verify(caller, times(1)).run(any(APIExecutionRequest.class));
+    }
+
+    @Test
+    void runsEveryPlanGraphNodeOnAChainOfItsOwn() {
+        // Given
+        ReflectionTestUtils.setField(orchestration, "planGraph", true);
+
+        // When
+        orchestration.run(query());
+
+        // Then
+        ArgumentCaptor<ConversationalRetrievalChain> callerChains = ArgumentCaptor.forClass(ConversationalRetrievalChain.class);
+        ArgumentCaptor<ConversationalRetrievalChain> parserChains = ArgumentCaptor.forClass(ConversationalRetrievalChain.class);
+        verify(caller, times(2)).run(any(), callerChains.capture());
+        verify(responseParser, times(2)).parse(any(), parserChains.capture());
+        assertEquals(2, new HashSet<>(callerChains.getAllValues()).size());
+        assertEquals(new HashSet<>(callerChains.getAllValues()), new HashSet<>(parserChains.getAllValues()));
+        verify(apiSelector, never()).run(any(), anyString());
+    }
+
+    @Test
+    void fallsBackToStepByStepPlanningWhenAPlanGraphNodeFails() {
+        // Given
+        ReflectionTestUtils.setField(orchestration, "planGraph", true);
+        when(caller.run(any(), any(ConversationalRetrievalChain.class))).thenThrow(new IllegalStateException("No API call"));
+
+        // When
+        String output = orchestration.run(query());
+
+        // Then
+        verify(apiSelector, times(MAX_ITERATIONS)).run(any(), eq("tmdb"));
+        assertEquals("```\nsearch for the id of Wong Kar-Wai\n```", output);
+    }
+
+    private void answerInTwoSteps() {
+        when(planner.run(anyMap())).thenReturn(
+                Map.of("result", "search for the id of Wong Kar-Wai"),
+                Map.of("result", "get the movies directed by Wong Kar-Wai (12453)"),
+                Map.of("result", "Final Answer: Wong Kar-Wai directed In the Mood for Love"));
+        when(apiSelector.run(any(), anyString())).thenReturn(
+                "API calling 1: GET /search/person", "API calling 1: GET /person/12453/movie_credits");
+        when(apiSelector.selectedEndpoint(anyString(), any())).thenReturn(Optional.of(SEARCH), Optional.of(CREDITS));
+    }
+
+    private static QueryInput query() {
+        return QueryInput.builder()
+                .query("Who is Wong Kar-Wai?")
+                .scenario("tmdb")
+                .apiSpec(new ReducedOpenAPISpec(List.of(), "TMDB", List.of(
+                        Map.of("name", SEARCH, "description", "Search for people"),
+                        Map.of("name", CREDITS, "description", "Get the movies of a person"))))
+                .parameters(new HashMap<>())
+                .build();
+    }
+}
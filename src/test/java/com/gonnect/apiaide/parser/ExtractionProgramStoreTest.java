@@ -0,0 +1,90 @@
+package com.gonnect.apiaide.parser;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExtractionProgramStoreTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String PROGRAM = "print(data['results'][0]['id'])";
+
+    private final ExtractionProgramStore store = new ExtractionProgramStore(true, 10);
+
+    @Test
+    void reusesAProgramForQueriesOfTheSameShapeOnResponsesOfTheSameStructure() throws IOException {
+        // Given
+        JsonNode hanks = MAPPER.readTree("{\"page\": 1, \"results\": [{\"id\": 31, \"name\": \"Tom Hanks\", \"profile_path\": null}]}");
+        JsonNode streep = MAPPER.readTree("{\"page\": 1, \"results\": [{\"id\": 5064, \"name\": \"Meryl Streep\", \"profile_path\": \"/a.jpg\"}]}");
+        ExtractionProgramStore.Key key = ExtractionProgramStore.key("GET /search/person", hanks, "What is the id of Tom Hanks?").orElseThrow();
+        store.remember(key, PROGRAM, "What is the id of Tom Hanks?");
+
+        // When
+        Optional<String> program = store.lookup(
+                ExtractionProgramStore.key("GET /search/person", streep, "what is the id of  Meryl Streep?").orElseThrow());
+
+        // Then
+        assertEquals(Optional.of(PROGRAM), program);
+        assertEquals(1, store.getHits());
+    }
+
+    @Test
+    void keepsProgramsApartByEndpointStructureAndIntent() throws IOException {
+        // Given
+        JsonNode search = MAPPER.readTree("{\"page\": 1, \"results\": [{\"id\": 31}]}");
+        JsonNode details = MAPPER.readTree("{\"id\": 31, \"name\": \"Tom Hanks\"}");
+        String query = "What is the id of Tom Hanks?";
+        ExtractionProgramStore.Key key = ExtractionProgramStore.key("GET /search/person", search, query).orElseThrow();
+        store.remember(key, PROGRAM, query);
+
+        // When
+        Optional<String> otherEndpoint = store.lookup(ExtractionProgramStore.key("GET /search/movie", search, query).orElseThrow());
+        Optional<String> otherStructure = store.lookup(ExtractionProgramStore.key("GET /search/person", details, query).orElseThrow());
+        Optional<String> otherIntent = store.lookup(
+                ExtractionProgramStore.key("GET /search/person", search, "Who played in Forrest Gump?").orElseThrow());
+
+        // Then
+        assertTrue(otherEndpoint.isEmpty());
+        assertTrue(otherStructure.isEmpty());
+        assertTrue(otherIntent.isEmpty());
+        assertEquals(3, store.getMisses());
+        assertTrue(ExtractionProgramStore.key(null, search, query).isEmpty());
+        assertTrue(ExtractionProgramStore.key("GET /search/person", MAPPER.readTree("\"text\""), query).isEmpty());
+    }
+
+    @Test
+    void storesNoProgramThatMentionsAnEntityOfTheQuery() throws IOException {
+        // Given
+        JsonNode response = MAPPER.readTree("{\"results\": [{\"id\": 31, \"name\": \"Tom Hanks\"}]}");
+        String query = "What is the id of Tom Hanks?";
+        ExtractionProgramStore.Key key = ExtractionProgramStore.key("GET /search/person", response, query).orElseThrow();
+
+        // When
+        boolean stored = store.remember(key,
+                "print([r['id'] for r in data['results'] if r['name'] == 'Tom Hanks'])", query);
+
+        // Then
+        assertFalse(stored);
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void forgetsAProgramThatStoppedWorking() throws IOException {
+        // Given
+        JsonNode response = MAPPER.readTree("{\"results\": []}");
+        ExtractionProgramStore.Key key = ExtractionProgramStore.key("GET /movie/popular", response, "Popular movies").orElseThrow();
+        store.remember(key, PROGRAM, "Popular movies");
+
+        // When
+        store.forget(key);
+
+        // Then
+        assertTrue(store.lookup(key).isEmpty());
+        assertEquals(1, store.getInvalidations());
+    }
+}
@@ -0,0 +1,123 @@
+package com.gonnect.apiaide.parser;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingJsonProjectorTest {
+
+    private static final String SEARCH = """
+            {"page": 1, "total_results": 2, "results": [
+              {"id": 603, "title": "The Matrix", "overview": "A hacker learns...", "genre_ids": [28, 878],
+               "belongs_to_collection": {"id": 2344, "name": "The Matrix Collection"}},
+              {"id": 604, "title": "The Matrix Reloaded", "overview": "Six months after...", "genre_ids": [12]}
+            ]}
+            """;
+
+    private final StreamingJsonProjector projector = new StreamingJsonProjector();
+
+    @Test
+    void keepsOnlyTheProjectedPathsWhateverTheChunking() throws IOException {
+        // Given
+        JsonProjection projection = JsonProjection.ofPaths(List.of("results[].id", "results.belongs_to_collection", "$.page"));
+        byte[] body = SEARCH.getBytes(StandardCharsets.UTF_8);
+
+        // When
+        JsonNode whole = projector.project(body, projection);
+        JsonNode chunked = projectInChunks(body, projection, 7);
+
+        // Then
+        assertEquals("{\"page\":1,\"results\":[{\"id\":603,\"belongs_to_collection\":{\"id\":2344,"
+                + "\"name\":\"The Matrix Collection\"}},{\"id\":604}]}", whole.toString());
+        assertEquals(whole, chunked);
+    }
+
+    @Test
+    void keepsFieldsNamedByTheExtractionCodeWhereverTheyAppear() throws IOException {
+        // Given
+        String code = """
+                titles = [movie['title'] + " (" + str(movie["id"]) + ")" for movie in data["results"]]
+                print("The movies are " + ", ".join(titles))
+                """;
+
+        // When
+        JsonNode projected = projector.project(SEARCH.getBytes(StandardCharsets.UTF_8), JsonProjection.fromCode(code, null));
+
+        // Then
+        assertEquals("{\"results\":[{\"id\":603,\"title\":\"The Matrix\",\"belongs_to_collection\":{\"id\":2344}},"
+                + "{\"id\":604,\"title\":\"The Matrix Reloaded\"}]}", projected.toString());
+    }
+
+    @Test
+    void narrowsCodeKeysDownTheResponseSchema() throws IOException {
+        // Given
+        Map<String, Object> schema = Map.of("type", "object", "properties", Map.of(
+                "page", Map.of("type", "integer"),
+                "results", Map.of("type", "array", "items", Map.of("type", "object", "properties", Map.of(
+                        "id", Map.of("type", "integer"),
+                        "title", Map.of("type", "string"),
+                        "genre_ids", Map.of("type", "array", "items", Map.of("type", "integer")))))));
+        String code = "print([(m['title'], m['genre_ids']) for m in data['results']])";
+
+        // When
+        JsonNode projected = projector.project(SEARCH.getBytes(StandardCharsets.UTF_8), JsonProjection.fromCode(code, schema));
+
+        // Then
+        assertEquals("[28,878]", projected.at("/results/0/genre_ids").toString());
+        assertEquals("The Matrix Reloaded", projected.at("/results/1/title").asText());
+        assertTrue(projected.at("/results/0/id").isMissingNode());
+        assertTrue(projected.at("/page").isMissingNode());
+    }
+
+    @Test
+    void keepsArrayElementsAtTheirPositionsWhenEarlierOnesHaveNothingKept() throws IOException {
+        // Given
+        String cast = """
+                {"cast": [
+                  {"name": "Bill Murray", "character": "Bob Harris"},
+                  {"name": "Scarlett Johansson", "known_for": {"title": "Lost in Translation"}},
+                  [1, 2],
+                  7,
+                  {"name": "Giovanni Ribisi", "known_for": {"title": "Saving Private Ryan"}},
+                  {"name": "Anna Faris"}
+                ]}
+                """;
+        JsonProjection projection = JsonProjection.ofPaths(List.of("cast[].known_for"));
+
+        // When
+        JsonNode projected = projectInChunks(cast.getBytes(StandardCharsets.UTF_8), projection, 5);
+
+        // Then
+        assertEquals("{\"cast\":[{},{\"known_for\":{\"title\":\"Lost in Translation\"}},[],null,"
+                + "{\"known_for\":{\"title\":\"Saving Private Ryan\"}},{}]}", projected.toString());
+        assertEquals("Saving Private Ryan", projected.at("/cast/4/known_for/title").asText());
+    }
+
+    @Test
+    void returnsAnEmptyContainerWhenNothingMatchesAndFailsOnTruncatedJson() throws IOException {
+        // Given
+        JsonProjection projection = JsonProjection.ofPaths(List.of("results.vote_average"));
+        byte[] truncated = SEARCH.substring(0, 40).getBytes(StandardCharsets.UTF_8);
+
+        // When
+        JsonNode nothing = projector.project(SEARCH.getBytes(StandardCharsets.UTF_8), projection);
+
+        // Then
+        assertEquals("{}", nothing.toString());
+        assertThrows(IOException.class, () -> projector.project(truncated, projection));
+    }
+
+    private static JsonNode projectInChunks(byte[] body, JsonProjection projection, int chunkSize) throws IOException {
+        StreamingJsonProjector.Session session = new StreamingJsonProjector.Session(projection);
+        for (int offset = 0; offset < body.length; offset += chunkSize) {
+            session.feed(body, offset, Math.min(chunkSize, body.length - offset));
+        }
+        return session.finish();
+    }
+}
@@ -0,0 +1,63 @@
+package com.gonnect.apiaide.plancache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlanTemplateCacheTest {
+
+    private static final List<String> DIRECTED = List.of("GET /search/person", "GET /person/{person_id}/movie_credits");
+
+    @Test
+    void replaysTheTemplateOfTheSameShapeWithTheNewSlots() {
+        // Given
+        PlanTemplateCache cache = new PlanTemplateCache();
+        cache.record("tmdb", "give me the movies directed by Sofia Coppola", DIRECTED);
+
+        // When
+        Optional<PlanTemplateCache.Match> match = cache.match("tmdb", "Give me the movies directed by  Wong Kar-Wai?");
+
+        // Then
+        assertTrue(match.isPresent());
+        assertEquals(DIRECTED, match.get().template().endpoints());
+        assertEquals(List.of("Wong Kar-Wai"), match.get().shape().slots());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    void doesNotMatchASimilarShape() {
+        // Given
+        PlanTemplateCache cache = new PlanTemplateCache();
+        cache.record("tmdb", "give me the movies directed by Sofia Coppola", DIRECTED);
+
+        // When
+        Optional<PlanTemplateCache.Match> produced = cache.match("tmdb", "give me the movies produced by Sofia Coppola");
+        Optional<PlanTemplateCache.Match> otherScenario = cache.match("spotify", "give me the movies directed by Sofia Coppola");
+
+        // Then
+        assertTrue(produced.isEmpty());
+        assertTrue(otherScenario.isEmpty());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void keepsTheFirstTemplateOfAShape() {
+        // Given
+        PlanTemplateCache cache = new PlanTemplateCache();
+
+        // When
+        boolean first = cache.record("tmdb", "give me the movies directed by Sofia Coppola", DIRECTED);
+        boolean second = cache.record("tmdb", "give me the movies directed by Wong Kar-Wai", List.of("GET /search/movie"));
+        boolean empty = cache.record("tmdb", "who is Tom Hanks", List.of());
+
+        // Then
+        assertTrue(first);
+        assertFalse(second);
+        assertFalse(empty);
+        assertEquals(1, cache.size());
+        assertEquals(DIRECTED, cache.match("tmdb", "give me the movies directed by Jane Campion").orElseThrow().template().endpoints());
+    }
+}
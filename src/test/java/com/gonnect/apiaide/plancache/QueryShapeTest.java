@@ -0,0 +1,56 @@
+package com.gonnect.apiaide.plancache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryShapeTest {
+
+    @Test
+    void abstractsNamesIntoSlots() {
+        // When
+        QueryShape shape = QueryShape.of("give me the number of movies directed by Sofia Coppola");
+
+        // Then
+        assertEquals("give me the number of movies directed by <entity>", shape.shape());
+        assertEquals(List.of("Sofia Coppola"), shape.slots());
+    }
+
+    @Test
+    void keepsConnectorsInsideTitles() {
+        // When
+        QueryShape shape = QueryShape.of("Who is the director of The Lord of the Rings?");
+
+        // Then
+        assertEquals("Who is the director of <entity>?", shape.shape());
+        assertEquals(List.of("The Lord of the Rings"), shape.slots());
+    }
+
+    @Test
+    void extractsQuotedStringsNumbersAndPossessives() {
+        // When
+        QueryShape quoted = QueryShape.of("search for the movie \"in the mood for love\"");
+        QueryShape numbers = QueryShape.of("who directed season 3, episode 24 of Friends");
+        QueryShape possessive = QueryShape.of("what is Clint Eastwood's latest movie");
+
+        // Then
+        assertEquals("search for the movie <entity>", quoted.shape());
+        assertEquals(List.of("in the mood for love"), quoted.slots());
+        assertEquals("who directed season <entity>, episode <entity> of <entity>", numbers.shape());
+        assertEquals(List.of("3", "24", "Friends"), numbers.slots());
+        assertEquals("what is <entity>'s latest movie", possessive.shape());
+        assertEquals(List.of("Clint Eastwood"), possessive.slots());
+    }
+
+    @Test
+    void leavesTheFirstWordOfASentence() {
+        // When
+        QueryShape shape = QueryShape.of("Give me a TV show that I like. Then find Breaking Bad");
+
+        // Then
+        assertEquals("Give me a TV show that I like. Then find <entity>", shape.shape());
+        assertEquals(List.of("Breaking Bad"), shape.slots());
+    }
+}
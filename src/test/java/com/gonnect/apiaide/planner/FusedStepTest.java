@@ -0,0 +1,51 @@
+package com.gonnect.apiaide.planner;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FusedStepTest {
+
+    @Test
+    void parsesAStepSurroundedByProse() {
+        // Given
+        String output = """
+                Here is the next step:
+                ```json
+                {"plan": "get the movies directed by Sofia Coppola (1769)",
+                 "api_call": "GET /person/1769/movie_credits to get the movies directed by Sofia Coppola (1769)"}
+                ```
+                """;
+
+        // When
+        Optional<FusedStep> step = FusedStep.parse(output);
+
+        // Then
+        assertTrue(step.isPresent());
+        assertFalse(step.get().isFinal());
+        assertEquals("get the movies directed by Sofia Coppola (1769)", step.get().plan());
+        assertEquals("GET /person/1769/movie_credits to get the movies directed by Sofia Coppola (1769)", step.get().apiCall());
+    }
+
+    @Test
+    void parsesAFinalAnswer() {
+        // When
+        Optional<FusedStep> step = FusedStep.parse("{\"plan\": null, \"api_call\": \"\", \"final_answer\": \"Lost in Translation\"}");
+
+        // Then
+        assertTrue(step.isPresent());
+        assertTrue(step.get().isFinal());
+        assertEquals("Lost in Translation", step.get().finalAnswer());
+        assertNull(step.get().apiCall());
+    }
+
+    @Test
+    void rejectsIncompleteOrMalformedSteps() {
+        // Then
+        assertTrue(FusedStep.parse("{\"plan\": \"search for Sofia Coppola\"}").isEmpty());
+        assertTrue(FusedStep.parse("{\"plan\": \"search for Sofia Coppola\", \"api_call\": }").isEmpty());
+        assertTrue(FusedStep.parse("Final Answer: Lost in Translation").isEmpty());
+    }
+}
@@ -0,0 +1,86 @@
+package com.gonnect.apiaide.planner;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlanGraphCompilerTest {
+
+    private final PlanGraphCompiler compiler = new PlanGraphCompiler();
+
+    @Test
+    void infersDependenciesFromPlaceholdersAndAssignsLevels() {
+        // Given
+        String plannerOutput = """
+                Here is the plan:
+                ```json
+                [
+                  {"id": "credits", "call": "GET /movie/{{movie_id}}/credits to get the director", "output": "director"},
+                  {"id": "search", "call": "GET /search/movie to search for Titanic", "output": "movie_id"},
+                  {"id": "reviews", "call": "GET /movie/{{movie_id}}/reviews to get the first review"},
+                  {"id": "genres", "call": "GET /genre/movie/list to get all genres"}
+                ]
+                ```
+                """;
+
+        // When
+        PlanGraph graph = compiler.compile(plannerOutput);
+
+        // Then
+        List<String> order = graph.nodes().stream().map(PlanGraph.Node::id).toList();
+        assertTrue(order.indexOf("search") < order.indexOf("credits"));
+        assertTrue(order.indexOf("search") < order.indexOf("reviews"));
+        assertEquals(2, graph.depth());
+
+        PlanGraph.Node credits = graph.nodes().get(order.indexOf("credits"));
+        assertEquals(Set.of("search"), credits.dependsOn());
+        assertEquals(1, credits.level());
+        assertEquals(0, graph.nodes().get(order.indexOf("genres")).level());
+    }
+
+    @Test
+    void rejectsCycles() {
+        // Given
+        String plannerOutput = """
+                [
+                  {"id": "a", "call": "GET /a/{{b_value}}", "output": "a_value"},
+                  {"id": "b", "call": "GET /b/{{a_value}}", "output": "b_value"}
+                ]
+                """;
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile(plannerOutput));
+    }
+
+    @Test
+    void rejectsPlaceholdersNoNodeProduces() {
+        // Given
+        String plannerOutput = """
+                [{"id": "a", "call": "GET /person/{{person_id}}"}]
+                """;
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile(plannerOutput));
+    }
+
+    @Test
+    void bindsProducedValuesIntoCalls() {
+        // Given
+        PlanGraph graph = compiler.compile("""
+                [
+                  {"id": "search", "call": "GET /search/person to search for Sofia Coppola", "output": "person_id"},
+                  {"id": "movies", "call": "GET /person/{{ person_id }}/movie_credits to get her movies", "depends_on": ["search"]}
+                ]
+                """);
+
+        // When
+        String call = graph.nodes().get(1).bind(Map.of("person_id", "1769"));
+
+        // Then
+        assertEquals("GET /person/1769/movie_credits to get her movies", call);
+    }
+}
@@ -0,0 +1,51 @@
+package com.gonnect.apiaide.planner;
+
+import dev.langchain4j.model.openai.OpenAiTokenizer;
+import org.junit.jupiter.api.Test;
+
+import static dev.langchain4j.model.openai.OpenAiModelName.GPT_3_5_TURBO;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScratchpadTest {
+
+    private final OpenAiTokenizer tokenizer = new OpenAiTokenizer(GPT_3_5_TURBO);
+
+    @Test
+    void rendersStepsInOrder() {
+        // Given
+        Scratchpad scratchpad = new Scratchpad(tokenizer, 0);
+
+        // When
+        scratchpad.append("search person Sofia Coppola", "The id of Sofia Coppola is 1769");
+        scratchpad.append("get movies directed by Sofia Coppola (1769)", "Lost in Translation, Marie Antoinette");
+
+        // Then
+        assertEquals("""
+                Plan step 1: search person Sofia Coppola
+                API response: The id of Sofia Coppola is 1769
+                Plan step 2: get movies directed by Sofia Coppola (1769)
+                API response: Lost in Translation, Marie Antoinette
+                """, scratchpad.render());
+        assertEquals(2, scratchpad.size());
+    }
+
+    @Test
+    void dropsOldestStepsButPinsFirstAndLastWhenOverBudget() {
+        // Given
+        Scratchpad scratchpad = new Scratchpad(tokenizer, 60);
+
+        // When
+        for (int i = 1; i <= 10; i++) {
+            scratchpad.append("plan number " + i, "response number " + i);
+        }
+
+        // Then
+        String rendered = scratchpad.render();
+        assertTrue(rendered.startsWith("Plan step 1: plan number 1\n"));
+        assertTrue(rendered.endsWith("Plan step 10: plan number 10\nAPI response: response number 10\n"));
+        assertTrue(rendered.contains("earlier plan steps omitted"));
+        assertFalse(rendered.contains("plan number 2\n"));
+        assertTrue(scratchpad.tokenCount() <= 60);
+        assertEquals(10, scratchpad.size());
+    }
+}
@@ -0,0 +1,69 @@
+package com.gonnect.apiaide.python;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledCodeCacheTest {
+
+    private final AtomicInteger compilations = new AtomicInteger();
+    private final Function<String, String> compiler = source -> {
+        compilations.incrementAndGet();
+        return "compiled " + source;
+    };
+
+    @Test
+    void compilesEachSourceOnce() {
+        // Given
+        CompiledCodeCache<String> cache = new CompiledCodeCache<>(10);
+
+        // When
+        String first = cache.get("print(data['id'])", compiler);
+        String second = cache.get("print(data['id'])", compiler);
+
+        // Then
+        assertEquals("compiled print(data['id'])", first);
+        assertSame(first, second);
+        assertEquals(1, compilations.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate(), 1e-9);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedSource() {
+        // Given
+        CompiledCodeCache<String> cache = new CompiledCodeCache<>(2);
+        cache.get("a", compiler);
+        cache.get("b", compiler);
+        cache.get("a", compiler);
+
+        // When
+        cache.get("c", compiler);
+        cache.get("a", compiler);
+        cache.get("b", compiler);
+
+        // Then
+        assertEquals(4, compilations.get());
+        assertEquals(2, cache.getEvictions());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void cachesNothingThatFailedToCompile() {
+        // Given
+        CompiledCodeCache<String> cache = new CompiledCodeCache<>(10);
+
+        // When
+        assertThrows(IllegalArgumentException.class, () -> cache.get("print(", source -> {
+            throw new IllegalArgumentException("SyntaxError");
+        }));
+
+        // Then
+        assertEquals(0, cache.size());
+        assertEquals("compiled print(", cache.get("print(", compiler));
+    }
+}
@@ -0,0 +1,128 @@
+package com.gonnect.apiaide.python;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InterpreterPoolTest {
+
+    private final AtomicInteger created = new AtomicInteger();
+    private final List<Map<String, Object>> disposed = new ArrayList<>();
+
+    @Test
+    void resetsTheNamespaceBetweenCalls() {
+        // Given
+        InterpreterPool<Map<String, Object>> pool = pool(1, 100);
+
+        // When
+        pool.withInterpreter(namespace -> namespace.put("data", "first call"));
+        Object leaked = pool.withInterpreter(namespace -> namespace.get("data"));
+
+        // Then
+        assertNull(leaked);
+        assertEquals(1, created.get());
+        assertEquals(2, pool.getBorrows());
+    }
+
+    @Test
+    void runsCallsInParallelOnSeparateInterpreters() throws Exception {
+        // Given
+        int size = 4;
+        InterpreterPool<Map<String, Object>> pool = pool(size, 100);
+        CountDownLatch allBorrowed = new CountDownLatch(size);
+        Set<Map<String, Object>> used = ConcurrentHashMap.newKeySet();
+        ExecutorService threads = Executors.newFixedThreadPool(size);
+
+        // When
+        List<Future<Boolean>> calls = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            String value = "call " + i;
+            calls.add(threads.submit(() -> pool.withInterpreter(namespace -> {
+                used.add(namespace);
+                namespace.put("data", value);
+                allBorrowed.countDown();
+                try {
+                    // Every call holds its interpreter until all of them hold one
+                    allBorrowed.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return value.equals(namespace.get("data"));
+            })));
+        }
+
+        // Then
+        for (Future<Boolean> call : calls) {
+            assertTrue(call.get(5, TimeUnit.SECONDS));
+        }
+        threads.shutdown();
+        assertEquals(size, used.size());
+        assertEquals(size, pool.idle());
+    }
+
+    @Test
+    void replacesInterpretersThatBrokeOrWereUsedUp() {
+        // Given
+        InterpreterPool<Map<String, Object>> pool = pool(1, 3);
+
+        // When
+        assertThrows(IllegalArgumentException.class, () -> pool.withInterpreter(namespace -> {
+            throw new IllegalArgumentException("KeyError: 'results'");
+        }));
+        assertThrows(StackOverflowError.class, () -> pool.withInterpreter(namespace -> {
+            throw new StackOverflowError();
+        }));
+        pool.withInterpreter(namespace -> null);
+        pool.withInterpreter(namespace -> null);
+        pool.withInterpreter(namespace -> null);
+
+        // Then
+        assertEquals(2, pool.getEvictions());
+        assertEquals(3, created.get());
+        assertEquals(2, disposed.size());
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    void failsABorrowWhenNoInterpreterFreesUpInTime() {
+        // Given
+        InterpreterPool<Map<String, Object>> pool = new InterpreterPool<>(1, HashMap::new, Map::clear, map -> {
+        }, error -> false, Duration.ofMillis(50), 100);
+
+        // When
+        IllegalStateException timeout = pool.withInterpreter(outer -> assertThrows(IllegalStateException.class,
+                () -> pool.withInterpreter(inner -> null)));
+
+        // Then
+        assertTrue(timeout.getMessage().startsWith("No interpreter free"));
+        assertEquals(1, pool.getWaits());
+        assertEquals(1, pool.idle());
+    }
+
+    private InterpreterPool<Map<String, Object>> pool(int size, int maxUses) {
+        return new InterpreterPool<>(size,
+                () -> {
+                    created.incrementAndGet();
+                    return new HashMap<>();
+                },
+                Map::clear,
+                disposed::add,
+                error -> error instanceof Error,
+                Duration.ofSeconds(5),
+                maxUses);
+    }
+}
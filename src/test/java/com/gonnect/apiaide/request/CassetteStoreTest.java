@@ -0,0 +1,122 @@
+package com.gonnect.apiaide.request;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CassetteStoreTest {
+
+    private static final URI MOVIE = URI.create("https://api.example.org/3/movie/603?language=en&append=credits");
+
+    private Path path;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        path = Files.createTempDirectory("cassette").resolve("test.cassette");
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        Files.deleteIfExists(path);
+        Files.deleteIfExists(path.getParent());
+    }
+
+    @Test
+    void replaysWhatWasRecordedWhateverTheOrderOfTheQuery() throws IOException {
+        // Given
+        CassetteStore recorder = new CassetteStore(CassetteStore.Mode.RECORD, path);
+        recorder.record("GET", MOVIE, null, 200, Map.of("etag", "\"v1\""), bytes("{\"id\": 603}"));
+        recorder.close();
+
+        // When
+        CassetteStore replay = new CassetteStore(CassetteStore.Mode.REPLAY, path);
+        Optional<CassetteStore.Recording> recording = replay.replay("GET",
+                URI.create("https://api.example.org/3/movie/603?append=credits&language=en"), null);
+        Optional<CassetteStore.Recording> missing = replay.replay("GET", URI.create("https://api.example.org/3/movie/604"), null);
+
+        // Then
+        assertTrue(recording.isPresent());
+        assertEquals(200, recording.get().status());
+        assertEquals("\"v1\"", recording.get().headers().get("etag"));
+        assertEquals("{\"id\": 603}", new String(recording.get().body(), StandardCharsets.UTF_8));
+        assertTrue(missing.isEmpty());
+        assertEquals(1, replay.getReplays());
+        assertEquals(1, replay.getMisses());
+        replay.close();
+    }
+
+    @Test
+    void recordsEachRequestOnceAndAppendsAcrossRuns() throws IOException {
+        // Given
+        CassetteStore first = new CassetteStore(CassetteStore.Mode.RECORD, path);
+        assertTrue(first.record("GET", MOVIE, null, 200, Map.of(), bytes("first")));
+        assertFalse(first.record("GET", MOVIE, null, 200, Map.of(), bytes("second")));
+        first.close();
+
+        // When
+        CassetteStore second = new CassetteStore(CassetteStore.Mode.RECORD, path);
+        URI other = URI.create("https://api.example.org/3/search/movie?query=matrix");
+        second.record("GET", other, null, 200, Map.of(), bytes("results"));
+        Optional<CassetteStore.Recording> recorded = second.replay("GET", other, null);
+        second.close();
+
+        // Then
+        assertEquals("results", new String(recorded.orElseThrow().body(), StandardCharsets.UTF_8));
+        CassetteStore replay = new CassetteStore(CassetteStore.Mode.REPLAY, path);
+        assertEquals(2, replay.size());
+        assertEquals("first", new String(replay.replay("GET", MOVIE, null).orElseThrow().body(), StandardCharsets.UTF_8));
+        replay.close();
+    }
+
+    @Test
+    void dropsARecordCutShortByACrash() throws IOException {
+        // Given
+        CassetteStore store = new CassetteStore(CassetteStore.Mode.RECORD, path);
+        store.record("GET", MOVIE, null, 200, Map.of(), bytes("complete"));
+        store.close();
+        Files.write(path, new byte[]{0, 0, 1, 0, 42, 42}, StandardOpenOption.APPEND);
+
+        // When
+        CassetteStore reopened = new CassetteStore(CassetteStore.Mode.RECORD, path);
+        URI other = URI.create("https://api.example.org/3/tv/1399");
+        reopened.record("GET", other, null, 404, Map.of(), bytes("missing"));
+        reopened.close();
+
+        // Then
+        CassetteStore replay = new CassetteStore(CassetteStore.Mode.REPLAY, path);
+        assertEquals(2, replay.size());
+        assertEquals(404, replay.replay("GET", other, null).orElseThrow().status());
+        replay.close();
+    }
+
+    @Test
+    void fingerprintsBodiesByContentNotKeyOrder() {
+        // Given
+        URI uri = URI.create("https://api.example.org/3/list");
+
+        // When
+        String one = CassetteStore.fingerprint("post", uri, Map.of("name", "a", "page", 1));
+        String other = CassetteStore.fingerprint("POST", uri, new TreeMap<>(Map.of("page", 1, "name", "a")));
+
+        // Then
+        assertEquals(one, other);
+        assertNotEquals(one, CassetteStore.fingerprint("POST", uri, Map.of("name", "b", "page", 1)));
+        assertNotEquals(one, CassetteStore.fingerprint("PUT", uri, Map.of("name", "a", "page", 1)));
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,113 @@
+package com.gonnect.apiaide.request;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpResponseCacheTest {
+
+    private static final URI MOVIE = URI.create("https://api.themoviedb.org/3/movie/603");
+    private static final URI TOP_RATED = URI.create("https://api.themoviedb.org/3/movie/top_rated");
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    @Test
+    void servesResponsesWhileFreshByMaxAge() {
+        // Given
+        HttpResponseCache cache = cache(1024, "");
+        cache.store(MOVIE, 200, bytes(10), Map.of("cache-control", "public, max-age=60"));
+
+        // When
+        HttpResponseCache.Lookup fresh = cache.lookup(MOVIE);
+        now.addAndGet(60_000);
+        HttpResponseCache.Lookup expired = cache.lookup(MOVIE);
+
+        // Then
+        assertTrue(fresh.fresh());
+        assertFalse(expired.fresh());
+        assertTrue(expired.stale().isEmpty());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    void keepsNothingThatMustNotBeStored() {
+        // Given
+        HttpResponseCache cache = cache(1024, "");
+
+        // When
+        boolean noStore = cache.store(MOVIE, 200, bytes(10), Map.of("cache-control", "no-store, max-age=60"));
+        boolean notFound = cache.store(MOVIE, 404, bytes(10), Map.of("cache-control", "max-age=60"));
+        boolean noValidator = cache.store(MOVIE, 200, bytes(10), Map.of("cache-control", "no-cache"));
+
+        // Then
+        assertFalse(noStore);
+        assertFalse(notFound);
+        assertFalse(noValidator);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void revalidatesStaleEntriesWithValidators() {
+        // Given
+        HttpResponseCache cache = cache(1024, "");
+        cache.store(MOVIE, 200, bytes(10), Map.of("cache-control", "no-cache", "etag", "\"v1\""));
+
+        // When
+        HttpResponseCache.Lookup stale = cache.lookup(MOVIE);
+        HttpResponseCache.Entry renewed = cache.revalidate(MOVIE, stale.stale().orElseThrow(), Map.of("cache-control", "max-age=30"));
+
+        // Then
+        assertFalse(stale.fresh());
+        assertEquals("\"v1\"", renewed.etag());
+        assertEquals(10, renewed.body().length);
+        assertTrue(cache.lookup(MOVIE).fresh());
+        assertEquals(1, cache.getRevalidations());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedBodiesBeyondTheByteBudget() {
+        // Given
+        HttpResponseCache cache = cache(25, "");
+        Map<String, String> headers = Map.of("cache-control", "max-age=60");
+        cache.store(URI.create("https://api.themoviedb.org/3/movie/1"), 200, bytes(10), headers);
+        cache.store(URI.create("https://api.themoviedb.org/3/movie/2"), 200, bytes(10), headers);
+
+        // When
+        cache.lookup(URI.create("https://api.themoviedb.org/3/movie/1"));
+        cache.store(URI.create("https://api.themoviedb.org/3/movie/3"), 200, bytes(10), headers);
+
+        // Then
+        assertTrue(cache.lookup(URI.create("https://api.themoviedb.org/3/movie/1")).fresh());
+        assertNull(cache.lookup(URI.create("https://api.themoviedb.org/3/movie/2")).entry());
+        assertEquals(20, cache.getTotalBytes());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    void prefersTheMostSpecificTtlOverride() {
+        // Given
+        HttpResponseCache cache = cache(1024, "/movie/{movie_id}=3600, /movie/top_rated=60");
+        Map<String, String> noHeaders = Map.of();
+
+        // When
+        cache.store(MOVIE, 200, bytes(10), noHeaders);
+        cache.store(TOP_RATED, 200, bytes(10), noHeaders);
+        now.addAndGet(120_000);
+
+        // Then
+        assertTrue(cache.lookup(MOVIE).fresh());
+        assertFalse(cache.lookup(TOP_RATED).fresh());
+    }
+
+    private HttpResponseCache cache(long maxBytes, String ttlOverrides) {
+        return new HttpResponseCache(true, maxBytes, 1024, 0, ttlOverrides, now::get);
+    }
+
+    private static byte[] bytes(int length) {
+        return new byte[length];
+    }
+}
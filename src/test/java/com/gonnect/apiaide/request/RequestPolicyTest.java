@@ -0,0 +1,91 @@
+package com.gonnect.apiaide.request;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestPolicyTest {
+
+    private static final String MOVIE = "GET /movie/{movie_id}";
+
+    @Test
+    void hedgesAfterThePercentileLatencyOnceThereAreEnoughSamples() {
+        // Given
+        RequestPolicy policy = policy(2, 0.5);
+        for (int i = 1; i <= 19; i++) {
+            policy.recordLatency(MOVIE, i * 10);
+        }
+
+        // When
+        Optional<Duration> tooFewSamples = policy.hedgeDelay(MOVIE);
+        policy.recordLatency(MOVIE, 1000);
+        Optional<Duration> delay = policy.hedgeDelay(MOVIE);
+
+        // Then
+        assertTrue(tooFewSamples.isEmpty());
+        assertEquals(Duration.ofMillis(190), delay.orElseThrow());
+        assertTrue(policy.hedgeDelay("GET /search/movie").isEmpty());
+    }
+
+    @Test
+    void keepsOnlyTheLatestLatencies() {
+        // Given
+        RequestPolicy policy = policy(2, 0.5);
+        for (int i = 0; i < RequestPolicy.WINDOW; i++) {
+            policy.recordLatency(MOVIE, 5000);
+        }
+
+        // When
+        for (int i = 0; i < RequestPolicy.WINDOW; i++) {
+            policy.recordLatency(MOVIE, 40);
+        }
+
+        // Then
+        assertEquals(40, policy.latency(MOVIE, 0.95).orElseThrow());
+    }
+
+    @Test
+    void backsOffExponentiallyWithJitterUpToTheMaximum() {
+        // Given
+        RequestPolicy policy = policy(5, 0.5);
+        Duration remaining = Duration.ofSeconds(10);
+
+        // When
+        Optional<Duration> first = policy.retryDelay(null, 1, remaining);
+        Optional<Duration> third = policy.retryDelay(null, 3, remaining);
+        Optional<Duration> fifth = policy.retryDelay(null, 5, remaining);
+        Optional<Duration> sixth = policy.retryDelay(null, 6, remaining);
+
+        // Then
+        assertEquals(Duration.ofMillis(50), first.orElseThrow());
+        assertEquals(Duration.ofMillis(200), third.orElseThrow());
+        assertEquals(Duration.ofMillis(500), fifth.orElseThrow());
+        assertTrue(sixth.isEmpty());
+        assertEquals(3, policy.getRetries());
+    }
+
+    @Test
+    void abandonsRetriesThatCannotFinishBeforeTheDeadline() {
+        // Given
+        RequestPolicy policy = policy(2, 0.5);
+        for (int i = 0; i < 20; i++) {
+            policy.recordLatency(MOVIE, 300);
+        }
+
+        // When
+        Optional<Duration> withinDeadline = policy.retryDelay(MOVIE, 1, Duration.ofMillis(400));
+        Optional<Duration> pastDeadline = policy.retryDelay(MOVIE, 1, Duration.ofMillis(320));
+
+        // Then
+        assertTrue(withinDeadline.isPresent());
+        assertTrue(pastDeadline.isEmpty());
+        assertEquals(1, policy.getRetriesAbandoned());
+    }
+
+    private static RequestPolicy policy(int maxRetries, double random) {
+        return new RequestPolicy(true, 0.95, 20, 20, maxRetries, 100, 1000, () -> random);
+    }
+}